@@ -9,14 +9,17 @@ package org.semux;
 import java.io.File;
 import java.io.FileInputStream;
 import java.net.InetSocketAddress;
+import java.util.EnumMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.semux.core.Unit;
 import org.semux.crypto.Hash;
+import org.semux.net.msg.MessageClass;
 import org.semux.net.msg.MessageCode;
 import org.semux.utils.Bytes;
 import org.semux.utils.SystemUtil;
@@ -82,6 +85,37 @@ public class Config {
                 case "net.maxQueueRate":
                     NET_MAX_QUEUE_RATE = Integer.parseInt(props.getProperty(name));
                     break;
+                case "net.maxQueueBatch":
+                    NET_MAX_QUEUE_BATCH = Integer.parseInt(props.getProperty(name));
+                    break;
+                case "net.inboundRates":
+                    parseClassValues(props.getProperty(name), NET_INBOUND_RATES);
+                    break;
+                case "net.outboundRates":
+                    parseClassValues(props.getProperty(name), NET_OUTBOUND_RATES);
+                    break;
+                case "net.scheduleWeights":
+                    parseClassValues(props.getProperty(name), NET_SCHEDULE_WEIGHTS);
+                    break;
+                case "net.compression":
+                    NET_COMPRESSION = Boolean.parseBoolean(props.getProperty(name));
+                    break;
+                case "net.compressionThreshold":
+                    NET_COMPRESSION_THRESHOLD = Integer.parseInt(props.getProperty(name));
+                    break;
+                case "net.epoll":
+                    NET_EPOLL = Boolean.parseBoolean(props.getProperty(name));
+                    break;
+                case "net.eventLoopThreads":
+                    NET_EVENT_LOOP_THREADS = Integer.parseInt(props.getProperty(name));
+                    break;
+
+                case "bft.pipeline":
+                    BFT_PIPELINE = Boolean.parseBoolean(props.getProperty(name));
+                    break;
+                case "bft.adaptiveTimeout":
+                    BFT_ADAPTIVE_TIMEOUT = Boolean.parseBoolean(props.getProperty(name));
+                    break;
 
                 case "api.enabled":
                     API_ENABLED = Boolean.parseBoolean(props.getProperty(name));
@@ -189,7 +223,7 @@ public class Config {
     /**
      * P2P protocol version.
      */
-    public static short P2P_VERSION = 1;
+    public static short P2P_VERSION = 5;
 
     /**
      * P2P listening address.
@@ -226,10 +260,54 @@ public class Config {
     public static int NET_MAX_QUEUE_SIZE = 4096;
 
     /**
-     * Maximum message queue sending rate.
+     * Interval between two sending rounds of a message queue, when a round has
+     * used up its batch.
      */
     public static int NET_MAX_QUEUE_RATE = 1; // 1ms
 
+    /**
+     * Maximum number of messages written in one sending round of a message
+     * queue, besides consensus messages.
+     */
+    public static int NET_MAX_QUEUE_BATCH = 64;
+
+    /**
+     * Maximum number of messages per second a peer may send us, by message
+     * class; 0 for unlimited. Transactions beyond the rate are dropped, other
+     * messages pause reading from the peer.
+     */
+    public static Map<MessageClass, Integer> NET_INBOUND_RATES = new EnumMap<>(MessageClass.class);
+    static {
+        NET_INBOUND_RATES.put(MessageClass.CONSENSUS, 2000);
+        NET_INBOUND_RATES.put(MessageClass.SYNC, 500);
+        NET_INBOUND_RATES.put(MessageClass.TX, 1000);
+        NET_INBOUND_RATES.put(MessageClass.DISCOVERY, 50);
+    }
+
+    /**
+     * Maximum number of messages per second sent to a peer, by message class; 0
+     * for unlimited.
+     */
+    public static Map<MessageClass, Integer> NET_OUTBOUND_RATES = new EnumMap<>(MessageClass.class);
+    static {
+        NET_OUTBOUND_RATES.put(MessageClass.CONSENSUS, 0);
+        NET_OUTBOUND_RATES.put(MessageClass.SYNC, 500);
+        NET_OUTBOUND_RATES.put(MessageClass.TX, 1000);
+        NET_OUTBOUND_RATES.put(MessageClass.DISCOVERY, 50);
+    }
+
+    /**
+     * Number of messages of each class written per turn of a sending round.
+     * Consensus messages always go first.
+     */
+    public static Map<MessageClass, Integer> NET_SCHEDULE_WEIGHTS = new EnumMap<>(MessageClass.class);
+    static {
+        NET_SCHEDULE_WEIGHTS.put(MessageClass.CONSENSUS, 1);
+        NET_SCHEDULE_WEIGHTS.put(MessageClass.SYNC, 4);
+        NET_SCHEDULE_WEIGHTS.put(MessageClass.TX, 2);
+        NET_SCHEDULE_WEIGHTS.put(MessageClass.DISCOVERY, 1);
+    }
+
     /**
      * Maximum frame size.
      */
@@ -240,6 +318,37 @@ public class Config {
      */
     public static int NET_MAX_PACKET_SIZE = 64;
 
+    /**
+     * Compress large messages to peers which support it.
+     */
+    public static boolean NET_COMPRESSION = true;
+
+    /**
+     * Minimum size of a message to be compressed, in bytes.
+     */
+    public static int NET_COMPRESSION_THRESHOLD = 1024;
+
+    /**
+     * Use the native epoll transport, when available.
+     */
+    public static boolean NET_EPOLL = true;
+
+    /**
+     * Number of P2P event loop threads, shared by the server and the client; 0
+     * for twice the number of cores.
+     */
+    public static int NET_EVENT_LOOP_THREADS = 0;
+
+    /**
+     * Size of the pending writes of a channel below which it's writable again.
+     */
+    public static int NET_WRITE_BUFFER_LOW = 256 * 1024;
+
+    /**
+     * Size of the pending writes of a channel above which it's not writable.
+     */
+    public static int NET_WRITE_BUFFER_HIGH = 1024 * 1024;
+
     /**
      * Timeout for peer connection.
      */
@@ -261,7 +370,8 @@ public class Config {
     public static int NET_RELAY_REDUNDANCY = 16;
 
     /**
-     * Privileged message types
+     * Privileged message types, sent through the consensus lane of the message
+     * queue.
      */
     public static Set<MessageCode> PRIORITIZED_MESSAGES = new HashSet<>();
     static {
@@ -324,6 +434,16 @@ public class Config {
      */
     public static int BFT_FINALIZE_TIMEOUT = 4000;
 
+    /**
+     * Whether to propose the next block while the current one is being committed.
+     */
+    public static boolean BFT_PIPELINE = false;
+
+    /**
+     * Whether to adjust the BFT timeouts to the observed phase latencies.
+     */
+    public static boolean BFT_ADAPTIVE_TIMEOUT = false;
+
     // =========================
     // Virtual machine
     // =========================
@@ -438,4 +558,22 @@ public class Config {
         byte[] key = Bytes.merge(Bytes.of(height), Bytes.of(0));
         return validators.get((Hash.h256(key)[0] & 0xff) % validators.size());
     }
+
+    /**
+     * Parses a list of per class values, e.g.
+     * <code>consensus:2000,sync:500</code>.
+     * 
+     * @param str
+     * @param values
+     */
+    private static void parseClassValues(String str, Map<MessageClass, Integer> values) {
+        for (String entry : str.split(",")) {
+            String[] kv = entry.trim().split(":");
+            if (kv.length == 2) {
+                values.put(MessageClass.valueOf(kv[0].trim().toUpperCase()), Integer.parseInt(kv[1].trim()));
+            } else if (!entry.trim().isEmpty()) {
+                logger.error("Invalid class value: {}", entry);
+            }
+        }
+    }
 }
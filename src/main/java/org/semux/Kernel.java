@@ -151,7 +151,7 @@ public class Kernel {
         // start p2p module
         // ====================================
         SemuxChannelInitializer ci = new SemuxChannelInitializer(chain, channelMgr, pendingMgr, nodeMgr, client, null);
-        PeerServer p2p = new PeerServer(ci);
+        PeerServer p2p = new PeerServer(ci, client.getWorkerGroup());
 
         Thread p2pThread = new Thread(() -> {
             p2p.start(Config.P2P_LISTEN_IP, Config.P2P_LISTEN_PORT);
@@ -236,6 +236,7 @@ public class Kernel {
 
             api.stop();
             p2p.stop();
+            client.close();
         }, "shutdown-hook"));
     }
 
@@ -16,6 +16,11 @@ import io.netty.handler.codec.http.HttpHeaders;
  */
 public interface ApiHandler {
 
+    /**
+     * URI of the metrics, in the Prometheus text format.
+     */
+    public static final String METRICS_URI = "/metrics";
+
     /**
      * Processes API request.
      * 
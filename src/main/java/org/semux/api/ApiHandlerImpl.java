@@ -11,26 +11,40 @@ import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
 import org.semux.Config;
+import org.semux.consensus.AdaptiveTimeouts;
+import org.semux.consensus.AdaptiveTimeouts.Phase;
+import org.semux.consensus.SemuxBFT;
+import org.semux.consensus.SemuxBFT.State;
 import org.semux.core.Account;
 import org.semux.core.Block;
 import org.semux.core.Blockchain;
 import org.semux.core.Delegate;
 import org.semux.core.PendingManager;
+import org.semux.core.PendingStats;
+import org.semux.core.PendingStats.Rejection;
 import org.semux.core.Transaction;
 import org.semux.core.TransactionType;
 import org.semux.core.Wallet;
 import org.semux.crypto.EdDSA;
 import org.semux.crypto.Hex;
+import org.semux.net.Channel;
 import org.semux.net.ChannelManager;
+import org.semux.net.NetworkMetrics;
+import org.semux.net.NetworkMetrics.Direction;
 import org.semux.net.NodeManager;
 import org.semux.net.Peer;
 import org.semux.net.PeerClient;
+import org.semux.net.msg.MessageClass;
+import org.semux.net.msg.MessageCode;
+import org.semux.net.msg.MessageQueue;
 import org.semux.utils.ByteArray;
 import org.semux.utils.Bytes;
+import org.semux.utils.Histogram;
 
 import io.netty.handler.codec.http.HttpHeaders;
 
@@ -72,6 +86,9 @@ public class ApiHandlerImpl implements ApiHandler {
         if ("/".equals(uri)) {
             return success("Semux API works");
         }
+        if (METRICS_URI.equals(uri)) {
+            return metricsToText();
+        }
 
         Command cmd = Command.of(uri.substring(1));
         if (cmd == null) {
@@ -87,7 +104,7 @@ public class ApiHandlerImpl implements ApiHandler {
                 obj.put("latestBlockNumber", chain.getLatestBlockNumber());
                 obj.put("latestBlockHash", Hex.PREF + Hex.encode(chain.getLatestBlockHash()));
                 obj.put("activePeers", channelMgr.getActivePeers().size());
-                obj.put("pendingTransactions", pendingMgr.getTransactions().size());
+                obj.put("pendingTransactions", pendingMgr.getStats().getPoolSize());
 
                 return success(obj);
             }
@@ -119,6 +136,9 @@ public class ApiHandlerImpl implements ApiHandler {
                     return failure("Invalid parameter: ip = " + ip);
                 }
             }
+            case GET_NETWORK_STATS: {
+                return success(networkStatsToJson());
+            }
 
             case GET_LATEST_BLOCK_NUMBER: {
                 long num = chain.getLatestBlockNumber();
@@ -140,6 +160,14 @@ public class ApiHandlerImpl implements ApiHandler {
                     return failure("Invalid parameter: number = " + number + ", hash = " + hash);
                 }
             }
+            case GET_CONSENSUS_STATS: {
+                SemuxBFT bft = SemuxBFT.getInstance();
+                if (bft.getTimeouts() != null) {
+                    return success(consensusStatsToJson(bft));
+                } else {
+                    return failure("Consensus is not initialized");
+                }
+            }
             case GET_PENDING_TRANSACTIONS: {
                 List<Transaction> txs = pendingMgr.getTransactions();
                 JSONArray arr = new JSONArray();
@@ -148,6 +176,22 @@ public class ApiHandlerImpl implements ApiHandler {
                 }
                 return success(arr);
             }
+            case GET_PENDING_STATS: {
+                return success(pendingStatsToJson());
+            }
+            case GET_PENDING_SENDER: {
+                String addr = params.get("address");
+                if (addr != null) {
+                    byte[] address = Hex.parse(addr);
+                    JSONObject obj = new JSONObject();
+                    obj.put("address", Hex.PREF + Hex.encode(address));
+                    obj.put("depth", pendingMgr.getStats().getSenderDepth(address));
+                    obj.put("nonce", pendingMgr.getNonce(address));
+                    return success(obj);
+                } else {
+                    return failure("Invalid parameter: address = " + addr);
+                }
+            }
             case GET_ACCOUNT_TRANSACTIONS: {
                 String addr = params.get("address");
                 String from = params.get("from");
@@ -423,6 +467,264 @@ public class ApiHandlerImpl implements ApiHandler {
         return obj;
     }
 
+    /**
+     * Convert the consensus statistics to JSON object.
+     * 
+     * @param bft
+     * @return
+     */
+    protected Object consensusStatsToJson(SemuxBFT bft) {
+        AdaptiveTimeouts timeouts = bft.getTimeouts();
+
+        JSONObject obj = new JSONObject();
+        obj.put("state", bft.getState());
+        obj.put("adaptive", timeouts.isAdaptive());
+
+        JSONObject phases = new JSONObject();
+        for (Map.Entry<State, Phase> e : timeouts.getPhases().entrySet()) {
+            Phase p = e.getValue();
+            JSONObject o = new JSONObject();
+            o.put("timeout", p.getTimeout());
+            o.put("latency", Math.round(p.getLatency()));
+            o.put("lastLatency", p.getLastLatency());
+            o.put("decided", p.getDecided());
+            o.put("timedOut", p.getTimedOut());
+            phases.put(e.getKey().name().toLowerCase(), o);
+        }
+        obj.put("phases", phases);
+
+        long sent = 0, latency = 0, maxLatency = 0;
+        int queued = 0;
+        for (Channel c : channelMgr.getActiveChannels()) {
+            MessageQueue queue = c.getMessageQueue();
+            sent += queue.getConsensusSent();
+            latency += queue.getConsensusLatency();
+            maxLatency = Math.max(maxLatency, queue.getConsensusMaxLatency());
+            queued += queue.getConsensusQueueSize();
+        }
+        JSONObject lane = new JSONObject();
+        lane.put("queued", queued);
+        lane.put("sent", sent);
+        lane.put("latency", sent == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(latency / sent));
+        lane.put("maxLatency", TimeUnit.NANOSECONDS.toMicros(maxLatency));
+        obj.put("lane", lane);
+
+        return obj;
+    }
+
+    /**
+     * Convert the network metrics to JSON object.
+     * 
+     * @return
+     */
+    protected Object networkStatsToJson() {
+        NetworkMetrics global = NetworkMetrics.getGlobal();
+
+        JSONObject messages = new JSONObject();
+        for (MessageCode code : MessageCode.values()) {
+            JSONObject o = new JSONObject();
+            for (Direction dir : Direction.values()) {
+                if (global.getMessages(dir, code) > 0) {
+                    JSONObject d = new JSONObject();
+                    d.put("messages", global.getMessages(dir, code));
+                    d.put("bytes", global.getBytes(dir, code));
+                    d.put("latency", histogramToJson(global.getLatency(dir, code)));
+                    o.put(dir.name().toLowerCase(), d);
+                }
+            }
+            if (global.getRoundtrip(code).getCount() > 0) {
+                o.put("roundtrip", histogramToJson(global.getRoundtrip(code)));
+            }
+            if (o.length() > 0) {
+                messages.put(code.name().toLowerCase(), o);
+            }
+        }
+
+        JSONArray peers = new JSONArray();
+        for (Channel c : channelMgr.getActiveChannels()) {
+            NetworkMetrics metrics = c.getMetrics();
+            MessageQueue queue = c.getMessageQueue();
+
+            JSONObject p = new JSONObject();
+            p.put("peerId", Hex.PREF + c.getRemotePeer().getPeerId());
+            p.put("ip", c.getRemoteIp());
+            for (Direction dir : Direction.values()) {
+                JSONObject d = new JSONObject();
+                d.put("messages", metrics.getMessages(dir));
+                d.put("bytes", metrics.getBytes(dir));
+                p.put(dir.name().toLowerCase(), d);
+            }
+            p.put("roundtrip", histogramToJson(metrics.getRoundtrip()));
+
+            JSONObject q = new JSONObject();
+            q.put("size", queue.size());
+            q.put("requests", queue.getRequestQueueSize());
+            for (MessageClass mc : MessageClass.values()) {
+                q.put(mc.name().toLowerCase(), queue.size(mc));
+            }
+            p.put("queue", q);
+
+            peers.put(p);
+        }
+
+        JSONObject obj = new JSONObject();
+        obj.put("messages", messages);
+        obj.put("peers", peers);
+        return obj;
+    }
+
+    /**
+     * Convert a histogram to JSON object.
+     * 
+     * @param h
+     * @return
+     */
+    protected Object histogramToJson(Histogram h) {
+        JSONObject obj = new JSONObject();
+        obj.put("count", h.getCount());
+        obj.put("mean", h.getMean());
+        obj.put("p50", h.getPercentile(50));
+        obj.put("p99", h.getPercentile(99));
+        obj.put("max", h.getMax());
+        return obj;
+    }
+
+    /**
+     * Export the network metrics in the Prometheus text format.
+     * 
+     * @return
+     */
+    protected String metricsToText() {
+        NetworkMetrics global = NetworkMetrics.getGlobal();
+        StringBuilder sb = new StringBuilder();
+
+        sb.append("# TYPE semux_net_messages_total counter\n");
+        for (MessageCode code : MessageCode.values()) {
+            for (Direction dir : Direction.values()) {
+                sb.append("semux_net_messages_total").append(labels(dir, code)).append(' ')
+                        .append(global.getMessages(dir, code)).append('\n');
+            }
+        }
+
+        sb.append("# TYPE semux_net_bytes_total counter\n");
+        for (MessageCode code : MessageCode.values()) {
+            for (Direction dir : Direction.values()) {
+                sb.append("semux_net_bytes_total").append(labels(dir, code)).append(' ')
+                        .append(global.getBytes(dir, code)).append('\n');
+            }
+        }
+
+        sb.append("# TYPE semux_net_latency_microseconds histogram\n");
+        for (MessageCode code : MessageCode.values()) {
+            for (Direction dir : Direction.values()) {
+                appendHistogram(sb, "semux_net_latency_microseconds", labels(dir, code),
+                        global.getLatency(dir, code));
+            }
+        }
+
+        sb.append("# TYPE semux_net_roundtrip_microseconds histogram\n");
+        for (MessageCode code : MessageCode.values()) {
+            appendHistogram(sb, "semux_net_roundtrip_microseconds",
+                    "{code=\"" + code.name().toLowerCase() + "\"}", global.getRoundtrip(code));
+        }
+
+        List<Channel> channels = channelMgr.getActiveChannels();
+        sb.append("# TYPE semux_net_peer_bytes_total counter\n");
+        for (Channel c : channels) {
+            for (Direction dir : Direction.values()) {
+                sb.append("semux_net_peer_bytes_total{peer=\"").append(c.getRemotePeer().getPeerId())
+                        .append("\",direction=\"").append(dir.name().toLowerCase()).append("\"} ")
+                        .append(c.getMetrics().getBytes(dir)).append('\n');
+            }
+        }
+
+        sb.append("# TYPE semux_net_peer_queue_size gauge\n");
+        for (Channel c : channels) {
+            MessageQueue queue = c.getMessageQueue();
+            for (MessageClass mc : MessageClass.values()) {
+                sb.append("semux_net_peer_queue_size{peer=\"").append(c.getRemotePeer().getPeerId())
+                        .append("\",class=\"").append(mc.name().toLowerCase()).append("\"} ")
+                        .append(queue.size(mc)).append('\n');
+            }
+        }
+
+        return sb.toString();
+    }
+
+    private static String labels(Direction dir, MessageCode code) {
+        return "{direction=\"" + dir.name().toLowerCase() + "\",code=\"" + code.name().toLowerCase() + "\"}";
+    }
+
+    private static void appendHistogram(StringBuilder sb, String name, String labels, Histogram h) {
+        if (h.getCount() == 0) {
+            return;
+        }
+
+        // buckets are cumulative, with the bound added to the labels
+        String prefix = labels.substring(0, labels.length() - 1) + ",le=\"";
+        long cumulative = 0;
+        for (int i = 0; i < Histogram.BUCKETS - 1; i++) {
+            cumulative += h.getBucket(i);
+            sb.append(name).append("_bucket").append(prefix).append(Histogram.getUpperBound(i)).append("\"} ")
+                    .append(cumulative).append('\n');
+        }
+        sb.append(name).append("_bucket").append(prefix).append("+Inf\"} ").append(h.getCount()).append('\n');
+        sb.append(name).append("_sum").append(labels).append(' ').append(h.getSum()).append('\n');
+        sb.append(name).append("_count").append(labels).append(' ').append(h.getCount()).append('\n');
+    }
+
+    /**
+     * Convert the pending manager statistics to JSON object.
+     * 
+     * @return
+     */
+    protected Object pendingStatsToJson() {
+        PendingStats stats = pendingMgr.getStats();
+
+        JSONObject obj = new JSONObject();
+        obj.put("poolSize", stats.getPoolSize());
+        obj.put("poolBytes", stats.getPoolBytes());
+        obj.put("queueSize", pendingMgr.getQueueSize());
+        obj.put("cacheSize", pendingMgr.getCacheSize());
+        obj.put("cacheCapacity", pendingMgr.getCacheCapacity());
+        obj.put("seenSize", pendingMgr.getSeenSize());
+        obj.put("senders", stats.getNumberOfSenders());
+        obj.put("maxSenderDepth", stats.getMaxSenderDepth());
+
+        // fee rates, in nano SEM per byte
+        JSONArray feeRates = new JSONArray();
+        long[] histogram = stats.getFeeRateHistogram();
+        for (int i = 0; i < histogram.length; i++) {
+            if (histogram[i] > 0) {
+                JSONObject bucket = new JSONObject();
+                bucket.put("minFeeRate", 1L << i);
+                bucket.put("count", histogram[i]);
+                feeRates.put(bucket);
+            }
+        }
+        obj.put("feeRates", feeRates);
+
+        JSONObject admitted = new JSONObject();
+        admitted.put("total", stats.getAdmitted());
+        admitted.put("lastMinute", stats.getAdmittedPerMinute());
+        obj.put("admitted", admitted);
+
+        JSONObject rejected = new JSONObject();
+        for (Rejection r : Rejection.values()) {
+            JSONObject o = new JSONObject();
+            o.put("total", stats.getRejected(r));
+            o.put("lastMinute", stats.getRejectedPerMinute(r));
+            rejected.put(r.name().toLowerCase(), o);
+        }
+        obj.put("rejected", rejected);
+
+        obj.put("timeSinceLastReconcile", stats.getTimeSinceLastReconcile());
+        obj.put("lastReconcileTime", stats.getLastReconcileTime());
+        obj.put("lastReconcileDropped", stats.getLastReconcileDropped());
+
+        return obj;
+    }
+
     /**
      * Convert an account to JSON object.
      * 
@@ -37,6 +37,12 @@ public enum Command {
      */
     BLOCK_IP,
 
+    /**
+     * Get message counts, bytes and latencies in microseconds by message code and
+     * direction, and the traffic and queue depth of each peer.
+     */
+    GET_NETWORK_STATS,
+
     // =======================
     // block
     // =======================
@@ -55,6 +61,12 @@ public enum Command {
      */
     GET_BLOCK,
 
+    /**
+     * Get the BFT phase timeouts and latencies, and the consensus lane latency
+     * in microseconds.
+     */
+    GET_CONSENSUS_STATS,
+
     // =======================
     // transaction
     // =======================
@@ -63,6 +75,16 @@ public enum Command {
      */
     GET_PENDING_TRANSACTIONS,
 
+    /**
+     * Get statistics of the pending transaction pool.
+     */
+    GET_PENDING_STATS,
+
+    /**
+     * Get the pending transaction queue depth of a sender.
+     */
+    GET_PENDING_SENDER,
+
     /**
      * Get transactions by account.
      */
@@ -132,7 +132,9 @@ public class SemuxHttpHandler extends SimpleChannelInboundHandler<Object> {
                 // delegate requests
                 String response = (error != null) ? error : handler.service(uri, map, headers);
 
-                if (!writeResponse(ctx, response)) {
+                String contentType = ApiHandler.METRICS_URI.equals(uri) ? "text/plain; version=0.0.4; charset=UTF-8"
+                        : "application/json; charset=UTF-8";
+                if (!writeResponse(ctx, response, contentType)) {
                     // if keep-alive is off, close the connection after flushing
                     ctx.writeAndFlush(Unpooled.EMPTY_BUFFER).addListener(ChannelFutureListener.CLOSE);
                 }
@@ -149,13 +151,13 @@ public class SemuxHttpHandler extends SimpleChannelInboundHandler<Object> {
         error = "Bad request";
     }
 
-    private boolean writeResponse(ChannelHandlerContext ctx, String response) {
+    private boolean writeResponse(ChannelHandlerContext ctx, String response, String contentType) {
         // construct a HTTP response
         FullHttpResponse resp = new DefaultFullHttpResponse(HTTP_1_1, OK,
                 Unpooled.copiedBuffer(response == null ? "" : response, CHARSET));
 
         // set response headers
-        resp.headers().set(HttpHeaderNames.CONTENT_TYPE, "application/json; charset=UTF-8");
+        resp.headers().set(HttpHeaderNames.CONTENT_TYPE, contentType);
         if (keepAlive) {
             resp.headers().set(HttpHeaderNames.CONTENT_LENGTH, resp.content().readableBytes());
             resp.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE);
@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2017 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.consensus;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.semux.Config;
+import org.semux.consensus.SemuxBFT.State;
+
+/**
+ * Tracks how long each BFT phase takes to reach a decision, and derives the
+ * phase timeouts from it.
+ *
+ * <p>
+ * When adaptive, the timeout of a phase is a multiple of the average latency to
+ * reach +2/3 votes, and grows whenever the phase times out, within
+ * <code>[1/4, 2]</code> times the configured value. NEW_HEIGHT and FINALIZE are
+ * fixed waits and always use the configured value.
+ * </p>
+ *
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ */
+public class AdaptiveTimeouts {
+
+    private static final double ALPHA = 0.2;
+    private static final double SAFETY_FACTOR = 3.0;
+    private static final double GROWTH_FACTOR = 1.5;
+    private static final double MIN_RATIO = 0.25;
+    private static final double MAX_RATIO = 2.0;
+
+    /**
+     * Statistics of one phase.
+     */
+    public static class Phase {
+        private long timeout;
+        private double latency;
+        private long lastLatency;
+        private long decided;
+        private long timedOut;
+        private long enteredAt;
+
+        /**
+         * Returns the current timeout, in milliseconds.
+         *
+         * @return
+         */
+        public long getTimeout() {
+            return timeout;
+        }
+
+        /**
+         * Returns the moving average of the decision latency, in milliseconds.
+         *
+         * @return
+         */
+        public double getLatency() {
+            return latency;
+        }
+
+        /**
+         * Returns the last decision latency, in milliseconds.
+         *
+         * @return
+         */
+        public long getLastLatency() {
+            return lastLatency;
+        }
+
+        /**
+         * Returns the number of times the phase ended with a decision.
+         *
+         * @return
+         */
+        public long getDecided() {
+            return decided;
+        }
+
+        /**
+         * Returns the number of times the phase timed out.
+         *
+         * @return
+         */
+        public long getTimedOut() {
+            return timedOut;
+        }
+    }
+
+    private boolean adaptive;
+    private Map<State, Phase> phases = new EnumMap<>(State.class);
+
+    /**
+     * Create the timeouts, starting from the configured values.
+     *
+     * @param adaptive
+     *            whether to adjust the timeouts
+     */
+    public AdaptiveTimeouts(boolean adaptive) {
+        this.adaptive = adaptive;
+        for (State s : State.values()) {
+            Phase p = new Phase();
+            p.timeout = getDefault(s);
+            phases.put(s, p);
+        }
+    }
+
+    /**
+     * Returns the timeout of a phase.
+     *
+     * @param state
+     * @return timeout in milliseconds
+     */
+    public synchronized long getTimeout(State state) {
+        return phases.get(state).timeout;
+    }
+
+    /**
+     * When a phase is entered.
+     *
+     * @param state
+     */
+    public synchronized void onEnter(State state) {
+        phases.get(state).enteredAt = System.nanoTime();
+    }
+
+    /**
+     * When a phase reaches its outcome, e.g. +2/3 votes.
+     *
+     * @param state
+     */
+    public synchronized void onDecided(State state) {
+        Phase p = phases.get(state);
+        long latency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - p.enteredAt);
+
+        p.decided++;
+        p.lastLatency = latency;
+        p.latency = (p.decided == 1) ? latency : ALPHA * latency + (1 - ALPHA) * p.latency;
+        if (adaptive && isAdaptable(state)) {
+            p.timeout = bound(state, (long) (SAFETY_FACTOR * p.latency));
+        }
+    }
+
+    /**
+     * When a phase times out.
+     *
+     * @param state
+     */
+    public synchronized void onTimeout(State state) {
+        Phase p = phases.get(state);
+
+        p.timedOut++;
+        if (adaptive && isAdaptable(state)) {
+            p.timeout = bound(state, (long) (GROWTH_FACTOR * p.timeout));
+        }
+    }
+
+    /**
+     * Returns whether the timeouts are adaptive.
+     *
+     * @return
+     */
+    public boolean isAdaptive() {
+        return adaptive;
+    }
+
+    /**
+     * Returns a snapshot of the statistics of all phases.
+     *
+     * @return
+     */
+    public synchronized Map<State, Phase> getPhases() {
+        Map<State, Phase> map = new EnumMap<>(State.class);
+        for (Map.Entry<State, Phase> e : phases.entrySet()) {
+            Phase p = e.getValue();
+            Phase copy = new Phase();
+            copy.timeout = p.timeout;
+            copy.latency = p.latency;
+            copy.lastLatency = p.lastLatency;
+            copy.decided = p.decided;
+            copy.timedOut = p.timedOut;
+            copy.enteredAt = p.enteredAt;
+            map.put(e.getKey(), copy);
+        }
+        return map;
+    }
+
+    private boolean isAdaptable(State state) {
+        return state != State.NEW_HEIGHT && state != State.FINALIZE;
+    }
+
+    private long bound(State state, long timeout) {
+        long def = getDefault(state);
+        return Math.max((long) (MIN_RATIO * def), Math.min((long) (MAX_RATIO * def), timeout));
+    }
+
+    private static long getDefault(State state) {
+        switch (state) {
+        case NEW_HEIGHT:
+            return Config.BFT_NEW_HEIGHT_TIMEOUT;
+        case PROPOSE:
+            return Config.BFT_PROPOSE_TIMEOUT;
+        case VALIDATE:
+            return Config.BFT_VALIDATE_TIMEOUT;
+        case PRE_COMMIT:
+            return Config.BFT_PRE_COMMIT_TIMEOUT;
+        case COMMIT:
+            return Config.BFT_COMMIT_TIMEOUT;
+        case FINALIZE:
+            return Config.BFT_FINALIZE_TIMEOUT;
+        default:
+            throw new IllegalArgumentException("Unknown state: " + state);
+        }
+    }
+}
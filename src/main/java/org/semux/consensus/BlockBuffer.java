@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2017 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.consensus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The reorder buffer of downloaded blocks, indexed by number and bounded by the
+ * total size of the encoded blocks.
+ *
+ * <p>
+ * Blocks are kept encoded, and are only decoded when they are about to be
+ * validated. When the buffer is full, a block evicts the blocks above it, since
+ * those are needed later; a block above all buffered ones is rejected. At
+ * least one block is always accepted, so that a block larger than the capacity
+ * does not stall the sync.
+ * </p>
+ *
+ * <p>
+ * This class is not thread-safe.
+ * </p>
+ */
+public class BlockBuffer {
+
+    private final long capacity;
+
+    private TreeMap<Long, byte[]> blocks = new TreeMap<>();
+    private long bytes;
+
+    /**
+     * Create a buffer.
+     *
+     * @param capacity
+     *            the maximum total size of the buffered blocks, in bytes
+     */
+    public BlockBuffer(long capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Adds an encoded block, unless a block with the same number is already
+     * buffered, which is kept.
+     *
+     * @param number
+     *            the block number
+     * @param encoded
+     *            the encoded block
+     * @return the numbers of the blocks which are dropped to stay within the
+     *         capacity, including the given one if it's rejected
+     */
+    public List<Long> add(long number, byte[] encoded) {
+        if (blocks.containsKey(number)) {
+            return new ArrayList<>();
+        }
+
+        List<Long> dropped = new ArrayList<>();
+        while (!blocks.isEmpty() && bytes + encoded.length > capacity && blocks.lastKey() > number) {
+            Map.Entry<Long, byte[]> e = blocks.pollLastEntry();
+            bytes -= e.getValue().length;
+            dropped.add(e.getKey());
+        }
+
+        if (!blocks.isEmpty() && bytes + encoded.length > capacity) {
+            dropped.add(number);
+        } else {
+            blocks.put(number, encoded);
+            bytes += encoded.length;
+        }
+
+        return dropped;
+    }
+
+    /**
+     * Removes a block.
+     *
+     * @param number
+     * @return the encoded block, or null if not buffered
+     */
+    public byte[] remove(long number) {
+        byte[] encoded = blocks.remove(number);
+        if (encoded != null) {
+            bytes -= encoded.length;
+        }
+        return encoded;
+    }
+
+    /**
+     * Removes all the blocks up to the given number, inclusive.
+     *
+     * @param number
+     */
+    public void removeUpTo(long number) {
+        Map<Long, byte[]> head = blocks.headMap(number, true);
+        for (byte[] encoded : head.values()) {
+            bytes -= encoded.length;
+        }
+        head.clear();
+    }
+
+    /**
+     * Returns whether a block is buffered.
+     *
+     * @param number
+     * @return
+     */
+    public boolean contains(long number) {
+        return blocks.containsKey(number);
+    }
+
+    /**
+     * Returns whether the buffer has reached its capacity.
+     *
+     * @return
+     */
+    public boolean isFull() {
+        return bytes >= capacity;
+    }
+
+    /**
+     * Removes all blocks.
+     */
+    public void clear() {
+        blocks.clear();
+        bytes = 0;
+    }
+
+    /**
+     * Returns the number of buffered blocks.
+     *
+     * @return
+     */
+    public int size() {
+        return blocks.size();
+    }
+
+    /**
+     * Returns the total size of the buffered blocks, in bytes.
+     *
+     * @return
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Returns the capacity, in bytes.
+     *
+     * @return
+     */
+    public long getCapacity() {
+        return capacity;
+    }
+}
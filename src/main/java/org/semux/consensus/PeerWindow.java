@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2017 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.consensus;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * The request window of one peer during sync.
+ *
+ * <p>
+ * The window is sized by the measured throughput of the peer, so that about
+ * {@link #TARGET_TIME} worth of blocks is outstanding: a peer which delivers
+ * faster gets more requests in flight. Timeouts halve the window.
+ * </p>
+ *
+ * <p>
+ * This class is not thread-safe.
+ * </p>
+ */
+public class PeerWindow {
+
+    /**
+     * Time worth of blocks to keep outstanding, in milliseconds.
+     */
+    public static final long TARGET_TIME = 1000;
+
+    public static final int MIN_WINDOW = 1;
+    public static final int MAX_WINDOW = 64;
+
+    private static final long RATE_PERIOD = 1000;
+    private static final double ALPHA = 0.3;
+
+    private Map<Long, Long> outstanding = new HashMap<>();
+    private int window = 2 * MIN_WINDOW;
+
+    private double rate;
+    private long delivered;
+    private long periodStart;
+    private long periodDelivered;
+    private boolean periodBusy;
+
+    private double latency;
+    private int timeouts;
+
+    /**
+     * Create a window.
+     *
+     * @param now
+     *            the current time, in milliseconds
+     */
+    public PeerWindow(long now) {
+        this.periodStart = now;
+    }
+
+    /**
+     * Returns the number of requests which can be sent now.
+     *
+     * @return
+     */
+    public int available() {
+        return Math.max(0, window - outstanding.size());
+    }
+
+    /**
+     * When a block is requested from this peer.
+     *
+     * @param number
+     * @param now
+     */
+    public void onRequest(long number, long now) {
+        outstanding.put(number, now);
+        periodBusy = true;
+    }
+
+    /**
+     * When a block is received from this peer.
+     *
+     * @param number
+     * @param now
+     * @return true if the block was requested from this peer, otherwise false
+     */
+    public boolean onResponse(long number, long now) {
+        Long time = outstanding.remove(number);
+        if (time == null) {
+            return false;
+        }
+
+        long l = now - time;
+        latency = (delivered == 0) ? l : ALPHA * l + (1 - ALPHA) * latency;
+        delivered++;
+        periodDelivered++;
+        timeouts = 0;
+
+        return true;
+    }
+
+    /**
+     * Removes the requests sent before the given timeout, and shrinks the
+     * window if any.
+     *
+     * @param now
+     * @param timeout
+     * @return the expired block numbers
+     */
+    public List<Long> expire(long now, long timeout) {
+        List<Long> expired = new ArrayList<>();
+
+        Iterator<Entry<Long, Long>> itr = outstanding.entrySet().iterator();
+        while (itr.hasNext()) {
+            Entry<Long, Long> e = itr.next();
+            if (e.getValue() + timeout < now) {
+                expired.add(e.getKey());
+                itr.remove();
+            }
+        }
+
+        if (!expired.isEmpty()) {
+            timeouts++;
+            window = Math.max(MIN_WINDOW, window / 2);
+        }
+
+        return expired;
+    }
+
+    /**
+     * Removes all outstanding requests, e.g. to hand them over to other peers.
+     *
+     * @return the block numbers
+     */
+    public List<Long> drain() {
+        List<Long> list = new ArrayList<>(outstanding.keySet());
+        outstanding.clear();
+        window = MIN_WINDOW;
+        return list;
+    }
+
+    /**
+     * Updates the throughput and resizes the window, once per rate period. Idle
+     * periods, when nothing was requested from the peer, are not measured.
+     *
+     * @param now
+     */
+    public void tick(long now) {
+        long elapsed = now - periodStart;
+        if (elapsed >= RATE_PERIOD && !periodBusy && outstanding.isEmpty()) {
+            periodStart = now;
+            periodDelivered = 0;
+        } else if (elapsed >= RATE_PERIOD) {
+            double r = periodDelivered * 1000.0 / elapsed;
+            rate = (rate == 0) ? r : ALPHA * r + (1 - ALPHA) * rate;
+            periodStart = now;
+            periodDelivered = 0;
+            periodBusy = false;
+
+            // one more than the target, so that the window can grow
+            int size = (int) Math.ceil(rate * TARGET_TIME / 1000.0) + 1;
+            window = Math.max(MIN_WINDOW, Math.min(MAX_WINDOW, size));
+        }
+    }
+
+    /**
+     * Returns whether a block is outstanding at this peer.
+     *
+     * @param number
+     * @return
+     */
+    public boolean isOutstanding(long number) {
+        return outstanding.containsKey(number);
+    }
+
+    /**
+     * Returns the number of outstanding requests.
+     *
+     * @return
+     */
+    public int getOutstanding() {
+        return outstanding.size();
+    }
+
+    /**
+     * Returns the window size.
+     *
+     * @return
+     */
+    public int getWindow() {
+        return window;
+    }
+
+    /**
+     * Returns the average throughput, in blocks per second.
+     *
+     * @return
+     */
+    public double getRate() {
+        return rate;
+    }
+
+    /**
+     * Returns the average latency of a request, in milliseconds.
+     *
+     * @return
+     */
+    public double getLatency() {
+        return latency;
+    }
+
+    /**
+     * Returns the number of delivered blocks.
+     *
+     * @return
+     */
+    public long getDelivered() {
+        return delivered;
+    }
+
+    /**
+     * Returns the number of consecutive timeouts.
+     *
+     * @return
+     */
+    public int getTimeouts() {
+        return timeouts;
+    }
+}
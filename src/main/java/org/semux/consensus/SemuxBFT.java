@@ -8,9 +8,21 @@ package org.semux.consensus;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantReadWriteLock.WriteLock;
 
 import org.apache.commons.lang3.tuple.Pair;
@@ -18,6 +30,7 @@ import org.semux.Config;
 import org.semux.consensus.SemuxBFT.Event.Type;
 import org.semux.core.Account;
 import org.semux.core.Block;
+import org.semux.core.BlockTemplate;
 import org.semux.core.BlockHeader;
 import org.semux.core.Blockchain;
 import org.semux.core.Consensus;
@@ -26,6 +39,7 @@ import org.semux.core.Sync;
 import org.semux.core.Transaction;
 import org.semux.core.TransactionExecutor;
 import org.semux.core.TransactionResult;
+import org.semux.core.ValidatorSet;
 import org.semux.core.state.AccountState;
 import org.semux.core.state.DelegateState;
 import org.semux.crypto.EdDSA;
@@ -41,7 +55,12 @@ import org.semux.net.msg.consensus.BFTNewHeightMessage;
 import org.semux.net.msg.consensus.BFTNewViewMessage;
 import org.semux.net.msg.consensus.BFTProposalMessage;
 import org.semux.net.msg.consensus.BFTVoteMessage;
+import org.semux.net.msg.consensus.BlockMessage;
+import org.semux.net.msg.consensus.BlocksMessage;
+import org.semux.net.msg.consensus.GetBlockMessage;
+import org.semux.net.msg.consensus.GetBlocksMessage;
 import org.semux.utils.ArrayUtil;
+import org.semux.utils.ByteArray;
 import org.semux.utils.MerkleUtil;
 import org.semux.utils.SystemUtil;
 import org.slf4j.Logger;
@@ -62,6 +81,8 @@ public class SemuxBFT implements Consensus {
 
     private Timer timer;
     private Broadcaster broadcaster;
+    private Verifier verifier;
+    private AdaptiveTimeouts timeouts;
     private BlockingQueue<Event> events = new LinkedBlockingQueue<>();
 
     private volatile Status status;
@@ -73,15 +94,34 @@ public class SemuxBFT implements Consensus {
     private int view;
     private Proof proof;
     private Proposal proposal;
+    private Proposal nextProposal;
 
-    private volatile List<String> validators;
+    private volatile ValidatorSet validators;
     private volatile List<Channel> activeValidators;
     private volatile long lastUpdate;
 
+    // blocks fetched by the fast catch-up, with whether their votes are verified
+    private Map<Long, Pair<Block, Boolean>> catchUpBlocks = new ConcurrentHashMap<>();
+    private volatile long catchUpTarget;
+    private long catchUpStarted;
+
     private VoteSet validateVotes;
     private VoteSet precommitVotes;
     private VoteSet commitVotes;
 
+    /**
+     * Maximum number of missing blocks which are fetched without starting a
+     * full sync.
+     */
+    private static final int MAX_CATCH_UP_GAP = 3;
+
+    private static final long CATCH_UP_TIMEOUT = 3 * 1000;
+
+    /**
+     * The first P2P version which serves block ranges.
+     */
+    private static final short RANGE_REQUEST_VERSION = 3;
+
     private static SemuxBFT instance;
     private static boolean qualified;
 
@@ -114,6 +154,8 @@ public class SemuxBFT implements Consensus {
 
         this.timer = new Timer();
         this.broadcaster = new Broadcaster();
+        this.verifier = new Verifier();
+        this.timeouts = new AdaptiveTimeouts(Config.BFT_ADAPTIVE_TIMEOUT);
 
         this.status = Status.STOPPED;
         this.state = State.NEW_HEIGHT;
@@ -128,9 +170,11 @@ public class SemuxBFT implements Consensus {
             // change status
             status = Status.SYNCING;
 
-            // reset votes, timer, and events
+            // reset votes, timer, events and catch-up
             resetVotes();
             resetTimerAndEvents();
+            catchUpTarget = 0;
+            catchUpBlocks.clear();
 
             // start syncing
             sync.start(target);
@@ -165,7 +209,10 @@ public class SemuxBFT implements Consensus {
                 case STOP:
                     return;
                 case TIMEOUT:
-                    onTimeout();
+                    // ignore the timeout of a phase which has ended early
+                    if (timer.isCurrent(ev.getData())) {
+                        onTimeout();
+                    }
                     break;
                 case NEW_HEIGHT:
                     onNewHeight(ev.getData());
@@ -179,6 +226,9 @@ public class SemuxBFT implements Consensus {
                 case VOTE:
                     onVote(ev.getData());
                     break;
+                case BLOCK:
+                    onCatchUpBlock();
+                    break;
                 default:
                     break;
                 }
@@ -193,6 +243,7 @@ public class SemuxBFT implements Consensus {
     @Override
     public void start() {
         if (status == Status.STOPPED) {
+            verifier.start();
             status = Status.RUNNING;
             timer.start();
             broadcaster.start();
@@ -215,6 +266,7 @@ public class SemuxBFT implements Consensus {
 
             timer.stop();
             broadcaster.stop();
+            verifier.stop();
 
             status = Status.STOPPED;
             events.offer(new Event(Event.Type.STOP));
@@ -231,6 +283,7 @@ public class SemuxBFT implements Consensus {
      */
     protected void enterNewHeight() {
         state = State.NEW_HEIGHT;
+        timeouts.onEnter(state);
 
         // update previous block
         prevBlock = chain.getLatestBlock();
@@ -248,6 +301,12 @@ public class SemuxBFT implements Consensus {
         resetVotes();
         resetTimerAndEvents();
 
+        // pick up the proposal received in advance, in pipelined mode
+        if (nextProposal != null && nextProposal.getHeight() == height) {
+            proposal = nextProposal;
+        }
+        nextProposal = null;
+
         logger.info("Entered new_height: height = {}, # validators = {}", height, validators.size());
         if (isValidator()) {
             if (!qualified) {
@@ -257,7 +316,8 @@ public class SemuxBFT implements Consensus {
                     System.exit(-1);
                 }
             }
-            timer.timeout(Config.BFT_NEW_HEIGHT_TIMEOUT);
+            // no need to wait for the proposal if it has been received
+            timer.timeout(proposal != null ? 0 : timeouts.getTimeout(State.NEW_HEIGHT));
         }
 
         // Broadcast NEW_HEIGHT messages to ALL peers.
@@ -272,7 +332,8 @@ public class SemuxBFT implements Consensus {
      */
     protected void enterPropose() {
         state = State.PROPOSE;
-        timer.timeout(Config.BFT_PROPOSE_TIMEOUT);
+        timer.timeout(timeouts.getTimeout(state));
+        timeouts.onEnter(state);
 
         updateValidators();
 
@@ -303,6 +364,8 @@ public class SemuxBFT implements Consensus {
         for (Channel c : activeValidators) {
             c.getMessageQueue().sendMessage(msg);
         }
+
+        checkDecided();
     }
 
     /**
@@ -310,7 +373,8 @@ public class SemuxBFT implements Consensus {
      */
     protected void enterValidate() {
         state = State.VALIDATE;
-        timer.timeout(Config.BFT_VALIDATE_TIMEOUT);
+        timer.timeout(timeouts.getTimeout(state));
+        timeouts.onEnter(state);
         logger.info("Entered validate: proposal = {}, votes = {} {} {}", proposal != null, validateVotes,
                 precommitVotes, commitVotes);
 
@@ -330,6 +394,8 @@ public class SemuxBFT implements Consensus {
         // always broadcast vote directly.
         validateVotes.addVote(vote);
         broadcaster.broadcast(new BFTVoteMessage(vote));
+
+        checkDecided();
     }
 
     /**
@@ -337,7 +403,8 @@ public class SemuxBFT implements Consensus {
      */
     protected void enterPreCommit() {
         state = State.PRE_COMMIT;
-        timer.timeout(Config.BFT_PRE_COMMIT_TIMEOUT);
+        timer.timeout(timeouts.getTimeout(state));
+        timeouts.onEnter(state);
         logger.info("Entered pre_commit: proposal = {}, votes = {} {} {}", proposal != null, validateVotes,
                 precommitVotes, commitVotes);
 
@@ -350,6 +417,8 @@ public class SemuxBFT implements Consensus {
         // always broadcast vote directly.
         precommitVotes.addVote(vote);
         broadcaster.broadcast(new BFTVoteMessage(vote));
+
+        checkDecided();
     }
 
     /**
@@ -357,7 +426,8 @@ public class SemuxBFT implements Consensus {
      */
     protected void enterCommit() {
         state = State.COMMIT;
-        timer.timeout(Config.BFT_COMMIT_TIMEOUT);
+        timer.timeout(timeouts.getTimeout(state));
+        timeouts.onEnter(state);
         logger.info("Entered commit: proposal = {}, votes = {} {} {}", proposal != null, validateVotes, precommitVotes,
                 commitVotes);
 
@@ -372,7 +442,46 @@ public class SemuxBFT implements Consensus {
             // always broadcast vote directly.
             commitVotes.addVote(vote);
             broadcaster.broadcast(new BFTVoteMessage(vote));
+
+            // propose the next block while this one is being committed
+            pipelineNextProposal(blockHash);
+
+            checkCommitted();
+        }
+    }
+
+    /**
+     * In pipelined mode, the primary of the next height builds and broadcasts its
+     * proposal as soon as the current height has +2/3 pre-commit votes. The
+     * proposal is validated and voted as usual once the next height starts.
+     * 
+     * @param blockHash
+     *            the hash of the block being committed
+     */
+    protected void pipelineNextProposal(byte[] blockHash) {
+        if (!Config.BFT_PIPELINE || !isPipelinable(height + 1) || nextProposal != null || proposal == null
+                || !Arrays.equals(blockHash, proposal.getBlock().getHash())
+                || !isPrimary(height + 1, 0, coinbase.toAddressString())) {
+            return;
         }
+
+        Block block = proposeBlock(proposal.getBlock());
+        nextProposal = new Proposal(new Proof(height + 1, 0), block);
+        nextProposal.sign(coinbase);
+
+        logger.debug("Proposing in advance: {}", nextProposal);
+        broadcaster.broadcast(new BFTProposalMessage(nextProposal));
+    }
+
+    /**
+     * Check if the proposal of a height can be made before its previous block is
+     * added, which requires an unchanged validator set.
+     * 
+     * @param h
+     * @return
+     */
+    protected boolean isPipelinable(long h) {
+        return (h - 1) % Config.VALIDATOR_TERM != 0;
     }
 
     /**
@@ -385,7 +494,8 @@ public class SemuxBFT implements Consensus {
         }
 
         state = State.FINALIZE;
-        timer.timeout(Config.BFT_FINALIZE_TIMEOUT);
+        timer.timeout(timeouts.getTimeout(state));
+        timeouts.onEnter(state);
         logger.info("Entered finalize: proposal = {}, votes = {} {} {}", proposal != null, validateVotes,
                 precommitVotes, commitVotes);
 
@@ -405,11 +515,107 @@ public class SemuxBFT implements Consensus {
             // [3] add the block to chain
             logger.info(block.toString());
             applyBlock(block);
-        } else {
+        } else if (!catchUp(height + 1)) {
             sync(height + 1);
         }
     }
 
+    /**
+     * Fetches the blocks up to the target height from a peer which has them,
+     * unless they are being fetched already.
+     * 
+     * @param target
+     *            the target height, exclusive
+     * @return false if the blocks can't be fetched in time, and a full sync is
+     *         needed
+     */
+    protected boolean catchUp(long target) {
+        long now = System.currentTimeMillis();
+        if (catchUpTarget > height && now - catchUpStarted > CATCH_UP_TIMEOUT) {
+            logger.info("Catch-up to height {} timed out", catchUpTarget);
+            catchUpTarget = 0;
+            catchUpBlocks.clear();
+            return false;
+        }
+        if (target <= catchUpTarget) {
+            return true;
+        }
+
+        List<Channel> peers = new ArrayList<>();
+        for (Channel c : channelMgr.getActiveChannels()) {
+            if (c.getRemotePeer().getLatestBlockNumber() >= target - 1) {
+                peers.add(c);
+            }
+        }
+        if (peers.isEmpty()) {
+            return false;
+        }
+        Channel c = peers.get((int) (Math.random() * peers.size()));
+
+        logger.info("Catching up: height = {}, target = {}, cid = {}", height, target, c.getId());
+        if (c.getRemotePeer().getP2pVersion() >= RANGE_REQUEST_VERSION) {
+            c.getMessageQueue().sendMessage(new GetBlocksMessage(height, (int) (target - height)));
+        } else {
+            for (long i = height; i < target; i++) {
+                c.getMessageQueue().sendMessage(new GetBlockMessage(i));
+            }
+        }
+        catchUpTarget = target;
+        catchUpStarted = now;
+        return true;
+    }
+
+    /**
+     * Applies the blocks fetched by the catch-up, in order, and enters the new
+     * height after each of them.
+     */
+    protected void onCatchUpBlock() {
+        Pair<Block, Boolean> next;
+        while ((next = catchUpBlocks.remove(height)) != null) {
+            Block block = next.getLeft();
+            if (!checkCatchUpBlock(block, next.getRight())) {
+                logger.debug("Invalid block from catch-up: number = {}", block.getNumber());
+                break;
+            }
+
+            logger.info(block.toString());
+            applyBlock(block);
+            if (chain.getLatestBlockNumber() != block.getNumber()) {
+                break;
+            }
+            enterNewHeight();
+        }
+        catchUpBlocks.keySet().removeIf(n -> n < height);
+    }
+
+    /**
+     * Checks that a block extends the chain and is committed by +2/3 of the
+     * current validators.
+     * 
+     * @param block
+     * @param votesVerified
+     *            whether the vote signatures have been verified
+     * @return
+     */
+    protected boolean checkCatchUpBlock(Block block, boolean votesVerified) {
+        if (!Arrays.equals(block.getPrevHash(), prevBlock.getHash())) {
+            return false;
+        }
+        if (!votesVerified && (!block.resolveVotes(chain.getValidatorKeys()) || !SemuxSync.verifyVotes(block))) {
+            return false;
+        }
+
+        Set<Integer> signers = new HashSet<>();
+        for (Signature sig : block.getVotes()) {
+            int idx = validators.indexOfPublicKey(sig.getPublicKey());
+            if (idx == -1) {
+                return false;
+            }
+            signers.add(idx);
+        }
+        return signers.size() >= validators.getTwoThirds();
+    }
+
     protected void jumpToView(int view, Proof proof) {
         this.view = view;
         this.proof = proof;
@@ -435,7 +641,10 @@ public class SemuxBFT implements Consensus {
             }
 
             if (count >= (int) Math.ceil(activeValidators.size() * 2.0 / 3.0)) {
-                sync(h);
+                // short gaps are filled from the peers, without stopping the consensus
+                if (h - height > MAX_CATCH_UP_GAP || !catchUp(h)) {
+                    sync(h);
+                }
             }
         }
     }
@@ -462,11 +671,24 @@ public class SemuxBFT implements Consensus {
     protected void onProposal(Proposal p) {
         logger.trace("On proposal: {}", p);
 
+        // keep the first proposal for the next height, in pipelined mode
+        if (Config.BFT_PIPELINE && p.getHeight() == height + 1 && p.getView() == 0 //
+                && nextProposal == null //
+                && isPipelinable(p.getHeight()) //
+                && p.getProof().getVotes().isEmpty() //
+                && isFromValidator(p.getSignature()) //
+                && isPrimary(p.getHeight(), p.getView(), p.getSignature())) {
+            logger.trace("Proposal received in advance: height = {}", p.getHeight());
+            nextProposal = p;
+            broadcaster.broadcast(new BFTProposalMessage(p));
+            return;
+        }
+
         if (p.getHeight() == height // at the same height
                 && (p.getView() == view && proposal == null && state == State.PROPOSE // expecting a proposal
                         || p.getView() > view && state != State.COMMIT && state != State.FINALIZE) // larger view
                 && isFromValidator(p.getSignature()) //
-                && isPrimary(p.getHeight(), p.getView(), pubKeyToPeerId(p.getSignature().getPublicKey()))) {//
+                && isPrimary(p.getHeight(), p.getView(), p.getSignature())) {//
 
             // check proof-of-unlock
             if (p.getView() != 0) {
@@ -486,6 +708,7 @@ public class SemuxBFT implements Consensus {
 
             if (view == p.getView()) {
                 proposal = p;
+                checkDecided();
             } else {
                 // switch view
                 logger.debug("Switching view because of PROPOSE message");
@@ -500,7 +723,7 @@ public class SemuxBFT implements Consensus {
         if (v.getHeight() == height //
                 && v.getView() == view //
                 && isFromValidator(v.getSignature()) //
-                && v.validate()) {
+                && v.validate()) { // verified by the verifier, no signature check here
             boolean added = false;
 
             switch (v.getType()) {
@@ -512,24 +735,98 @@ public class SemuxBFT implements Consensus {
                 break;
             case COMMIT:
                 added = commitVotes.addVote(v);
-                if (commitVotes.isAnyApproved() != null) {
-                    // skip COMMIT state time out if +2/3 commit votes
-                    enterFinalize();
-                }
+                checkCommitted();
                 break;
             }
 
             if (added) {
                 BFTVoteMessage msg = new BFTVoteMessage(v);
                 broadcaster.broadcast(msg);
+
+                checkDecided();
             }
         }
     }
 
+    /**
+     * Move to the next phase as soon as the outcome of the current one is decided,
+     * instead of waiting for the timeout.
+     */
+    protected void checkDecided() {
+        switch (state) {
+        case PROPOSE:
+            if (proposal != null) {
+                timeouts.onDecided(state);
+                enterValidate();
+            }
+            break;
+        case VALIDATE:
+            if (validateVotes.isFinalized()) {
+                timeouts.onDecided(state);
+                enterPreCommit();
+            }
+            break;
+        case PRE_COMMIT:
+            if (precommitVotes.isAnyApproved() != null) {
+                timeouts.onDecided(state);
+                enterCommit();
+            } else if (precommitVotes.isRejected()) {
+                timeouts.onDecided(state);
+                enterPropose();
+            }
+            break;
+        default:
+            break;
+        }
+    }
+
+    /**
+     * Enter the FINALIZE state on +2/3 commit votes, whatever the current state,
+     * so that a lagging node follows the decision of the others.
+     */
+    protected void checkCommitted() {
+        if (commitVotes.isAnyApproved() != null) {
+            // skip COMMIT state time out if +2/3 commit votes
+            if (state == State.COMMIT) {
+                timeouts.onDecided(state);
+            }
+            enterFinalize();
+        }
+    }
+
+    /**
+     * Returns the phase timeouts and their statistics.
+     * 
+     * @return
+     */
+    public AdaptiveTimeouts getTimeouts() {
+        return timeouts;
+    }
+
+    /**
+     * Returns the current BFT state.
+     * 
+     * @return
+     */
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Returns the current BFT height.
+     * 
+     * @return
+     */
+    public long getHeight() {
+        return height;
+    }
+
     /**
      * Timeout handler
      */
     protected void onTimeout() {
+        timeouts.onTimeout(state);
+
         switch (state) {
         case NEW_HEIGHT:
             enterPropose();
@@ -584,7 +881,10 @@ public class SemuxBFT implements Consensus {
             if (m.getHeight() > height) {
                 events.add(new Event(Event.Type.NEW_HEIGHT, m.getHeight()));
             } else if (m.getHeight() == height) {
-                events.add(new Event(Event.Type.NEW_VIEW, m.getProof()));
+                verifier.submit(() -> {
+                    verifyVotes(m.getProof().getVotes());
+                    events.add(new Event(Event.Type.NEW_VIEW, m.getProof()));
+                });
             }
             return true;
         }
@@ -592,13 +892,16 @@ public class SemuxBFT implements Consensus {
             BFTProposalMessage m = (BFTProposalMessage) msg;
             Proposal proposal = m.getProposal();
 
-            if (proposal.getHeight() == height) {
-                if (proposal.validate()) {
-                    events.add(new Event(Event.Type.PROPOSAL, m.getProposal()));
-                } else {
-                    logger.debug("Invalid proposal from {}", channel.getRemotePeer().getPeerId());
-                    channel.getMessageQueue().disconnect(ReasonCode.CONSENSUS_ERROR);
-                }
+            if (proposal.getHeight() == height || Config.BFT_PIPELINE && proposal.getHeight() == height + 1) {
+                verifier.submit(() -> {
+                    if (proposal.validate()) {
+                        verifyVotes(proposal.getProof().getVotes());
+                        events.add(new Event(Event.Type.PROPOSAL, proposal));
+                    } else {
+                        logger.debug("Invalid proposal from {}", channel.getRemotePeer().getPeerId());
+                        channel.getMessageQueue().disconnect(ReasonCode.CONSENSUS_ERROR);
+                    }
+                });
             }
             return true;
         }
@@ -607,12 +910,27 @@ public class SemuxBFT implements Consensus {
             Vote vote = m.getVote();
 
             if (vote.getHeight() == height) {
-                if (vote.validate()) {
-                    events.add(new Event(Event.Type.VOTE, vote));
-                } else {
-                    logger.debug("Invalid vote from {}", channel.getRemotePeer().getPeerId());
-                    channel.getMessageQueue().disconnect(ReasonCode.CONSENSUS_ERROR);
-                }
+                verifier.submit(() -> {
+                    if (vote.validate()) {
+                        events.add(new Event(Event.Type.VOTE, vote));
+                    } else {
+                        logger.debug("Invalid vote from {}", channel.getRemotePeer().getPeerId());
+                        channel.getMessageQueue().disconnect(ReasonCode.CONSENSUS_ERROR);
+                    }
+                });
+            }
+            return true;
+        }
+        case BLOCK: {
+            byte[] encoded = ((BlockMessage) msg).getEncodedBlock();
+            if (encoded.length != 0) {
+                onBlock(encoded);
+            }
+            return true;
+        }
+        case BLOCKS: {
+            for (byte[] encoded : ((BlocksMessage) msg).getEncodedBlocks()) {
+                onBlock(encoded);
             }
             return true;
         }
@@ -621,12 +939,64 @@ public class SemuxBFT implements Consensus {
         }
     }
 
+    /**
+     * When a block is received for the catch-up. Only the header is decoded here;
+     * blocks within the catch-up range are decoded and validated off the event
+     * loop, along with their votes if the signers are known.
+     * 
+     * @param encoded
+     */
+    protected void onBlock(byte[] encoded) {
+        long number;
+        try {
+            number = Block.headerFromBytes(encoded).getNumber();
+        } catch (Exception e) {
+            logger.debug("Malformed block from catch-up");
+            return;
+        }
+
+        if (number >= height && number < catchUpTarget) {
+            verifier.submit(() -> {
+                Block block;
+                try {
+                    block = Block.fromBytes(encoded);
+                } catch (Exception e) {
+                    logger.debug("Malformed block from catch-up: number = {}", number);
+                    return;
+                }
+                if (!block.validate()) {
+                    logger.debug("Invalid block from catch-up: number = {}", block.getNumber());
+                    return;
+                }
+                boolean verified = block.resolveVotes(chain.getValidatorKeys());
+                if (verified && !SemuxSync.verifyVotes(block)) {
+                    logger.debug("Invalid votes of block from catch-up: number = {}", block.getNumber());
+                    return;
+                }
+                // the block is registered before the event, which may be dropped when
+                // entering a new height
+                catchUpBlocks.put(block.getNumber(), Pair.of(block, verified));
+                events.add(new Event(Event.Type.BLOCK));
+            });
+        }
+    }
+
+    /**
+     * Verify the signatures of votes, so that the event loop only sees verified
+     * votes. Invalid votes are left to be discarded by {@link VoteSet}.
+     * 
+     * @param votes
+     */
+    protected void verifyVotes(List<Vote> votes) {
+        Vote.validateAll(votes);
+    }
+
     /**
      * Update the validator sets.
      */
     protected void updateValidators() {
-        validators = chain.getValidators();
-        activeValidators = channelMgr.getActiveChannels(validators);
+        validators = chain.getValidatorSet();
+        activeValidators = channelMgr.getActiveChannels(validators.getValidators());
         lastUpdate = System.currentTimeMillis();
     }
 
@@ -636,7 +1006,7 @@ public class SemuxBFT implements Consensus {
      * @return
      */
     protected boolean isValidator() {
-        return validators.contains(coinbase.toAddressString());
+        return validators.contains(coinbase.toAddress());
     }
 
     /**
@@ -671,7 +1041,23 @@ public class SemuxBFT implements Consensus {
      * @return
      */
     protected boolean isPrimary(long height, int view, String peerId) {
-        return Config.getPrimaryValidator(validators, height, view).equals(peerId);
+        return validators.getPrimary(height, view).equals(peerId);
+    }
+
+    /**
+     * Check if the signer of a message is the primary for the specified view.
+     * 
+     * @param height
+     *            block number
+     * @param view
+     *            a specific view
+     * @param sig
+     *            the message signature
+     * @return
+     */
+    protected boolean isPrimary(long height, int view, Signature sig) {
+        int index = validators.indexOfPublicKey(sig.getPublicKey());
+        return index != -1 && index == validators.getPrimaryIndex(height, view);
     }
 
     /**
@@ -681,7 +1067,7 @@ public class SemuxBFT implements Consensus {
      * @return
      */
     protected boolean isFromValidator(Signature sig) {
-        return validators.contains(Hex.encode(Hash.h160(sig.getPublicKey())));
+        return validators.indexOfPublicKey(sig.getPublicKey()) != -1;
     }
 
     /**
@@ -709,13 +1095,10 @@ public class SemuxBFT implements Consensus {
     protected Block proposeBlock() {
         long t1 = System.currentTimeMillis();
 
-        // fetch pending transactions
-        Pair<List<Transaction>, List<TransactionResult>> pending = pendingMgr
-                .getTransactionsAndResults(Config.MAX_BLOCK_SIZE);
-
-        // compute roots
-        byte[] transactionsRoot = MerkleUtil.computeTransactionsRoot(pending.getLeft());
-        byte[] resultsRoot = MerkleUtil.computeResultsRoot(pending.getRight());
+        // fetch the pre-built template, roots are maintained incrementally
+        BlockTemplate template = pendingMgr.getBlockTemplate();
+        byte[] transactionsRoot = template.getTransactionsRoot();
+        byte[] resultsRoot = template.getResultsRoot();
         byte[] stateRoot = Hash.EMPTY_H256;
 
         // construct block
@@ -725,10 +1108,72 @@ public class SemuxBFT implements Consensus {
         byte[] data = {};
         BlockHeader header = new BlockHeader(number, coinbase.toAddress(), prevHash, timestamp, transactionsRoot,
                 resultsRoot, stateRoot, data);
-        Block block = new Block(header.sign(coinbase), pending.getLeft(), pending.getRight());
+        Block block = template.createBlock(header.sign(coinbase));
 
         long t2 = System.currentTimeMillis();
-        logger.debug("Block creation: # txs = {}, time = {} ms", pending.getLeft().size(), t2 - t1);
+        logger.debug("Block creation: # txs = {}, time = {} ms", template.size(), t2 - t1);
+
+        return block;
+    }
+
+    /**
+     * Create a block on top of a block which is not yet added to the chain, for
+     * pipelined proposal. Pending transactions are re-evaluated against the state
+     * after the parent block.
+     * 
+     * @param parent
+     *            the block being committed
+     * @return the proposed block
+     */
+    protected Block proposeBlock(Block parent) {
+        long t1 = System.currentTimeMillis();
+
+        // apply the parent block to a temporary state
+        AccountState as = accountState.track();
+        DelegateState ds = delegateState.track();
+        TransactionExecutor exec = new TransactionExecutor();
+        exec.execute(parent.getTransactions(), as, ds);
+        applyBlockReward(parent, as);
+
+        // select pending transactions which are still valid
+        Set<ByteArray> included = new HashSet<>();
+        for (Transaction tx : parent.getTransactions()) {
+            included.add(ByteArray.of(tx.getHash()));
+        }
+        List<Transaction> txs = new ArrayList<>();
+        List<TransactionResult> results = new ArrayList<>();
+        for (Transaction tx : pendingMgr.getTransactions()) {
+            if (txs.size() >= Config.MAX_BLOCK_SIZE) {
+                break;
+            }
+            if (included.contains(ByteArray.of(tx.getHash()))) {
+                continue;
+            }
+
+            AccountState as2 = as.track();
+            DelegateState ds2 = ds.track();
+            TransactionResult result = exec.execute(tx, as2, ds2);
+            if (result.isValid()) {
+                as2.commit();
+                ds2.commit();
+                txs.add(tx);
+                results.add(result);
+            }
+        }
+
+        // construct block
+        byte[] transactionsRoot = MerkleUtil.computeTransactionsRoot(txs);
+        byte[] resultsRoot = MerkleUtil.computeResultsRoot(results);
+        byte[] stateRoot = Hash.EMPTY_H256;
+        long number = parent.getNumber() + 1;
+        long timestamp = System.currentTimeMillis();
+        byte[] data = {};
+        BlockHeader header = new BlockHeader(number, coinbase.toAddress(), parent.getHash(), timestamp,
+                transactionsRoot, resultsRoot, stateRoot, data);
+        Block block = new Block(header.sign(coinbase), txs, results);
+
+        long t2 = System.currentTimeMillis();
+        logger.debug("Block creation in advance: # txs = {}, time = {} ms", txs.size(), t2 - t1);
 
         return block;
     }
@@ -802,14 +1247,7 @@ public class SemuxBFT implements Consensus {
         }
 
         // [2] apply block reward and tx fees
-        long reward = Config.getBlockReward(block.getNumber());
-        for (Transaction tx : block.getTransactions()) {
-            reward += tx.getFee();
-        }
-        if (reward > 0) {
-            Account acc = as.getAccount(block.getCoinbase());
-            acc.setBalance(acc.getBalance() + reward);
-        }
+        applyBlockReward(block, as);
 
         // [3] commit state change
         as.commit();
@@ -829,50 +1267,47 @@ public class SemuxBFT implements Consensus {
         }
     }
 
+    /**
+     * Apply the block reward and transaction fees to the coinbase account.
+     * 
+     * @param block
+     * @param as
+     */
+    protected void applyBlockReward(Block block, AccountState as) {
+        long reward = Config.getBlockReward(block.getNumber());
+        for (Transaction tx : block.getTransactions()) {
+            reward += tx.getFee();
+        }
+        if (reward > 0) {
+            Account acc = as.getAccount(block.getCoinbase());
+            acc.setBalance(acc.getBalance() + reward);
+        }
+    }
+
     public enum State {
         NEW_HEIGHT, PROPOSE, VALIDATE, PRE_COMMIT, COMMIT, FINALIZE
     }
 
-    public class Timer implements Runnable {
-        private long timeout;
-
-        private Thread t;
-
-        @Override
-        public void run() {
-            while (true) {
-                synchronized (this) {
-                    if (timeout != 0 && timeout < System.currentTimeMillis()) {
-                        events.add(new Event(Type.TIMEOUT));
-                        timeout = 0;
-                        continue;
-                    }
-                }
-
-                try {
-                    Thread.sleep(10);
-                } catch (InterruptedException e) {
-                    return;
-                }
-            }
-        }
+    /**
+     * Fires a TIMEOUT event on deadline. Only the latest timeout is armed, and
+     * deadlines are measured with the monotonic clock of the scheduler.
+     */
+    public class Timer {
+        private ScheduledExecutorService exec;
+        private ScheduledFuture<?> future;
+        private long generation;
 
         public synchronized void start() {
-            if (t == null) {
-                t = new Thread(this, "cons-timer");
-                t.start();
+            if (exec == null) {
+                exec = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "cons-timer"));
             }
         }
 
         public synchronized void stop() {
-            if (t != null) {
-                try {
-                    t.interrupt();
-                    t.join(10000);
-                } catch (InterruptedException e) {
-                    logger.warn("Failed to stop consensus timer");
-                }
-                t = null;
+            if (exec != null) {
+                reset();
+                exec.shutdownNow();
+                exec = null;
             }
         }
 
@@ -880,11 +1315,32 @@ public class SemuxBFT implements Consensus {
             if (miliseconds < 0) {
                 throw new IllegalArgumentException("Timeout can not be negative");
             }
-            timeout = System.currentTimeMillis() + miliseconds;
+            reset();
+
+            if (exec != null) {
+                long id = generation;
+                future = exec.schedule(() -> fire(id), miliseconds, TimeUnit.MILLISECONDS);
+            }
         }
 
         public synchronized void reset() {
-            timeout = 0;
+            generation++;
+            if (future != null) {
+                future.cancel(false);
+                future = null;
+            }
+        }
+
+        private synchronized void fire(long id) {
+            // ignore a timeout which has been reset while firing
+            if (id == generation) {
+                events.add(new Event(Type.TIMEOUT, id));
+                future = null;
+            }
+        }
+
+        public synchronized boolean isCurrent(long id) {
+            return id == generation;
         }
     }
 
@@ -940,6 +1396,47 @@ public class SemuxBFT implements Consensus {
         }
     }
 
+    /**
+     * Verifies the signatures of incoming consensus messages in parallel, off the
+     * event loop and network threads.
+     */
+    public class Verifier {
+        private final ThreadFactory factory = new ThreadFactory() {
+            private AtomicInteger cnt = new AtomicInteger(0);
+
+            @Override
+            public Thread newThread(Runnable r) {
+                return new Thread(r, "cons-verifier-" + cnt.getAndIncrement());
+            }
+        };
+
+        private ExecutorService exec;
+
+        public synchronized void start() {
+            if (exec == null) {
+                int cores = Runtime.getRuntime().availableProcessors();
+                exec = Executors.newFixedThreadPool(cores > 2 ? cores / 2 : 1, factory);
+            }
+        }
+
+        public synchronized void stop() {
+            if (exec != null) {
+                exec.shutdownNow();
+                exec = null;
+            }
+        }
+
+        public synchronized void submit(Runnable task) {
+            if (exec != null) {
+                try {
+                    exec.submit(task);
+                } catch (RejectedExecutionException e) {
+                    logger.debug("Verifier is shut down");
+                }
+            }
+        }
+    }
+
     public static class Event {
         public enum Type {
             /**
@@ -970,7 +1467,12 @@ public class SemuxBFT implements Consensus {
             /**
              * Received a vote message.
              */
-            VOTE
+            VOTE,
+
+            /**
+             * Received a block requested by the catch-up.
+             */
+            BLOCK
         }
 
         private Type type;
@@ -6,6 +6,7 @@
  */
 package org.semux.consensus;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
@@ -15,8 +16,12 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ThreadFactory;
@@ -27,22 +32,28 @@ import java.util.concurrent.locks.ReentrantReadWriteLock.WriteLock;
 import org.semux.Config;
 import org.semux.core.Account;
 import org.semux.core.Block;
+import org.semux.core.BlockHeader;
 import org.semux.core.Blockchain;
 import org.semux.core.Sync;
 import org.semux.core.Transaction;
 import org.semux.core.TransactionExecutor;
 import org.semux.core.TransactionResult;
+import org.semux.core.ValidatorSet;
 import org.semux.core.state.AccountState;
 import org.semux.core.state.DelegateState;
-import org.semux.crypto.EdDSA;
+import org.semux.crypto.BatchVerifier;
 import org.semux.crypto.EdDSA.Signature;
 import org.semux.crypto.Hash;
 import org.semux.crypto.Hex;
 import org.semux.net.Channel;
 import org.semux.net.ChannelManager;
 import org.semux.net.msg.Message;
+import org.semux.net.msg.consensus.BlockHeadersMessage;
 import org.semux.net.msg.consensus.BlockMessage;
+import org.semux.net.msg.consensus.BlocksMessage;
+import org.semux.net.msg.consensus.GetBlockHeadersMessage;
 import org.semux.net.msg.consensus.GetBlockMessage;
+import org.semux.net.msg.consensus.GetBlocksMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -59,26 +70,103 @@ public class SemuxSync implements Sync {
         }
     };
 
-    private static final int BLOCK_REQUEST_REDUNDANCY = 1;
+    private static final ThreadFactory validatorFactory = new ThreadFactory() {
+        private AtomicInteger cnt = new AtomicInteger(0);
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "sync-validator-" + cnt.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        }
+    };
+
+    private static final int CORES = Runtime.getRuntime().availableProcessors();
 
-    private static final int MAX_UNFINISHED_JOBS = 16;
+    /**
+     * Shared pool for the stateless validation of blocks.
+     */
+    private static final ExecutorService validators = Executors.newFixedThreadPool(CORES, validatorFactory);
+
+    /**
+     * Number of upcoming blocks which are validated ahead of the applier.
+     */
+    private static final int VALIDATION_WINDOW = 4 * CORES;
 
     private static final long MAX_DOWNLOAD_TIME = 30 * 1000; // 30 seconds
 
     private static final int MAX_PENDING_BLOCKS = 512;
 
+    /**
+     * Maximum total size of the downloaded blocks waiting to be processed.
+     */
+    private static final long MAX_PENDING_BYTES = 64L * 1024 * 1024;
+
+    /**
+     * A peer is slow if its latency is above this multiple of the median.
+     */
+    private static final double SLOW_PEER_FACTOR = 4.0;
+
+    /**
+     * A peer is dropped from sync after this number of consecutive timeouts.
+     */
+    private static final int MAX_PEER_TIMEOUTS = 3;
+
+    /**
+     * Minimum age of the next needed block before it's also requested from
+     * another peer, in milliseconds.
+     */
+    private static final long MIN_STEAL_TIME = 2 * 1000;
+
+    /**
+     * The first P2P version which serves block ranges, see
+     * {@link GetBlocksMessage}.
+     */
+    private static final short RANGE_REQUEST_VERSION = 3;
+
+    /**
+     * The first P2P version which serves header ranges, see
+     * {@link GetBlockHeadersMessage}.
+     */
+    private static final short HEADER_FIRST_VERSION = 4;
+
+    private static final long HEADER_TIMEOUT = 10 * 1000; // 10 seconds
+
+    /**
+     * Maximum time to wait for the next block matching the header chain, before
+     * the header chain is dropped.
+     */
+    static final long MAX_HEADER_WAIT = 30 * 1000; // 30 seconds
+
     private Blockchain chain;
     private ChannelManager channelMgr;
 
     private ScheduledExecutorService exec;
+    private ScheduledExecutorService applier;
     private ScheduledFuture<?> download;
     private ScheduledFuture<?> process;
 
     // task queues
     private TreeSet<Long> toDownload = new TreeSet<>();
     private Map<Long, Long> toComplete = new HashMap<>();
-    private TreeSet<Block> toProcess = new TreeSet<>();
+    private BlockBuffer toProcess = new BlockBuffer(MAX_PENDING_BYTES);
+    private Map<Long, Future<Validation>> toApply = new HashMap<>();
+    private Map<Long, PeerWindow> windows = new HashMap<>();
+    private Set<Long> stolen = new HashSet<>();
     private long target;
+
+    // verified header chain, from the latest block to the header tip, which is
+    // at most the end of the term
+    private TreeMap<Long, BlockHeader> headers = new TreeMap<>();
+    private long headerTip;
+    private byte[] headerTipHash;
+    private long headerChannel;
+    private long headerRequested;
+    private long headerWait;
+    private long headerWaitSince;
+
+    private long startNumber;
+    private long startTime;
     private Object lock = new Object();
 
     private volatile boolean isRunning;
@@ -119,21 +207,29 @@ public class SemuxSync implements Sync {
                 toDownload.clear();
                 toComplete.clear();
                 toProcess.clear();
+                toApply.clear();
+                windows.clear();
+                stolen.clear();
 
                 target = targetHeight;
                 for (long i = chain.getLatestBlockNumber() + 1; i < target; i++) {
                     toDownload.add(i);
                 }
+
+                resetHeaders();
+                startNumber = chain.getLatestBlockNumber();
+                startTime = System.currentTimeMillis();
             }
 
-            // [2] start tasks
+            // [2] start tasks, the applier has its own thread
             exec = Executors.newSingleThreadScheduledExecutor(factory);
+            applier = Executors.newSingleThreadScheduledExecutor(factory);
             download = exec.scheduleAtFixedRate(() -> {
                 download();
-            }, 0, 50, TimeUnit.MILLISECONDS);
-            process = exec.scheduleAtFixedRate(() -> {
-                process();
             }, 0, 10, TimeUnit.MILLISECONDS);
+            process = applier.scheduleWithFixedDelay(() -> {
+                process();
+            }, 0, 5, TimeUnit.MILLISECONDS);
 
             // [3] wait until the sync is done
             synchronized (done) {
@@ -148,10 +244,12 @@ public class SemuxSync implements Sync {
             download.cancel(true);
             process.cancel(false);
 
-            // [5] shutdown executor
+            // [5] shutdown executors
             exec.shutdown();
+            applier.shutdown();
             try {
                 exec.awaitTermination(1, TimeUnit.MINUTES);
+                applier.awaitTermination(1, TimeUnit.MINUTES);
                 logger.info("Sync finished");
 
             } catch (InterruptedException e) {
@@ -183,105 +281,435 @@ public class SemuxSync implements Sync {
 
         switch (msg.getCode()) {
         case BLOCK:
-            BlockMessage blockMsg = (BlockMessage) msg;
-            Block block = blockMsg.getBlock();
-            if (block != null) {
-                synchronized (lock) {
-                    toDownload.remove(block.getNumber());
-                    toComplete.remove(block.getNumber());
-                    toProcess.add(block);
+            // only the header is decoded here, the rest is decoded before validation
+            byte[] encoded = ((BlockMessage) msg).getEncodedBlock();
+            if (encoded.length != 0) {
+                BlockHeader header = decodeHeader(channel, encoded);
+                if (header != null) {
+                    synchronized (lock) {
+                        onBlock(channel, header, encoded);
+                    }
                 }
             }
             return true;
+        case BLOCKS:
+            BlocksMessage blocksMsg = (BlocksMessage) msg;
+            List<BlockHeader> blockHeaders = new ArrayList<>();
+            for (byte[] b : blocksMsg.getEncodedBlocks()) {
+                BlockHeader header = decodeHeader(channel, b);
+                if (header == null || header.getNumber() != blocksMsg.getFrom() + blockHeaders.size()) {
+                    logger.debug("Unexpected block in range from cid = {}", channel.getId());
+                    break;
+                }
+                blockHeaders.add(header);
+            }
+            synchronized (lock) {
+                for (int i = 0; i < blockHeaders.size(); i++) {
+                    onBlock(channel, blockHeaders.get(i), blocksMsg.getEncodedBlocks().get(i));
+                }
+            }
+            return true;
+        case BLOCK_HEADERS:
+            BlockHeadersMessage headersMsg = (BlockHeadersMessage) msg;
+            validators.submit(() -> onHeaders(channel, headersMsg.getFrom(), headersMsg.getHeaders()));
+            return true;
         case BLOCK_HEADER:
-            // TODO implement block header
+            // single headers are not requested by the sync
             return true;
         default:
             return false;
         }
     }
 
+    private BlockHeader decodeHeader(Channel channel, byte[] encoded) {
+        try {
+            return Block.headerFromBytes(encoded);
+        } catch (Exception e) {
+            logger.debug("Malformed block from cid = {}", channel.getId());
+            return null;
+        }
+    }
+
+    /**
+     * When a block is received.
+     */
+    private void onBlock(Channel channel, BlockHeader header, byte[] encoded) {
+        PeerWindow w = windows.get(channel.getId());
+        long number = header.getNumber();
+
+        // only blocks requested from this peer are accepted
+        if (w == null || !w.onResponse(number, System.currentTimeMillis())) {
+            logger.debug("Unsolicited block #{} from cid = {}", number, channel.getId());
+            return;
+        }
+
+        // the body must match the verified header; a bad header chain is dropped
+        // when the next block does not arrive in time
+        BlockHeader verified = headers.get(number);
+        if (verified != null && !Arrays.equals(verified.getHash(), header.getHash())) {
+            logger.debug("Block #{} from cid = {} does not match the verified header", number, channel.getId());
+            release(Collections.singletonList(number));
+            release(w.drain());
+            return;
+        }
+
+        toDownload.remove(number);
+        toComplete.remove(number);
+        if (number > chain.getLatestBlockNumber() && !toApply.containsKey(number)) {
+            // blocks evicted to stay within the memory bound are downloaded again
+            toDownload.addAll(toProcess.add(number, encoded));
+        }
+    }
+
+    /**
+     * Verifies a range of headers and appends the valid prefix to the header
+     * chain. Headers must link to the header tip and be signed by the primary
+     * validator of their height, so the header chain stops at the end of the
+     * term of the current validator set.
+     */
+    void onHeaders(Channel channel, long from, List<BlockHeader> list) {
+        long number;
+        byte[] prevHash;
+        synchronized (lock) {
+            if (channel.getId() == headerChannel) {
+                headerChannel = -1;
+            }
+            if (from != headerTip + 1) {
+                return;
+            }
+            number = headerTip;
+            prevHash = headerTipHash;
+        }
+
+        ValidatorSet vs = chain.getValidatorSet();
+        List<BlockHeader> verified = new ArrayList<>();
+        for (BlockHeader h : list) {
+            if (h.getNumber() <= vs.getNumber() || h.getNumber() > vs.getNumber() + Config.VALIDATOR_TERM) {
+                break;
+            }
+            // the primary does not depend on the view
+            if (h.getNumber() != number + 1 || !Arrays.equals(h.getPrevHash(), prevHash) || !h.validate()
+                    || vs.indexOfPublicKey(h.getSignature().getPublicKey()) != vs.getPrimaryIndex(h.getNumber(), 0)) {
+                logger.debug("Invalid header #{} from cid = {}", h.getNumber(), channel.getId());
+                break;
+            }
+            verified.add(h);
+            number = h.getNumber();
+            prevHash = h.getHash();
+        }
+
+        synchronized (lock) {
+            if (verified.isEmpty() || from != headerTip + 1) {
+                return;
+            }
+            for (BlockHeader h : verified) {
+                headers.put(h.getNumber(), h);
+            }
+            headerTip = number;
+            headerTipHash = prevHash;
+        }
+        logger.info("Verified headers up to #{}, estimated time left = {} s", number, getEstimatedTime() / 1000);
+    }
+
+    /**
+     * Restarts the header chain from the latest block.
+     */
+    void resetHeaders() {
+        Block latest = chain.getLatestBlock();
+        headers.clear();
+        headerTip = latest.getNumber();
+        headerTipHash = latest.getHash();
+        headerChannel = -1;
+        headerWait = -1;
+    }
+
+    /**
+     * Drops the header chain if the next block matching it does not arrive within
+     * {@link #MAX_HEADER_WAIT}.
+     */
+    void checkHeaderWait(long latest, long now) {
+        synchronized (lock) {
+            if (headerWait != latest + 1 || !headers.containsKey(latest + 1) || toProcess.contains(latest + 1)
+                    || toApply.containsKey(latest + 1)) {
+                headerWait = latest + 1;
+                headerWaitSince = now;
+            } else if (now - headerWaitSince > MAX_HEADER_WAIT) {
+                logger.debug("Block #{} matching the header chain did not arrive", latest + 1);
+                resetHeaders();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of the last verified header.
+     * 
+     * @return
+     */
+    long getHeaderTip() {
+        synchronized (lock) {
+            return headerTip;
+        }
+    }
+
+    /**
+     * Requests the next headers from a random peer, one request at a time, up
+     * to the end of the term.
+     */
+    private void requestHeaders(List<Channel> channels, long termEnd, long now) {
+        long from = headerTip + 1;
+        if ((headerChannel != -1 && now - headerRequested < HEADER_TIMEOUT) || from >= target || from > termEnd) {
+            return;
+        }
+
+        List<Channel> candidates = new ArrayList<>();
+        for (Channel c : channels) {
+            if (c.getRemotePeer().getP2pVersion() >= HEADER_FIRST_VERSION
+                    && c.getRemotePeer().getLatestBlockNumber() >= from) {
+                candidates.add(c);
+            }
+        }
+        if (candidates.isEmpty()) {
+            return;
+        }
+
+        Channel c = candidates.get((int) (Math.random() * candidates.size()));
+        int count = (int) Math.min(GetBlockHeadersMessage.MAX_COUNT, Math.min(target, termEnd + 1) - from);
+        logger.trace("Request headers #{} - #{} from cid = {}", from, from + count - 1, c.getId());
+        c.getMessageQueue().sendMessage(new GetBlockHeadersMessage(from, count));
+        headerChannel = c.getId();
+        headerRequested = now;
+    }
+
+    /**
+     * Returns the estimated time to finish the sync, based on the progress so
+     * far or, before any block is applied, on the download rate.
+     * 
+     * @return the time in milliseconds, or -1 if unknown
+     */
+    public long getEstimatedTime() {
+        long latest = chain.getLatestBlockNumber();
+        long elapsed = System.currentTimeMillis() - startTime;
+
+        double rate = 0;
+        synchronized (lock) {
+            if (latest > startNumber && elapsed > 0) {
+                rate = (latest - startNumber) * 1000.0 / elapsed;
+            } else {
+                for (PeerWindow w : windows.values()) {
+                    rate += w.getRate();
+                }
+            }
+        }
+
+        return rate > 0 ? (long) ((target - 1 - latest) * 1000 / rate) : -1;
+    }
+
     private void download() {
-        List<Channel> channels = channelMgr.getIdleChannels();
-        Collections.shuffle(channels);
-        logger.trace("Idle peers = {}", channels.size());
+        List<Channel> channels = channelMgr.getActiveChannels();
+        long now = System.currentTimeMillis();
 
         synchronized (lock) {
-            // filter all expired tasks
-            boolean hasExpired = false;
-            long now = System.currentTimeMillis();
-            Iterator<Entry<Long, Long>> itr = toComplete.entrySet().iterator();
+            // [1] release the requests of disconnected, slow or unresponsive peers
+            Map<Long, Channel> active = new HashMap<>();
+            for (Channel c : channels) {
+                active.put(c.getId(), c);
+                windows.computeIfAbsent(c.getId(), k -> new PeerWindow(now));
+            }
+            double median = getMedianLatency();
+            Iterator<Entry<Long, PeerWindow>> itr = windows.entrySet().iterator();
             while (itr.hasNext()) {
-                Entry<Long, Long> entry = itr.next();
+                Entry<Long, PeerWindow> e = itr.next();
+                PeerWindow w = e.getValue();
+                w.tick(now);
 
-                if (entry.getValue() + MAX_DOWNLOAD_TIME < now) {
-                    logger.debug("Downloading of block #{} has expired", entry.getKey());
-                    toDownload.add(entry.getKey());
+                release(w.expire(now, MAX_DOWNLOAD_TIME));
+                if (!active.containsKey(e.getKey())) {
+                    release(w.drain());
                     itr.remove();
-                    hasExpired = true;
+                } else if (isSlow(w, median) && w.getOutstanding() > 1) {
+                    logger.debug("Slow peer during sync: cid = {}, latency = {} ms", e.getKey(), w.getLatency());
+                    release(w.drain());
                 }
             }
 
-            // quit if too many pending blocks
-            if (!hasExpired && toProcess.size() > MAX_PENDING_BLOCKS) {
-                return;
+            // [2] fetch headers first, if any peer can serve them; bodies are only
+            // requested up to the verified header tip then, unless the header chain
+            // reached the end of the term
+            long latest = chain.getLatestBlockNumber();
+            long termEnd = chain.getValidatorSet().getNumber() + Config.VALIDATOR_TERM;
+            if (headerTip < latest) {
+                resetHeaders();
             }
-
-            for (int i = 0; i + BLOCK_REQUEST_REDUNDANCY <= channels.size(); i += BLOCK_REQUEST_REDUNDANCY) {
-                // quit if no more tasks or two many unfinished jobs
-                if (toDownload.isEmpty() || toComplete.size() > MAX_UNFINISHED_JOBS) {
-                    break;
+            boolean headerFirst = false;
+            for (Channel c : channels) {
+                headerFirst |= c.getRemotePeer().getP2pVersion() >= HEADER_FIRST_VERSION
+                        && c.getRemotePeer().getLatestBlockNumber() > headerTip;
+            }
+            if (headerFirst) {
+                requestHeaders(channels, termEnd, now);
+            }
+            long limit = headerFirst && headerTip < termEnd ? headerTip : Long.MAX_VALUE;
+            checkHeaderWait(latest, now);
+
+            // [3] assign new requests, faster peers first; slow peers get one request
+            // at a time, to keep measuring them
+            List<Channel> peers = new ArrayList<>(active.values());
+            Collections.shuffle(peers);
+            peers.sort((c1, c2) -> Double.compare(windows.get(c2.getId()).getRate(),
+                    windows.get(c1.getId()).getRate()));
+            for (Channel c : peers) {
+                PeerWindow w = windows.get(c.getId());
+                long peerLatest = c.getRemotePeer().getLatestBlockNumber();
+                boolean slow = isSlow(w, median);
+                boolean range = c.getRemotePeer().getP2pVersion() >= RANGE_REQUEST_VERSION;
+
+                List<Long> run = new ArrayList<>();
+                while (w.available() > 0 && !(slow && w.getOutstanding() > 0) && !toDownload.isEmpty()
+                        && toComplete.size() < MAX_PENDING_BLOCKS && !toProcess.isFull()
+                        && toDownload.first() <= Math.min(peerLatest, limit)) {
+                    long task = toDownload.pollFirst();
+                    if (range) {
+                        if (!run.isEmpty() && (task != run.get(run.size() - 1) + 1
+                                || run.size() == GetBlocksMessage.MAX_COUNT)) {
+                            requestRange(c, run);
+                            run.clear();
+                        }
+                        run.add(task);
+                        w.onRequest(task, now);
+                    } else {
+                        request(c, w, task, now);
+                    }
+                    toComplete.put(task, now);
+                }
+                if (!run.isEmpty()) {
+                    requestRange(c, run);
                 }
+            }
 
-                Long task = toDownload.first();
-                boolean requested = false;
-                for (int j = 0; j < BLOCK_REQUEST_REDUNDANCY; j++) {
-                    Channel c = channels.get(i + j);
-                    if (c.getRemotePeer().getLatestBlockNumber() >= task) {
-                        logger.debug("Request block #{} from cid = {}", task, c.getId());
-                        c.getMessageQueue().sendMessage(new GetBlockMessage(task));
-                        requested = true;
+            // [4] steal the next needed block from a slow peer
+            long next = chain.getLatestBlockNumber() + 1;
+            stolen.removeIf(n -> n < next);
+            Long requested = toComplete.get(next);
+            if (requested != null && !stolen.contains(next)
+                    && now - requested > Math.max(MIN_STEAL_TIME, 2 * getOwnerLatency(next))) {
+                for (Channel c : peers) {
+                    PeerWindow w = windows.get(c.getId());
+                    if (!w.isOutstanding(next) && !isSlow(w, median)
+                            && c.getRemotePeer().getLatestBlockNumber() >= next) {
+                        logger.debug("Re-request block #{} from cid = {}", next, c.getId());
+                        request(c, w, next, now);
+                        stolen.add(next);
+                        break;
                     }
                 }
+            }
+        }
+    }
 
-                if (requested) {
-                    toDownload.remove(task);
-                    toComplete.put(task, System.currentTimeMillis());
-                }
+    /**
+     * Sends a block request.
+     */
+    private void request(Channel c, PeerWindow w, long number, long now) {
+        logger.trace("Request block #{} from cid = {}", number, c.getId());
+        c.getMessageQueue().sendMessage(new GetBlockMessage(number));
+        w.onRequest(number, now);
+    }
+
+    /**
+     * Sends a request for consecutive blocks, which are already registered in the
+     * peer window.
+     */
+    private void requestRange(Channel c, List<Long> numbers) {
+        long from = numbers.get(0);
+        logger.trace("Request blocks #{} - #{} from cid = {}", from, from + numbers.size() - 1, c.getId());
+        c.getMessageQueue().sendMessage(new GetBlocksMessage(from, numbers.size()));
+    }
+
+    /**
+     * Puts requests back to the download queue, unless already completed.
+     */
+    private void release(List<Long> numbers) {
+        for (Long n : numbers) {
+            if (toComplete.remove(n) != null) {
+                toDownload.add(n);
             }
         }
     }
 
-    private void process() {
-        long latest = chain.getLatestBlockNumber();
-        if (latest + 1 == target) {
-            stop();
-            return; // This is important because stop() only notify
+    private boolean isSlow(PeerWindow w, double median) {
+        return w.getTimeouts() >= MAX_PEER_TIMEOUTS || (median > 0 && w.getLatency() > SLOW_PEER_FACTOR * median);
+    }
+
+    private double getMedianLatency() {
+        List<Double> list = new ArrayList<>();
+        for (PeerWindow w : windows.values()) {
+            if (w.getDelivered() > 0) {
+                list.add(w.getLatency());
+            }
+        }
+        if (list.size() < 3) {
+            return 0;
         }
+        Collections.sort(list);
+        return list.get(list.size() / 2);
+    }
 
-        Block block = null;
-        synchronized (lock) {
-            Iterator<Block> iter = toProcess.iterator();
-            while (iter.hasNext()) {
-                Block b = iter.next();
-
-                if (b.getNumber() <= latest) {
-                    iter.remove();
-                } else if (b.getNumber() == latest + 1) {
-                    iter.remove();
-                    block = b;
-                    break;
-                } else {
-                    toProcess.add(b);
-                    break;
-                }
+    private double getOwnerLatency(long number) {
+        for (PeerWindow w : windows.values()) {
+            if (w.isOutstanding(number)) {
+                return w.getLatency();
             }
         }
+        return 0;
+    }
 
-        if (block != null) {
-            logger.info("{}", block);
+    /**
+     * Applies the downloaded blocks in order, as long as the next one is
+     * validated, and schedules the validation of upcoming blocks.
+     */
+    private void process() {
+        while (isRunning()) {
+            long latest = chain.getLatestBlockNumber();
+            if (latest + 1 == target) {
+                stop();
+                return; // This is important because stop() only notify
+            }
+
+            Future<Validation> next;
+            synchronized (lock) {
+                // [1] schedule the decoding and stateless validation of upcoming blocks
+                toProcess.removeUpTo(latest);
+                for (long n = latest + 1; n <= latest + VALIDATION_WINDOW; n++) {
+                    byte[] encoded = toApply.containsKey(n) ? null : toProcess.remove(n);
+                    if (encoded != null) {
+                        toApply.put(n, validators.submit(() -> validateBlock(encoded)));
+                    }
+                }
+                toApply.keySet().removeIf(n -> n <= latest);
+                headers.headMap(latest, true).clear();
+
+                // [2] pick the next block, once validated
+                next = toApply.get(latest + 1);
+                if (next == null || !next.isDone()) {
+                    return;
+                }
+                toApply.remove(latest + 1);
+            }
+
+            Validation v;
+            try {
+                v = next.get();
+            } catch (InterruptedException | ExecutionException e) {
+                logger.info("Exception in block validation", e);
+                v = new Validation(null, false, false);
+            }
 
-            if (validateApplyBlock(block)) {
+            Block block = v.block;
+            if (block != null) {
+                logger.info("{}", block);
+            }
+
+            if (v.valid && applyBlock(block, v.votesVerified)) {
                 synchronized (lock) {
                     toDownload.remove(block.getNumber());
                     toComplete.remove(block.getNumber());
@@ -289,7 +717,12 @@ public class SemuxSync implements Sync {
             } else {
                 logger.info("Invalid block");
                 synchronized (lock) {
-                    toDownload.add(block.getNumber());
+                    // a verified header leading to an invalid block discredits the header
+                    // chain
+                    if (headers.containsKey(latest + 1)) {
+                        resetHeaders();
+                    }
+                    toDownload.add(latest + 1);
                 }
 
                 // sleep a while if you received an invalid block, to avoid consuming to much
@@ -297,27 +730,89 @@ public class SemuxSync implements Sync {
                 try {
                     Thread.sleep(1000);
                 } catch (InterruptedException e) {
-                    // do nothing
+                    Thread.currentThread().interrupt();
                 }
+                return;
             }
         }
     }
 
     /**
-     * Check if a block is valid, and apply to the chain if yes.
+     * The result of the stateless validation of a block.
+     */
+    private static class Validation {
+        private final Block block;
+        private final boolean valid;
+        private final boolean votesVerified;
+
+        public Validation(Block block, boolean valid, boolean votesVerified) {
+            this.block = block;
+            this.valid = valid;
+            this.votesVerified = votesVerified;
+        }
+    }
+
+    /**
+     * Decodes a block and runs the checks which do not depend on the chain
+     * state: block format and signature, transaction signatures, Merkle roots
+     * and, if the signers are already known, the vote signatures.
      * 
-     * @param block
+     * @param encoded
      * @return
      */
-    private boolean validateApplyBlock(Block block) {
+    private Validation validateBlock(byte[] encoded) {
+        Block block = null;
         try {
-            // [1] check block integrity and signature
+            block = Block.fromBytes(encoded);
             if (!block.validate()) {
                 logger.debug("Invalid block/transaction format");
-                return false;
+                return new Validation(block, false, false);
             }
 
-            // [2] check number and prevHash
+            // the keys learned by blocks which are not applied yet are not known
+            if (!block.resolveVotes(chain.getValidatorKeys())) {
+                return new Validation(block, true, false);
+            }
+            if (!verifyVotes(block)) {
+                logger.debug("Invalid BFT vote signatures");
+                return new Validation(block, false, false);
+            }
+            return new Validation(block, true, true);
+        } catch (Exception e) {
+            logger.info("Exception in block validation", e);
+            return new Validation(block, false, false);
+        }
+    }
+
+    /**
+     * Verifies the signatures of the votes of a block.
+     * 
+     * @param block
+     * @return
+     */
+    static boolean verifyVotes(Block block) {
+        Vote vote = new Vote(VoteType.PRECOMMIT, Vote.VALUE_APPROVE, block.getNumber(), block.getView(),
+                block.getHash());
+        byte[] encoded = vote.getEncoded();
+        BatchVerifier verifier = new BatchVerifier();
+        for (Signature sig : block.getVotes()) {
+            verifier.add(encoded, sig);
+        }
+        return verifier.verify();
+    }
+
+    /**
+     * Checks a block against the chain state and applies it, after
+     * {@link #validateBlock(byte[])}.
+     * 
+     * @param block
+     * @param votesVerified
+     *            whether the vote signatures have been verified
+     * @return
+     */
+    private boolean applyBlock(Block block, boolean votesVerified) {
+        try {
+            // [1] check number and prevHash
             Block latest = chain.getLatestBlock();
             if (block.getNumber() != latest.getNumber() + 1 || !Arrays.equals(block.getPrevHash(), latest.getHash())) {
                 logger.debug("Invalid block number or prevHash");
@@ -327,28 +822,29 @@ public class SemuxSync implements Sync {
             AccountState as = chain.getAccountState().track();
             DelegateState ds = chain.getDelegateState().track();
 
-            // [3] check votes
-            List<String> validators = chain.getValidators();
-            int twoThirds = (int) Math.ceil(validators.size() * 2.0 / 3.0);
+            // [2] check votes
+            if (!block.resolveVotes(chain.getValidatorKeys())) {
+                logger.debug("Invalid BFT votes: unknown signers");
+                return false;
+            }
+            ValidatorSet validators = chain.getValidatorSet();
+            int twoThirds = validators.getTwoThirds();
             if (block.getVotes().size() < twoThirds) {
                 logger.debug("Invalid BFT votes: {} < {}", block.getVotes().size(), twoThirds);
                 return false;
             }
-
-            Set<String> set = new HashSet<>(validators);
-            Vote vote = new Vote(VoteType.PRECOMMIT, Vote.VALUE_APPROVE, block.getNumber(), block.getView(),
-                    block.getHash());
-            byte[] encoded = vote.getEncoded();
             for (Signature sig : block.getVotes()) {
-                String addr = Hex.encode(Hash.h160(sig.getPublicKey()));
-
-                if (!set.contains(addr) || !EdDSA.verify(encoded, sig)) {
-                    logger.debug("Invalid BFT vote: signer = {}", addr);
+                if (validators.indexOfPublicKey(sig.getPublicKey()) == -1) {
+                    logger.debug("Invalid BFT vote: signer = {}", Hex.encode(Hash.h160(sig.getPublicKey())));
                     return false;
                 }
             }
+            if (!votesVerified && !verifyVotes(block)) {
+                logger.debug("Invalid BFT vote signatures");
+                return false;
+            }
 
-            // [4] check transactions
+            // [3] check transactions
             TransactionExecutor exec = new TransactionExecutor();
             List<TransactionResult> results = exec.execute(block.getTransactions(), as, ds);
             for (int i = 0; i < results.size(); i++) {
@@ -359,7 +855,7 @@ public class SemuxSync implements Sync {
                 }
             }
 
-            // [5] apply block reward and tx fees
+            // [4] apply block reward and tx fees
             long reward = Config.getBlockReward(block.getNumber());
             for (Transaction tx : block.getTransactions()) {
                 reward += tx.getFee();
@@ -369,18 +865,18 @@ public class SemuxSync implements Sync {
                 acc.setBalance(acc.getBalance() + reward);
             }
 
-            // [6] commit the updates
+            // [5] commit the updates
             as.commit();
             ds.commit();
 
             WriteLock lock = Config.STATE_LOCK.writeLock();
             lock.lock();
             try {
-                // [7] flush state to disk
+                // [6] flush state to disk
                 chain.getAccountState().commit();
                 chain.getDelegateState().commit();
 
-                // [8] add block to chain
+                // [7] add block to chain
                 chain.addBlock(block);
             } finally {
                 lock.unlock();
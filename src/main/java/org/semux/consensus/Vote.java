@@ -6,9 +6,19 @@
  */
 package org.semux.consensus;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.collections4.map.LRUMap;
+import org.semux.crypto.BatchVerifier;
 import org.semux.crypto.EdDSA;
 import org.semux.crypto.EdDSA.Signature;
 import org.semux.crypto.Hash;
+import org.semux.utils.ByteArray;
+import org.semux.utils.Bytes;
 import org.semux.utils.SimpleDecoder;
 import org.semux.utils.SimpleEncoder;
 
@@ -16,6 +26,15 @@ public class Vote {
     public static final boolean VALUE_APPROVE = true;
     public static final boolean VALUE_REJECT = false;
 
+    private static final int VERIFIED_CACHE_SIZE = 16 * 1024;
+
+    /**
+     * Recently verified votes, keyed by the hash of encoding and signature. The
+     * same votes are relayed by many peers and repeated in proofs.
+     */
+    private static final Map<ByteArray, Boolean> verifiedCache = Collections
+            .synchronizedMap(new LRUMap<>(VERIFIED_CACHE_SIZE));
+
     private VoteType type;
     private boolean value;
 
@@ -26,6 +45,8 @@ public class Vote {
     private byte[] encoded;
     private Signature signature;
 
+    private volatile boolean verified;
+
     public Vote(VoteType type, boolean value, long height, int view, byte[] blockHash) {
         this.type = type;
         this.value = value;
@@ -71,22 +92,86 @@ public class Vote {
      */
     public Vote sign(EdDSA key) {
         this.signature = key.sign(encoded);
+        this.verified = false;
         return this;
     }
 
     /**
-     * validate the vote format and signature.
+     * validate the vote format and signature. The signature is verified only once
+     * per vote, and the result is remembered.
      * 
      * @return
      */
     public boolean validate() {
+        if (!verified) {
+            verified = validateFormat() && verifySignature();
+        }
+
+        return verified;
+    }
+
+    /**
+     * Validate a collection of votes, with the unverified signatures checked in
+     * one batch. If the batch fails, every vote is validated individually, so that
+     * the invalid ones can be told apart.
+     * 
+     * @param votes
+     */
+    public static void validateAll(Collection<Vote> votes) {
+        List<Vote> list = new ArrayList<>();
+        BatchVerifier verifier = new BatchVerifier();
+        for (Vote v : votes) {
+            if (!v.verified && v.validateFormat() && !verifiedCache.containsKey(v.getCacheKey())) {
+                list.add(v);
+                verifier.add(v.encoded, v.signature);
+            }
+        }
+
+        if (verifier.verify()) {
+            for (Vote v : list) {
+                verifiedCache.put(v.getCacheKey(), Boolean.TRUE);
+                v.verified = true;
+            }
+        }
+        for (Vote v : votes) {
+            v.validate();
+        }
+    }
+
+    /**
+     * Returns whether the signature of this vote has been verified.
+     * 
+     * @return
+     */
+    public boolean isVerified() {
+        return verified;
+    }
+
+    private boolean validateFormat() {
         return type != null //
                 && (value == VALUE_APPROVE || value == VALUE_REJECT) //
                 && height > 0 //
                 && view >= 0 //
                 && blockHash != null && blockHash.length == 32 //
                 && encoded != null //
-                && signature != null && EdDSA.verify(encoded, signature);
+                && signature != null;
+    }
+
+    private ByteArray getCacheKey() {
+        return ByteArray.of(Hash.h256(Bytes.merge(encoded, signature.toBytes())));
+    }
+
+    private boolean verifySignature() {
+        ByteArray key = getCacheKey();
+        if (verifiedCache.containsKey(key)) {
+            return true;
+        }
+
+        boolean valid = EdDSA.verify(encoded, signature);
+        if (valid) {
+            verifiedCache.put(key, Boolean.TRUE);
+        }
+        return valid;
     }
 
     public VoteType getType() {
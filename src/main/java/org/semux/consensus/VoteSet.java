@@ -9,14 +9,10 @@ package org.semux.consensus;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
-import org.semux.crypto.EdDSA.Signature;
-import org.semux.crypto.Hash;
-import org.semux.crypto.Hex;
+import org.semux.core.ValidatorSet;
 import org.semux.utils.ByteArray;
 
 /**
@@ -29,13 +25,13 @@ import org.semux.utils.ByteArray;
  */
 public class VoteSet {
 
-    private Map<ByteArray, Map<String, Vote>> approvals;
-    private Map<String, Vote> rejections;
+    private Map<ByteArray, Map<Integer, Vote>> approvals;
+    private Map<Integer, Vote> rejections;
     private VoteType type;
     private long height;
     private int view;
 
-    private Set<String> validators;
+    private ValidatorSet validators;
     private int twoThirds;
 
     /**
@@ -46,45 +42,54 @@ public class VoteSet {
      * @param validators
      */
     public VoteSet(VoteType type, long height, int view, List<String> validators) {
+        this(type, height, view, new ValidatorSet(validators, height - 1));
+    }
+
+    /**
+     * Create a vote set.
+     * 
+     * @param height
+     * @param view
+     * @param validators
+     */
+    public VoteSet(VoteType type, long height, int view, ValidatorSet validators) {
         this.approvals = new HashMap<>();
         this.rejections = new HashMap<>();
         this.type = type;
         this.height = height;
         this.view = view;
 
-        this.validators = new HashSet<>(validators);
-        this.twoThirds = (int) Math.ceil(validators.size() * 2.0 / 3.0);
+        this.validators = validators;
+        this.twoThirds = validators.getTwoThirds();
     }
 
     /**
      * Add vote to this set if the height and view match.
      * 
-     * NOTE: signature is not verified, use {@link Vote#validate()} instead.
+     * NOTE: signature is verified by {@link Vote#validate()}, at most once per vote.
      * 
      * @param vote
      * @return
      */
     public boolean addVote(Vote vote) {
-        Signature sig = vote.getSignature();
-        String peerId;
+        int index;
 
         if (vote.getType() == type && //
                 vote.getHeight() == height //
                 && vote.getView() == view //
                 && vote.getBlockHash() != null //
                 && vote.validate() //
-                && (peerId = Hex.encode(Hash.h160(sig.getPublicKey()))) != null //
-                && validators.contains(peerId)) {
+                && (index = validators.indexOfPublicKey(vote.getSignature().getPublicKey())) != -1) {
             if (vote.getValue() == Vote.VALUE_APPROVE) {
                 ByteArray key = ByteArray.of(vote.getBlockHash());
-                Map<String, Vote> map = approvals.get(key);
+                Map<Integer, Vote> map = approvals.get(key);
                 if (map == null) {
                     map = new HashMap<>();
                     approvals.put(key, map);
                 }
-                return map.put(peerId, vote) == null;
+                return map.put(index, vote) == null;
             } else {
-                return rejections.put(peerId, vote) == null;
+                return rejections.put(index, vote) == null;
             }
         }
 
@@ -92,11 +97,13 @@ public class VoteSet {
     }
 
     /**
-     * Add votes to this set, by iteratively calling {@link #addVote(Vote)}.
+     * Add votes to this set, by iteratively calling {@link #addVote(Vote)}. The
+     * signatures are verified in batch beforehand.
      * 
      * @param votes
      */
     public void addVotes(Collection<Vote> votes) {
+        Vote.validateAll(votes);
         for (Vote v : votes) {
             addVote(v);
         }
@@ -118,7 +125,7 @@ public class VoteSet {
      */
     public byte[] isAnyApproved() {
         for (ByteArray k : approvals.keySet()) {
-            Map<String, Vote> v = approvals.get(k);
+            Map<Integer, Vote> v = approvals.get(k);
             if (v.size() >= twoThirds) {
                 return k.getData();
             }
@@ -134,7 +141,7 @@ public class VoteSet {
      * @return
      */
     public boolean isApproved(byte[] blockHash) {
-        Map<String, Vote> v = approvals.get(ByteArray.of(blockHash));
+        Map<Integer, Vote> v = approvals.get(ByteArray.of(blockHash));
         return v != null && v.size() >= twoThirds;
     }
 
@@ -161,7 +168,7 @@ public class VoteSet {
      * @return
      */
     public List<Vote> getApprovals() {
-        for (Map<String, Vote> map : approvals.values()) {
+        for (Map<Integer, Vote> map : approvals.values()) {
             if (map.size() >= twoThirds) {
                 return new ArrayList<>(map.values());
             }
@@ -200,7 +207,7 @@ public class VoteSet {
     @Override
     public String toString() {
         int count = 0;
-        for (Map<String, Vote> map : approvals.values()) {
+        for (Map<Integer, Vote> map : approvals.values()) {
             count = Math.max(count, map.size());
         }
         return "[" + count + ", " + rejections.size() + "]";
@@ -9,14 +9,9 @@ package org.semux.core;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.lang3.tuple.Pair;
+import org.semux.crypto.BatchVerifier;
 import org.semux.crypto.EdDSA.Signature;
 import org.semux.crypto.Hash;
 import org.semux.crypto.Hex;
@@ -30,14 +25,10 @@ import org.semux.utils.SimpleEncoder;
  */
 public class Block implements Comparable<Block> {
 
-    private static final ThreadFactory factory = new ThreadFactory() {
-        AtomicInteger cnt = new AtomicInteger(0);
-
-        @Override
-        public Thread newThread(Runnable r) {
-            return new Thread(r, "block-validator-" + cnt.getAndIncrement());
-        }
-    };
+    /**
+     * Vote count which marks votes encoded as a {@link CommitCertificate}.
+     */
+    private static final int COMPACT_VOTES = -1;
 
     /**
      * The block header.
@@ -60,6 +51,12 @@ public class Block implements Comparable<Block> {
     private int view;
     private List<Signature> votes;
 
+    /**
+     * The compact encoding of the votes, if they are not resolved yet. See
+     * {@link CommitCertificate}.
+     */
+    private byte[] certificate;
+
     // =========================
     // Auxiliary data
     // =========================
@@ -132,28 +129,65 @@ public class Block implements Comparable<Block> {
         this.encodedWithoutBFT = enc.toBytes();
     }
 
+    /**
+     * Create a new block from pre-encoded transactions and results, with no BFT
+     * information. See {@link BlockTemplate}.
+     * 
+     * @param header
+     *            a signed block header
+     * @param transactions
+     *            list of transactions
+     * @param results
+     *            list of transaction results
+     * @param encodedTransactions
+     *            the encoded transactions, excluding the count
+     * @param encodedResults
+     *            the encoded results, excluding the count
+     * @param indexes
+     *            transaction indexes, relative to the encoded transactions
+     */
+    protected Block(BlockHeader header, List<Transaction> transactions, List<TransactionResult> results,
+            byte[] encodedTransactions, byte[] encodedResults, List<Pair<Integer, Integer>> indexes) {
+        this.header = header;
+
+        this.transactions = transactions;
+        this.results = results;
+
+        this.view = 0;
+        this.votes = new ArrayList<>();
+
+        SimpleEncoder enc = new SimpleEncoder();
+        enc.writeBytes(header.toBytes());
+        enc.writeInt(transactions.size());
+        int offset = enc.getWriteIndex();
+        enc.writeRaw(encodedTransactions);
+        enc.writeInt(results.size());
+        enc.writeRaw(encodedResults);
+        this.encodedWithoutBFT = enc.toBytes();
+
+        for (Pair<Integer, Integer> idx : indexes) {
+            this.indexes.add(Pair.of(offset + idx.getLeft(), offset + idx.getRight()));
+        }
+    }
+
     /**
      * Validate block format and signature, and also validate the contained
-     * transactions by calling {@link Transaction#validate()}.
+     * transactions, with the transaction signatures verified in batch.
      *
-     * @param nThreads
      * @return true if valid, otherwise false
      */
-    public boolean validate(int nThreads) {
+    public boolean validate() {
         if (header != null && header.validate()) {
             // validate transactions
-            ExecutorService exec = Executors.newFixedThreadPool(nThreads, factory);
-            try {
-                List<Future<Boolean>> list = exec.invokeAll(transactions);
-                for (Future<Boolean> f : list) {
-                    if (!f.get()) {
-                        return false;
-                    }
+            BatchVerifier verifier = new BatchVerifier();
+            for (Transaction tx : transactions) {
+                if (!tx.validateFormat()) {
+                    return false;
                 }
-            } catch (InterruptedException | ExecutionException e) {
+                verifier.add(tx.getHash(), tx.getSignature());
+            }
+            if (!verifier.verify()) {
                 return false;
-            } finally {
-                exec.shutdownNow();
             }
 
             // validate transactions root
@@ -175,17 +209,6 @@ public class Block implements Comparable<Block> {
         return false;
     }
 
-    /**
-     * Validate block format and signature, along with transaction validation, using
-     * half the available CPU cores.
-     * 
-     * @return
-     */
-    public boolean validate() {
-        int cores = Runtime.getRuntime().availableProcessors();
-        return validate(cores > 2 ? cores / 2 : 1);
-    }
-
     /**
      * Get a shallow copy of the block header.
      * 
@@ -232,7 +255,8 @@ public class Block implements Comparable<Block> {
     }
 
     /**
-     * Get a shallow copy of the votes.
+     * Get a shallow copy of the votes. The list is empty if the votes have not
+     * been resolved, see {@link #resolveVotes(ValidatorKeys)}.
      * 
      * @return
      */
@@ -247,6 +271,26 @@ public class Block implements Comparable<Block> {
      */
     public void setVotes(List<Signature> votes) {
         this.votes = votes;
+        this.certificate = null;
+    }
+
+    /**
+     * Resolve the public keys of compactly encoded votes.
+     * 
+     * @param keys
+     *            the known validator keys
+     * @return true if the votes are resolved, otherwise false
+     */
+    public boolean resolveVotes(ValidatorKeys keys) {
+        if (certificate != null) {
+            List<Signature> list = CommitCertificate.decode(certificate, keys, getNumber());
+            if (list == null) {
+                return false;
+            }
+            setVotes(list);
+        }
+
+        return true;
     }
 
     /**
@@ -310,14 +354,52 @@ public class Block implements Comparable<Block> {
     public byte[] toBytes() {
         SimpleEncoder enc = new SimpleEncoder(encodedWithoutBFT);
         enc.writeInt(view);
-        enc.writeInt(votes.size());
-        for (Signature vote : votes) {
-            enc.writeBytes(vote.toBytes());
+        if (certificate != null) {
+            enc.writeInt(COMPACT_VOTES);
+            enc.writeBytes(certificate);
+        } else {
+            enc.writeInt(votes.size());
+            for (Signature vote : votes) {
+                enc.writeBytes(vote.toBytes());
+            }
         }
 
         return enc.toBytes();
     }
 
+    /**
+     * Convert into a byte array, with the votes encoded as a
+     * {@link CommitCertificate}.
+     * 
+     * @param keys
+     *            the known validator keys
+     * @return
+     */
+    public byte[] toBytes(ValidatorKeys keys) {
+        if (certificate != null) {
+            return toBytes();
+        }
+
+        SimpleEncoder enc = new SimpleEncoder(encodedWithoutBFT);
+        enc.writeInt(view);
+        enc.writeInt(COMPACT_VOTES);
+        enc.writeBytes(CommitCertificate.encode(votes, keys, getNumber()));
+
+        return enc.toBytes();
+    }
+
+    /**
+     * Decodes only the header of an encoded block.
+     * 
+     * @param bytes
+     *            the encoded block, see {@link #toBytes()}
+     * @return
+     */
+    public static BlockHeader headerFromBytes(byte[] bytes) {
+        SimpleDecoder dec = new SimpleDecoder(bytes);
+        return BlockHeader.fromBytes(dec.readBytes());
+    }
+
     public static Block fromBytes(byte[] bytes) {
         SimpleDecoder dec = new SimpleDecoder(bytes);
         BlockHeader header = BlockHeader.fromBytes(dec.readBytes());
@@ -337,6 +419,11 @@ public class Block implements Comparable<Block> {
         int view = dec.readInt();
         List<Signature> votes = new ArrayList<>();
         n = dec.readInt();
+        if (n == COMPACT_VOTES) {
+            Block block = new Block(header, transactions, results, view, votes);
+            block.certificate = dec.readBytes();
+            return block;
+        }
         for (int i = 0; i < n; i++) {
             votes.add(Signature.fromBytes(dec.readBytes()));
         }
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2017 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.semux.crypto.Hash;
+import org.semux.utils.IncrementalMerkleTree;
+import org.semux.utils.SimpleEncoder;
+
+/**
+ * The candidate content of the next block. Transactions are appended as they
+ * enter the pool, and their encodings and Merkle roots are maintained
+ * incrementally, so creating a block only requires a signed header.
+ *
+ * <p>
+ * This class is not thread-safe.
+ * </p>
+ */
+public class BlockTemplate {
+
+    private int maxSize;
+
+    private List<Transaction> transactions = new ArrayList<>();
+    private List<TransactionResult> results = new ArrayList<>();
+
+    private SimpleEncoder encodedTransactions = new SimpleEncoder();
+    private SimpleEncoder encodedResults = new SimpleEncoder();
+    private List<Pair<Integer, Integer>> indexes = new ArrayList<>();
+
+    private IncrementalMerkleTree transactionsTree = new IncrementalMerkleTree();
+    private IncrementalMerkleTree resultsTree = new IncrementalMerkleTree();
+
+    /**
+     * Create an empty block template.
+     *
+     * @param maxSize
+     *            the maximum number of transactions
+     */
+    public BlockTemplate(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Appends a transaction and its result, if the template is not full.
+     *
+     * @param tx
+     * @param result
+     * @return true if the transaction is added, otherwise false
+     */
+    public boolean add(Transaction tx, TransactionResult result) {
+        if (transactions.size() >= maxSize) {
+            return false;
+        }
+
+        transactions.add(tx);
+        results.add(result);
+
+        int idx = encodedTransactions.getWriteIndex() + 4 /* length code */;
+        byte[] bytes = tx.toBytes();
+        encodedTransactions.writeBytes(bytes);
+        indexes.add(Pair.of(idx, idx + bytes.length));
+
+        byte[] res = result.toBytes();
+        encodedResults.writeBytes(res);
+
+        transactionsTree.add(tx.getHash());
+        resultsTree.add(Hash.h256(res));
+
+        return true;
+    }
+
+    /**
+     * Removes all transactions.
+     */
+    public void clear() {
+        transactions = new ArrayList<>();
+        results = new ArrayList<>();
+        encodedTransactions = new SimpleEncoder();
+        encodedResults = new SimpleEncoder();
+        indexes = new ArrayList<>();
+        transactionsTree.clear();
+        resultsTree.clear();
+    }
+
+    /**
+     * Returns the number of transactions.
+     *
+     * @return
+     */
+    public int size() {
+        return transactions.size();
+    }
+
+    /**
+     * Returns the Merkle root of the transactions.
+     *
+     * @return
+     */
+    public byte[] getTransactionsRoot() {
+        return transactionsTree.getRootHash();
+    }
+
+    /**
+     * Returns the Merkle root of the transaction results.
+     *
+     * @return
+     */
+    public byte[] getResultsRoot() {
+        return resultsTree.getRootHash();
+    }
+
+    /**
+     * Creates a block with the transactions in this template.
+     *
+     * @param header
+     *            a signed block header, with the roots of this template
+     * @return
+     */
+    public Block createBlock(BlockHeader header) {
+        return new Block(header, new ArrayList<>(transactions), new ArrayList<>(results),
+                encodedTransactions.toBytes(), encodedResults.toBytes(), indexes);
+    }
+
+    /**
+     * Returns a copy of this template.
+     *
+     * @return
+     */
+    public BlockTemplate copy() {
+        BlockTemplate t = new BlockTemplate(maxSize);
+        t.transactions.addAll(transactions);
+        t.results.addAll(results);
+        t.encodedTransactions = new SimpleEncoder(encodedTransactions.toBytes());
+        t.encodedResults = new SimpleEncoder(encodedResults.toBytes());
+        t.indexes.addAll(indexes);
+        t.transactionsTree = new IncrementalMerkleTree(transactionsTree);
+        t.resultsTree = new IncrementalMerkleTree(resultsTree);
+        return t;
+    }
+}
@@ -65,6 +65,15 @@ public interface Blockchain {
      */
     public Block getBlock(byte[] hash);
 
+    /**
+     * Get the encoded block by number, as stored. Block votes may be in the
+     * compact form, see {@link CommitCertificate}.
+     * 
+     * @param number
+     * @return
+     */
+    public byte[] getBlockBytes(long number);
+
     /**
      * Get block header by block number.
      * 
@@ -140,6 +149,22 @@ public interface Blockchain {
      */
     public DelegateState getDelegateState();
 
+    /**
+     * Get the public keys known from the chain, which are used to encode block
+     * votes compactly.
+     * 
+     * @return
+     */
+    public ValidatorKeys getValidatorKeys();
+
+    /**
+     * Get the validator set of the current term. The same instance is returned
+     * until the next term.
+     * 
+     * @return
+     */
+    public ValidatorSet getValidatorSet();
+
     /**
      * Get the validator set based on current state.
      * 
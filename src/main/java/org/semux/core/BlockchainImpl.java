@@ -43,6 +43,8 @@ import org.slf4j.LoggerFactory;
  * ["forged", address] => [number_of_blocks_forged]
  * ["hit", address] => [number_of_turns_hit]
  * ["missed", address] => [number_of_turns_missed]
+ * ["validator_keys"] => [number_of_validator_keys]
+ * ["validator_key", index] => [block_number, public_key]
  * 
  * [block_number] => [block_hash]
  * [transaciton_hash] => [block_number, from, to]
@@ -65,6 +67,8 @@ public class BlockchainImpl implements Blockchain {
     private static byte[] FORGED = Bytes.of("forged");
     private static byte[] HIT = Bytes.of("hit");
     private static byte[] MISSED = Bytes.of("missed");
+    private static byte[] KEY_VALIDATOR_KEYS = Bytes.of("validator_keys");
+    private static byte[] VALIDATOR_KEY = Bytes.of("validator_key");
 
     private KVDB indexDB;
     private KVDB blockDB;
@@ -75,6 +79,9 @@ public class BlockchainImpl implements Blockchain {
     private Genesis genesis;
     private Block latestBlock;
 
+    private ValidatorKeys validatorKeys = new ValidatorKeys();
+    private volatile ValidatorSet validatorSet;
+
     private List<BlockchainListener> listeners = new ArrayList<>();
 
     private Map<Long, List<Premine>> periods = new HashMap<>();
@@ -119,10 +126,63 @@ public class BlockchainImpl implements Blockchain {
             delegateState.commit();
 
             updateValidators(genesis.getNumber());
+            indexDB.put(KEY_VALIDATOR_KEYS, Bytes.of(0));
 
             latestBlock = genesis;
         } else {
+            long number = getBlockHeader(hash).getNumber();
+            loadValidatorKeys(number);
             latestBlock = getBlock(hash);
+            validatorSet = new ValidatorSet(loadValidators(), number - number % Config.VALIDATOR_TERM);
+        }
+    }
+
+    /**
+     * Loads the validator keys, or rebuilds them from the stored blocks if they
+     * have not been indexed yet.
+     * 
+     * @param latest
+     *            the latest block number
+     */
+    protected void loadValidatorKeys(long latest) {
+        byte[] cnt = indexDB.get(KEY_VALIDATOR_KEYS);
+        if (cnt != null) {
+            int n = Bytes.toInt(cnt);
+            for (int i = 0; i < n; i++) {
+                SimpleDecoder dec = new SimpleDecoder(indexDB.get(Bytes.merge(VALIDATOR_KEY, Bytes.of(i))));
+                long number = dec.readLong();
+                validatorKeys.add(dec.readBytes(), number);
+            }
+        } else {
+            logger.info("Indexing validator keys, up to block #{}", latest);
+            for (long i = 1; i <= latest; i++) {
+                addValidatorKeys(getBlock(i));
+            }
+            indexDB.put(KEY_VALIDATOR_KEYS, Bytes.of(validatorKeys.size()));
+        }
+    }
+
+    /**
+     * Learns the public keys of the block producer and of new delegates.
+     * 
+     * @param block
+     */
+    protected void addValidatorKeys(Block block) {
+        addValidatorKey(block.getSignature().getPublicKey(), block.getNumber());
+        for (Transaction tx : block.getTransactions()) {
+            if (tx.getType() == TransactionType.DELEGATE) {
+                addValidatorKey(tx.getSignature().getPublicKey(), block.getNumber());
+            }
+        }
+    }
+
+    private void addValidatorKey(byte[] publicKey, long number) {
+        int index = validatorKeys.add(publicKey, number);
+        if (index != -1) {
+            SimpleEncoder enc = new SimpleEncoder();
+            enc.writeLong(number);
+            enc.writeBytes(publicKey);
+            indexDB.put(Bytes.merge(VALIDATOR_KEY, Bytes.of(index)), enc.toBytes());
         }
     }
 
@@ -177,7 +237,23 @@ public class BlockchainImpl implements Blockchain {
         }
 
         byte[] bytes = blockDB.get(hash);
-        return bytes == null ? null : Block.fromBytes(bytes);
+        if (bytes == null) {
+            return null;
+        }
+
+        Block block = Block.fromBytes(bytes);
+        block.resolveVotes(validatorKeys);
+        return block;
+    }
+
+    @Override
+    public byte[] getBlockBytes(long number) {
+        if (genesis.getNumber() == number) {
+            return genesis.toBytes();
+        }
+
+        byte[] hash = indexDB.get(Bytes.of(number));
+        return hash == null ? null : blockDB.get(hash);
     }
 
     @Override
@@ -258,7 +334,7 @@ public class BlockchainImpl implements Blockchain {
         }
 
         List<Pair<Integer, Integer>> txIndices = block.getTransacitonIndexes();
-        byte[] bytes = block.toBytes();
+        byte[] bytes = block.toBytes(validatorKeys);
 
         // [1] update block
         blockDB.put(hash, bytes);
@@ -292,8 +368,7 @@ public class BlockchainImpl implements Blockchain {
         addTransactionToAccount(tx, block.getCoinbase());
 
         // [5] update validator statistics
-        List<String> validators = getValidators();
-        String primary = Config.getPrimaryValidator(validators, number, 0);
+        String primary = validatorSet.getPrimary(number, 0);
         updateValidatorStats(block.getCoinbase(), FORGED, 1);
         if (primary.equals(Hex.encode(block.getCoinbase()))) {
             updateValidatorStats(Hex.decode(primary), HIT, 1);
@@ -301,10 +376,12 @@ public class BlockchainImpl implements Blockchain {
             updateValidatorStats(Hex.decode(primary), MISSED, 1);
         }
 
-        // [6] update validator set
+        // [6] update validator set and keys
         if (number % Config.VALIDATOR_TERM == 0) {
             updateValidators(block.getNumber());
         }
+        addValidatorKeys(block);
+        indexDB.put(KEY_VALIDATOR_KEYS, Bytes.of(validatorKeys.size()));
 
         // [7] update latest_block
         latestBlock = block;
@@ -345,8 +422,27 @@ public class BlockchainImpl implements Blockchain {
         return list;
     }
 
+    @Override
+    public ValidatorKeys getValidatorKeys() {
+        return validatorKeys;
+    }
+
+    @Override
+    public ValidatorSet getValidatorSet() {
+        return validatorSet;
+    }
+
     @Override
     public List<String> getValidators() {
+        return new ArrayList<>(validatorSet.getValidators());
+    }
+
+    /**
+     * Reads the validator list from the index DB.
+     * 
+     * @return
+     */
+    protected List<String> loadValidators() {
         List<String> validators = new ArrayList<>();
 
         byte[] v = indexDB.get(KEY_VALIDATORS);
@@ -382,6 +478,8 @@ public class BlockchainImpl implements Blockchain {
             enc.writeString(v);
         }
         indexDB.put(KEY_VALIDATORS, enc.toBytes());
+
+        validatorSet = new ValidatorSet(validators, number);
     }
 
     @Override
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2017 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import org.semux.crypto.EdDSA.Signature;
+import org.semux.utils.SimpleDecoder;
+import org.semux.utils.SimpleEncoder;
+
+/**
+ * Compact encoding of the BFT votes of a block. Signers known by
+ * {@link ValidatorKeys} are encoded as a bitmap plus the raw signatures, without
+ * public keys; other signatures are appended in full.
+ *
+ * <pre>
+ * [bitmap] [raw signatures, 64 bytes each, in bitmap order] [n] [full signature] * n
+ * </pre>
+ */
+public class CommitCertificate {
+
+    private static final int SIG_LENGTH = 64;
+
+    private CommitCertificate() {
+    }
+
+    /**
+     * Encodes the votes of a block.
+     *
+     * @param votes
+     *            the votes
+     * @param keys
+     *            the known validator keys
+     * @param number
+     *            the block number
+     * @return
+     */
+    public static byte[] encode(List<Signature> votes, ValidatorKeys keys, long number) {
+        BitSet bitmap = new BitSet();
+        Signature[] indexed = new Signature[keys.size()];
+        List<Signature> others = new ArrayList<>();
+
+        for (Signature vote : votes) {
+            int idx = keys.indexOf(vote.getPublicKey(), number);
+            if (idx != -1 && !bitmap.get(idx)) {
+                bitmap.set(idx);
+                indexed[idx] = vote;
+            } else {
+                others.add(vote);
+            }
+        }
+
+        byte[] sigs = new byte[bitmap.cardinality() * SIG_LENGTH];
+        int offset = 0;
+        for (int i = bitmap.nextSetBit(0); i >= 0; i = bitmap.nextSetBit(i + 1)) {
+            System.arraycopy(indexed[i].getSignature(), 0, sigs, offset, SIG_LENGTH);
+            offset += SIG_LENGTH;
+        }
+
+        SimpleEncoder enc = new SimpleEncoder();
+        enc.writeBytes(bitmap.toByteArray());
+        enc.writeBytes(sigs);
+        enc.writeInt(others.size());
+        for (Signature vote : others) {
+            enc.writeBytes(vote.toBytes());
+        }
+
+        return enc.toBytes();
+    }
+
+    /**
+     * Decodes the votes of a block.
+     *
+     * @param certificate
+     *            the encoded votes
+     * @param keys
+     *            the known validator keys
+     * @param number
+     *            the block number
+     * @return the votes, or null if the certificate refers to unknown keys or is
+     *         malformed
+     */
+    public static List<Signature> decode(byte[] certificate, ValidatorKeys keys, long number) {
+        SimpleDecoder dec = new SimpleDecoder(certificate);
+        BitSet bitmap = BitSet.valueOf(dec.readBytes());
+        byte[] sigs = dec.readBytes();
+        if (sigs.length != bitmap.cardinality() * SIG_LENGTH) {
+            return null;
+        }
+
+        List<Signature> votes = new ArrayList<>();
+        int offset = 0;
+        for (int i = bitmap.nextSetBit(0); i >= 0; i = bitmap.nextSetBit(i + 1)) {
+            byte[] pub = keys.get(i, number);
+            if (pub == null) {
+                return null;
+            }
+            votes.add(new Signature(Arrays.copyOfRange(sigs, offset, offset + SIG_LENGTH), pub));
+            offset += SIG_LENGTH;
+        }
+
+        int n = dec.readInt();
+        for (int i = 0; i < n; i++) {
+            Signature vote = Signature.fromBytes(dec.readBytes());
+            if (vote == null) {
+                return null;
+            }
+            votes.add(vote);
+        }
+
+        return votes;
+    }
+}
@@ -21,14 +21,16 @@ import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.commons.collections4.map.LRUMap;
 import org.apache.commons.lang3.tuple.Pair;
 import org.semux.Config;
+import org.semux.core.PendingStats.Rejection;
 import org.semux.core.state.AccountState;
 import org.semux.core.state.DelegateState;
 import org.semux.net.Channel;
 import org.semux.net.ChannelManager;
-import org.semux.net.msg.p2p.TransactionMessage;
-import org.semux.utils.ArrayUtil;
+import org.semux.net.msg.p2p.GetTransactionsMessage;
+import org.semux.net.msg.p2p.TransactionHashesMessage;
 import org.semux.utils.ByteArray;
 import org.semux.utils.Bytes;
+import org.semux.utils.RollingBloomFilter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -55,6 +57,21 @@ public class PendingManager implements Runnable, BlockchainListener {
 
     private static final int CACHE_SIZE = 128 * 1024;
 
+    private static final double SEEN_FALSE_POSITIVE_RATE = 1e-6;
+
+    private static final long SEEN_WINDOW = 10 * 60 * 1000; // 10 minutes
+
+    private static final int MAX_HASHES_PER_MESSAGE = TransactionHashesMessage.MAX_HASHES;
+
+    /**
+     * The first P2P version which relays transactions by hash announcements.
+     */
+    private static final short TX_ANNOUNCE_VERSION = 5;
+
+    private static final long ANNOUNCE_INTERVAL = 100; // 100ms
+
+    private static final long REQUEST_TIMEOUT = 5 * 1000; // 5 seconds
+
     private Blockchain chain;
     private ChannelManager channelMgr;
     private AccountState pendingAS;
@@ -69,17 +86,44 @@ public class PendingManager implements Runnable, BlockchainListener {
      * Transaction pool.
      */
     private Map<ByteArray, Transaction> poolMap = new HashMap<>();
+    private Map<ByteArray, Transaction> hashIndex = new HashMap<>();
     private List<Transaction> transactions = new ArrayList<>();
     private List<TransactionResult> results = new ArrayList<>();
 
+    /**
+     * Candidate content of the next block, kept up to date with the pool.
+     */
+    private BlockTemplate template = new BlockTemplate(Config.MAX_BLOCK_SIZE);
+
     /**
      * Transaction cache. NOTE: make sure access to the LRUMap<> are synchronized.
      */
     private Map<ByteArray, Transaction> cache = new LRUMap<>(CACHE_SIZE);
-    private Map<ByteArray, Object> processedTxs = new LRUMap<>(CACHE_SIZE);
+
+    /**
+     * Hashes of the recently seen transactions, either queued, accepted or
+     * rejected. This filter is thread-safe.
+     */
+    private RollingBloomFilter seenTxs = new RollingBloomFilter(CACHE_SIZE, SEEN_FALSE_POSITIVE_RATE, SEEN_WINDOW);
+
+    /**
+     * Transactions requested from peers, with the time of request.
+     */
+    private Map<ByteArray, Long> requestedTxs = new LRUMap<>(CACHE_SIZE);
+
+    /**
+     * Newly accepted transactions, to be announced to peers.
+     */
+    private List<Transaction> announcements = new ArrayList<>();
+
+    /**
+     * Statistics of the queue and pool, updated incrementally.
+     */
+    private PendingStats stats = new PendingStats();
 
     private ScheduledExecutorService exec;
     private ScheduledFuture<?> validateFuture;
+    private ScheduledFuture<?> announceFuture;
 
     private volatile boolean isRunning;
 
@@ -107,6 +151,9 @@ public class PendingManager implements Runnable, BlockchainListener {
              */
             long rate = Config.NET_MAX_QUEUE_RATE * 3 / 2;
             this.validateFuture = exec.scheduleAtFixedRate(this, 0, rate, TimeUnit.MILLISECONDS);
+            this.announceFuture = exec.scheduleAtFixedRate(() -> {
+                announce();
+            }, ANNOUNCE_INTERVAL, ANNOUNCE_INTERVAL, TimeUnit.MILLISECONDS);
 
             this.chain.addListener(this);
 
@@ -121,6 +168,7 @@ public class PendingManager implements Runnable, BlockchainListener {
     public synchronized void stop() {
         if (isRunning) {
             validateFuture.cancel(true);
+            announceFuture.cancel(true);
 
             logger.debug("Pending manager stopped");
             isRunning = false;
@@ -152,7 +200,35 @@ public class PendingManager implements Runnable, BlockchainListener {
      * @param tx
      */
     public synchronized void addTransaction(Transaction tx) {
-        queue.add(tx);
+        if (seenTxs.put(tx.getHash())) {
+            queue.add(tx);
+        } else {
+            stats.onRejected(Rejection.DUPLICATE);
+        }
+    }
+
+    /**
+     * Adds a batch of transactions to the queue, which will be validated later by
+     * the background worker.
+     * 
+     * @param txs
+     */
+    public synchronized void addTransactions(List<Transaction> txs) {
+        for (Transaction tx : txs) {
+            addTransaction(tx);
+        }
+    }
+
+    /**
+     * Returns whether a transaction has been seen recently. This method is cheap
+     * and thread-safe, and is meant to drop duplicates before decoding them.
+     * 
+     * @param hash
+     *            transaction hash
+     * @return false if the transaction has definitely not been seen, otherwise true
+     */
+    public boolean isSeen(byte[] hash) {
+        return seenTxs.mightContain(hash);
     }
 
     /**
@@ -163,6 +239,7 @@ public class PendingManager implements Runnable, BlockchainListener {
      *         false
      */
     public synchronized boolean addTransactionSync(Transaction tx) {
+        seenTxs.put(tx.getHash());
         return processTransaction(tx, true) >= 1;
     }
 
@@ -216,6 +293,125 @@ public class PendingManager implements Runnable, BlockchainListener {
         return getTransactionsAndResults(-1).getLeft();
     }
 
+    /**
+     * Returns a snapshot of the block template, which contains the first
+     * {@link Config#MAX_BLOCK_SIZE} transactions in the pool.
+     * 
+     * @return
+     */
+    public synchronized BlockTemplate getBlockTemplate() {
+        return template.copy();
+    }
+
+    /**
+     * Returns the statistics of this pending manager.
+     * 
+     * @return
+     */
+    public PendingStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Returns the number of transactions waiting in the queue.
+     * 
+     * @return
+     */
+    public synchronized int getQueueSize() {
+        return queue.size();
+    }
+
+    /**
+     * Returns the number of transactions cached for a future nonce.
+     * 
+     * @return
+     */
+    public synchronized int getCacheSize() {
+        return cache.size();
+    }
+
+    /**
+     * Returns the capacity of the transaction cache.
+     * 
+     * @return
+     */
+    public int getCacheCapacity() {
+        return CACHE_SIZE;
+    }
+
+    /**
+     * Returns the number of transaction hashes in the current generation of the
+     * seen filter.
+     * 
+     * @return
+     */
+    public int getSeenSize() {
+        return seenTxs.size();
+    }
+
+    /**
+     * Handles the transaction hashes announced by a peer, and requests the
+     * transactions which are not yet known to this node.
+     * 
+     * @param channel
+     *            the channel where the announcement is coming from
+     * @param hashes
+     *            transaction hashes
+     */
+    public void onTransactionHashes(Channel channel, List<byte[]> hashes) {
+        List<byte[]> toRequest = new ArrayList<>();
+
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            for (int i = 0; i < hashes.size() && i < MAX_HASHES_PER_MESSAGE; i++) {
+                byte[] hash = hashes.get(i);
+                channel.addKnownTransaction(hash);
+                if (seenTxs.mightContain(hash)) {
+                    continue;
+                }
+
+                ByteArray key = ByteArray.of(hash);
+                Long requestedAt = requestedTxs.get(key);
+                if (requestedAt == null || requestedAt + REQUEST_TIMEOUT < now) {
+                    requestedTxs.put(key, now);
+                    toRequest.add(hash);
+                }
+            }
+        }
+
+        for (int i = 0; i < toRequest.size(); i += MAX_HASHES_PER_MESSAGE) {
+            List<byte[]> batch = toRequest.subList(i, Math.min(i + MAX_HASHES_PER_MESSAGE, toRequest.size()));
+            channel.getMessageQueue().sendMessage(new GetTransactionsMessage(new ArrayList<>(batch)));
+        }
+    }
+
+    /**
+     * Handles a transaction request from a peer, and replies with the requested
+     * transactions in the pool.
+     * 
+     * @param channel
+     *            the channel where the request is coming from
+     * @param hashes
+     *            transaction hashes
+     */
+    public void onGetTransactions(Channel channel, List<byte[]> hashes) {
+        List<Transaction> txs = new ArrayList<>();
+
+        synchronized (this) {
+            for (int i = 0; i < hashes.size() && i < MAX_HASHES_PER_MESSAGE; i++) {
+                Transaction tx = hashIndex.get(ByteArray.of(hashes.get(i)));
+                if (tx != null) {
+                    txs.add(tx);
+                }
+            }
+        }
+
+        for (Transaction tx : txs) {
+            channel.addKnownTransaction(tx.getHash());
+            channel.getTransactionRelay().add(tx);
+        }
+    }
+
     @Override
     public synchronized void onBlockAdded(Block block) {
         if (isRunning) {
@@ -228,8 +424,11 @@ public class PendingManager implements Runnable, BlockchainListener {
             // [2] clear transaction pool
             List<Transaction> txs = new ArrayList<>(transactions);
             poolMap.clear();
+            hashIndex.clear();
             transactions.clear();
             results.clear();
+            template.clear();
+            stats.onPoolCleared();
 
             // [3] update pending state
             long accepted = 0;
@@ -238,6 +437,7 @@ public class PendingManager implements Runnable, BlockchainListener {
             }
 
             long t2 = System.currentTimeMillis();
+            stats.onReconciled(t2 - t1, (int) (txs.size() - accepted));
             logger.debug("Pending tx evaluation: # txs = {} / {},  time =  {} ms", accepted, txs.size(), t2 - t1);
         }
     }
@@ -246,21 +446,19 @@ public class PendingManager implements Runnable, BlockchainListener {
     public synchronized void run() {
         Transaction tx;
 
-        while (poolMap.size() < 2 * Config.MAX_BLOCK_SIZE //
-                && (tx = queue.poll()) != null //
-                && tx.getFee() >= Config.MIN_TRANSACTION_FEE_SOFT) {
-            // filter by cache
-            ByteArray key = ByteArray.of(tx.getHash());
-            if (processedTxs.containsKey(key)) {
-                continue;
+        while (poolMap.size() < 2 * Config.MAX_BLOCK_SIZE && (tx = queue.poll()) != null) {
+            if (tx.getFee() < Config.MIN_TRANSACTION_FEE_SOFT) {
+                stats.onRejected(Rejection.LOW_FEE);
+                return;
             }
 
-            if (tx.validate() && processTransaction(tx, true) >= 1) {
+            // duplicates have been filtered when queued
+            if (!tx.validate()) {
+                stats.onRejected(Rejection.INVALID_FORMAT);
+            } else if (processTransaction(tx, true) >= 1) {
                 // exit after one valid transaction
                 return;
             }
-
-            processedTxs.put(key, null);
         }
     }
 
@@ -270,7 +468,8 @@ public class PendingManager implements Runnable, BlockchainListener {
      * @param tx
      *            transaction
      * @param relay
-     *            whether to relay the transaction if valid
+     *            whether to relay the transaction if valid. Only relayed, i.e.
+     *            new, transactions are counted as admitted or rejected
      * @return the number of valid transactions processed
      */
     protected int processTransaction(Transaction tx, boolean relay) {
@@ -279,6 +478,9 @@ public class PendingManager implements Runnable, BlockchainListener {
         long now = System.currentTimeMillis();
         long twoHours = TimeUnit.HOURS.toMillis(2);
         if (tx.getTimestamp() < now - twoHours || tx.getTimestamp() > now + twoHours) {
+            if (relay) {
+                stats.onRejected(Rejection.INVALID_TIMESTAMP);
+            }
             return 0;
         }
 
@@ -300,23 +502,22 @@ public class PendingManager implements Runnable, BlockchainListener {
 
                 // add transaction to pool
                 poolMap.put(createKey(tx), tx);
+                hashIndex.put(ByteArray.of(tx.getHash()), tx);
                 transactions.add(tx);
                 results.add(result);
+                template.add(tx, result);
+                stats.onPoolAdded(tx);
 
-                // relay transaction
+                // relay transaction, by announcing its hash
                 if (relay) {
-                    List<Channel> channels = channelMgr.getActiveChannels();
-                    TransactionMessage msg = new TransactionMessage(tx);
-                    int[] indices = ArrayUtil.permutation(channels.size());
-                    for (int i = 0; i < indices.length && i < Config.NET_RELAY_REDUNDANCY; i++) {
-                        Channel c = channels.get(indices[i]);
-                        if (c.isActive()) {
-                            c.getMessageQueue().sendMessage(msg);
-                        }
-                    }
+                    announcements.add(tx);
+                    stats.onAdmitted();
                 }
             } else {
                 // exit immediately if invalid
+                if (relay) {
+                    stats.onRejected(Rejection.INVALID_EXECUTION);
+                }
                 return cnt;
             }
 
@@ -328,11 +529,53 @@ public class PendingManager implements Runnable, BlockchainListener {
         // add to cache
         if (tx != null && tx.getNonce() > nonce) {
             cache.put(createKey(tx), tx);
+        } else if (cnt == 0 && relay) {
+            stats.onRejected(Rejection.INVALID_NONCE);
         }
 
         return cnt;
     }
 
+    /**
+     * Announces the hashes of newly accepted transactions to all peers that do not
+     * know them yet. Peers older than {@link #TX_ANNOUNCE_VERSION} receive the
+     * transactions instead, through the relay of the channel.
+     */
+    protected void announce() {
+        List<Transaction> txs;
+        synchronized (this) {
+            if (announcements.isEmpty()) {
+                return;
+            }
+            txs = announcements;
+            announcements = new ArrayList<>();
+        }
+
+        for (Channel c : channelMgr.getActiveChannels()) {
+            boolean legacy = c.getRemotePeer().getP2pVersion() < TX_ANNOUNCE_VERSION;
+
+            List<byte[]> list = new ArrayList<>();
+            for (Transaction tx : txs) {
+                byte[] hash = tx.getHash();
+                if (c.isKnownTransaction(hash)) {
+                    continue;
+                }
+
+                c.addKnownTransaction(hash);
+                if (legacy) {
+                    c.getTransactionRelay().add(tx);
+                } else {
+                    list.add(hash);
+                }
+            }
+
+            for (int i = 0; i < list.size(); i += MAX_HASHES_PER_MESSAGE) {
+                List<byte[]> batch = list.subList(i, Math.min(i + MAX_HASHES_PER_MESSAGE, list.size()));
+                c.getMessageQueue().sendMessage(new TransactionHashesMessage(new ArrayList<>(batch)));
+            }
+        }
+    }
+
     private ByteArray createKey(Transaction tx) {
         return ByteArray.of(Bytes.merge(tx.getFrom(), Bytes.of(tx.getNonce())));
     }
@@ -0,0 +1,294 @@
+/*
+ * Copyright (c) 2017 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.core;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.semux.utils.ByteArray;
+
+/**
+ * Statistics of the pending manager. All counters are updated incrementally as
+ * transactions are admitted or rejected, so that every query is O(1).
+ *
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ */
+public class PendingStats {
+
+    /**
+     * Reasons why a transaction is not admitted into the pool.
+     */
+    public enum Rejection {
+        /**
+         * The transaction has been seen recently.
+         */
+        DUPLICATE,
+
+        /**
+         * The transaction fee is below the soft minimum.
+         */
+        LOW_FEE,
+
+        /**
+         * The transaction format or signature is invalid.
+         */
+        INVALID_FORMAT,
+
+        /**
+         * The transaction timestamp is too far away from now.
+         */
+        INVALID_TIMESTAMP,
+
+        /**
+         * The transaction nonce has been used.
+         */
+        INVALID_NONCE,
+
+        /**
+         * The transaction can not be executed on the pending state.
+         */
+        INVALID_EXECUTION
+    }
+
+    /**
+     * Number of buckets of the fee-rate histogram.
+     */
+    public static final int FEE_RATE_BUCKETS = 64;
+
+    private static final long RATE_WINDOW = 60 * 1000; // 1 minute
+
+    // pool
+    private int poolSize;
+    private long poolBytes;
+    private long[] feeRates = new long[FEE_RATE_BUCKETS];
+    private Map<ByteArray, Integer> senders = new HashMap<>();
+    private int maxSenderDepth;
+
+    // admission and rejections, index 0 is for admission
+    private long[] totals = new long[Rejection.values().length + 1];
+    private long[] windowBase = new long[totals.length];
+    private long[] lastWindow = new long[totals.length];
+    private long windowStart = System.currentTimeMillis();
+
+    // reconcile
+    private long lastReconcile = System.currentTimeMillis();
+    private long lastReconcileTime;
+    private int lastReconcileDropped;
+
+    /**
+     * Returns the fee-rate bucket of a transaction. Bucket <code>i</code> holds the
+     * transactions paying <code>[2^i, 2^(i+1))</code> nano SEM per byte.
+     *
+     * @param tx
+     * @return
+     */
+    public static int feeRateBucket(Transaction tx) {
+        long rate = tx.getFee() / Math.max(1, tx.size());
+        return rate <= 0 ? 0 : 63 - Long.numberOfLeadingZeros(rate);
+    }
+
+    /**
+     * When a transaction is added to the pool.
+     *
+     * @param tx
+     */
+    public synchronized void onPoolAdded(Transaction tx) {
+        poolSize++;
+        poolBytes += tx.size();
+        feeRates[feeRateBucket(tx)]++;
+
+        ByteArray key = ByteArray.of(tx.getFrom());
+        Integer depth = senders.get(key);
+        depth = (depth == null) ? 1 : depth + 1;
+        senders.put(key, depth);
+        maxSenderDepth = Math.max(maxSenderDepth, depth);
+    }
+
+    /**
+     * When the pool is cleared.
+     */
+    public synchronized void onPoolCleared() {
+        poolSize = 0;
+        poolBytes = 0;
+        feeRates = new long[FEE_RATE_BUCKETS];
+        senders.clear();
+        maxSenderDepth = 0;
+    }
+
+    /**
+     * When a new transaction is admitted into the pool.
+     */
+    public synchronized void onAdmitted() {
+        roll();
+        totals[0]++;
+    }
+
+    /**
+     * When a new transaction is rejected.
+     *
+     * @param reason
+     */
+    public synchronized void onRejected(Rejection reason) {
+        roll();
+        totals[reason.ordinal() + 1]++;
+    }
+
+    /**
+     * When the pool has been reconciled with a new block.
+     *
+     * @param time
+     *            the time spent, in milliseconds
+     * @param dropped
+     *            the number of transactions dropped from the pool
+     */
+    public synchronized void onReconciled(long time, int dropped) {
+        lastReconcile = System.currentTimeMillis();
+        lastReconcileTime = time;
+        lastReconcileDropped = dropped;
+    }
+
+    /**
+     * Returns the number of transactions in the pool.
+     *
+     * @return
+     */
+    public synchronized int getPoolSize() {
+        return poolSize;
+    }
+
+    /**
+     * Returns the total size of transactions in the pool, in bytes.
+     *
+     * @return
+     */
+    public synchronized long getPoolBytes() {
+        return poolBytes;
+    }
+
+    /**
+     * Returns a copy of the fee-rate histogram, see {@link #feeRateBucket}.
+     *
+     * @return
+     */
+    public synchronized long[] getFeeRateHistogram() {
+        return feeRates.clone();
+    }
+
+    /**
+     * Returns the number of distinct senders in the pool.
+     *
+     * @return
+     */
+    public synchronized int getNumberOfSenders() {
+        return senders.size();
+    }
+
+    /**
+     * Returns the number of pooled transactions from the given sender.
+     *
+     * @param address
+     * @return
+     */
+    public synchronized int getSenderDepth(byte[] address) {
+        Integer depth = senders.get(ByteArray.of(address));
+        return depth == null ? 0 : depth;
+    }
+
+    /**
+     * Returns the largest number of pooled transactions from one sender.
+     *
+     * @return
+     */
+    public synchronized int getMaxSenderDepth() {
+        return maxSenderDepth;
+    }
+
+    /**
+     * Returns the total number of admitted transactions.
+     *
+     * @return
+     */
+    public synchronized long getAdmitted() {
+        return totals[0];
+    }
+
+    /**
+     * Returns the total number of rejected transactions, for the given reason.
+     *
+     * @param reason
+     * @return
+     */
+    public synchronized long getRejected(Rejection reason) {
+        return totals[reason.ordinal() + 1];
+    }
+
+    /**
+     * Returns the number of admitted transactions during the last full minute.
+     *
+     * @return
+     */
+    public synchronized long getAdmittedPerMinute() {
+        roll();
+        return lastWindow[0];
+    }
+
+    /**
+     * Returns the number of rejected transactions during the last full minute,
+     * for the given reason.
+     *
+     * @param reason
+     * @return
+     */
+    public synchronized long getRejectedPerMinute(Rejection reason) {
+        roll();
+        return lastWindow[reason.ordinal() + 1];
+    }
+
+    /**
+     * Returns the time since the last reconcile, in milliseconds.
+     *
+     * @return
+     */
+    public synchronized long getTimeSinceLastReconcile() {
+        return System.currentTimeMillis() - lastReconcile;
+    }
+
+    /**
+     * Returns the time spent by the last reconcile, in milliseconds.
+     *
+     * @return
+     */
+    public synchronized long getLastReconcileTime() {
+        return lastReconcileTime;
+    }
+
+    /**
+     * Returns the number of transactions dropped by the last reconcile.
+     *
+     * @return
+     */
+    public synchronized int getLastReconcileDropped() {
+        return lastReconcileDropped;
+    }
+
+    /**
+     * Closes the rate window if it has expired.
+     */
+    private void roll() {
+        long now = System.currentTimeMillis();
+        if (now - windowStart >= RATE_WINDOW) {
+            boolean consecutive = now - windowStart < 2 * RATE_WINDOW;
+            for (int i = 0; i < totals.length; i++) {
+                lastWindow[i] = consecutive ? totals[i] - windowBase[i] : 0;
+                windowBase[i] = totals[i];
+            }
+            windowStart = now - (now - windowStart) % RATE_WINDOW;
+        }
+    }
+}
@@ -10,6 +10,7 @@ import java.util.Arrays;
 import java.util.concurrent.Callable;
 
 import org.semux.Config;
+import org.semux.crypto.BatchVerifier;
 import org.semux.crypto.EdDSA;
 import org.semux.crypto.EdDSA.Signature;
 import org.semux.crypto.Hash;
@@ -116,6 +117,16 @@ public class Transaction implements Callable<Boolean> {
      * @return true if valid, otherwise false
      */
     public boolean validate() {
+        return validateFormat() && EdDSA.verify(hash, signature);
+    }
+
+    /**
+     * Validate transaction format and hash, but not the signature. The signature
+     * can then be checked in batch, see {@link BatchVerifier}.
+     * 
+     * @return true if valid, otherwise false
+     */
+    public boolean validateFormat() {
         return hash != null && hash.length == 32 //
                 && type != null //
                 && from != null && from.length == 20 //
@@ -128,8 +139,7 @@ public class Transaction implements Callable<Boolean> {
                 && encoded != null //
                 && signature != null //
 
-                && Arrays.equals(Hash.h256(encoded), hash) //
-                && EdDSA.verify(hash, signature);
+                && Arrays.equals(Hash.h256(encoded), hash);
     }
 
     public byte[] getHash() {
@@ -208,6 +218,16 @@ public class Transaction implements Callable<Boolean> {
         this.signature = signature;
     }
 
+    /**
+     * Returns the size of this transaction when serialized by {@link #toBytes()}.
+     * 
+     * @return
+     */
+    public int size() {
+        return 4 + hash.length + 4 + encoded.length + 4 + signature.getSignature().length
+                + signature.getPublicKey().length;
+    }
+
     public byte[] toBytes() {
         SimpleEncoder enc = new SimpleEncoder();
         enc.writeBytes(hash);
@@ -226,6 +246,17 @@ public class Transaction implements Callable<Boolean> {
         return new Transaction(hash, encoded, signature);
     }
 
+    /**
+     * Reads the hash of a serialized transaction, without decoding the rest.
+     * 
+     * @param bytes
+     *            the output of {@link #toBytes()}
+     * @return
+     */
+    public static byte[] hashOf(byte[] bytes) {
+        return new SimpleDecoder(bytes).readBytes();
+    }
+
     @Override
     public String toString() {
         return "Transaction [type=" + type + ", from=" + Hex.encode(from) + ", to=" + Hex.encode(to) + ", value="
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2017 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.semux.utils.ByteArray;
+
+/**
+ * An append-only table of the public keys known from the chain, which is used
+ * to refer to a signer by index, see {@link CommitCertificate}.
+ *
+ * <p>
+ * Keys are learned from block header signatures and delegate registrations
+ * only, which are part of the block hash, so every node builds the same table.
+ * A key learned from block <code>n</code> can be referred to from block
+ * <code>n + 1</code> on.
+ * </p>
+ *
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ */
+public class ValidatorKeys {
+
+    private List<byte[]> keys = new ArrayList<>();
+    private List<Long> numbers = new ArrayList<>();
+    private Map<ByteArray, Integer> indexes = new HashMap<>();
+
+    /**
+     * Adds a public key, if not known.
+     *
+     * @param publicKey
+     *            the public key
+     * @param number
+     *            the number of the block where the key is learned
+     * @return the index of the key if it's added, otherwise -1
+     */
+    public synchronized int add(byte[] publicKey, long number) {
+        ByteArray key = ByteArray.of(publicKey);
+        if (indexes.containsKey(key)) {
+            return -1;
+        }
+
+        int index = keys.size();
+        keys.add(publicKey);
+        numbers.add(number);
+        indexes.put(key, index);
+
+        return index;
+    }
+
+    /**
+     * Returns the index of a public key, as seen by block <code>number</code>.
+     *
+     * @param publicKey
+     * @param number
+     * @return the index, or -1 if the key was not known before the block
+     */
+    public synchronized int indexOf(byte[] publicKey, long number) {
+        Integer index = indexes.get(ByteArray.of(publicKey));
+        return (index == null || numbers.get(index) >= number) ? -1 : index;
+    }
+
+    /**
+     * Returns the public key at the given index, as seen by block
+     * <code>number</code>.
+     *
+     * @param index
+     * @param number
+     * @return the public key, or null if there was no such key before the block
+     */
+    public synchronized byte[] get(int index, long number) {
+        return (index < 0 || index >= keys.size() || numbers.get(index) >= number) ? null : keys.get(index);
+    }
+
+    /**
+     * Returns the number of the block where the key at the given index is
+     * learned.
+     *
+     * @param index
+     * @return
+     */
+    public synchronized long getNumber(int index) {
+        return numbers.get(index);
+    }
+
+    /**
+     * Returns the number of keys.
+     *
+     * @return
+     */
+    public synchronized int size() {
+        return keys.size();
+    }
+}
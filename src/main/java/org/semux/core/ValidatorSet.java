@@ -0,0 +1,256 @@
+/*
+ * Copyright (c) 2017 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.semux.Config;
+import org.semux.crypto.Hash;
+import org.semux.crypto.Hex;
+
+/**
+ * The validators of one term, with the lookups needed by the consensus
+ * precomputed: address and public key to validator index, and the primary
+ * validator of every height in the term.
+ *
+ * <p>
+ * Lookups by address or by an already seen public key are O(1) and do not
+ * allocate. This class is thread-safe.
+ * </p>
+ */
+public class ValidatorSet {
+
+    private final long number;
+    private final List<String> validators;
+    private final int twoThirds;
+
+    private final BytesIndex addresses;
+    private volatile BytesIndex publicKeys;
+
+    private final int[] primaries;
+
+    /**
+     * Create a validator set.
+     *
+     * @param validators
+     *            the peer ids of the validators, in order
+     * @param number
+     *            the number of the block which elected the validators; the set
+     *            is in effect from block <code>number + 1</code>, for one
+     *            {@link Config#VALIDATOR_TERM}
+     */
+    public ValidatorSet(List<String> validators, long number) {
+        this.number = number;
+        this.validators = Collections.unmodifiableList(new ArrayList<>(validators));
+        this.twoThirds = (int) Math.ceil(validators.size() * 2.0 / 3.0);
+
+        this.addresses = new BytesIndex(validators.size());
+        for (int i = 0; i < validators.size(); i++) {
+            addresses.put(Hex.decode(validators.get(i)), i);
+        }
+        this.publicKeys = new BytesIndex(validators.size());
+
+        this.primaries = new int[validators.isEmpty() ? 0 : (int) Config.VALIDATOR_TERM];
+        for (int i = 0; i < primaries.length; i++) {
+            primaries[i] = computePrimary(number + 1 + i);
+        }
+    }
+
+    /**
+     * Returns the number of the block which elected this set.
+     *
+     * @return
+     */
+    public long getNumber() {
+        return number;
+    }
+
+    /**
+     * Returns the peer ids of the validators, in order.
+     *
+     * @return an unmodifiable list
+     */
+    public List<String> getValidators() {
+        return validators;
+    }
+
+    /**
+     * Returns the number of validators.
+     *
+     * @return
+     */
+    public int size() {
+        return validators.size();
+    }
+
+    /**
+     * Returns the minimum number of votes for a +2/3 majority.
+     *
+     * @return
+     */
+    public int getTwoThirds() {
+        return twoThirds;
+    }
+
+    /**
+     * Returns the peer id of the validator at the given index.
+     *
+     * @param index
+     * @return
+     */
+    public String get(int index) {
+        return validators.get(index);
+    }
+
+    /**
+     * Returns the index of a validator.
+     *
+     * @param address
+     * @return the index, or -1 if not a validator
+     */
+    public int indexOf(byte[] address) {
+        return addresses.get(address);
+    }
+
+    /**
+     * Returns the index of a validator.
+     *
+     * @param peerId
+     * @return the index, or -1 if not a validator
+     */
+    public int indexOf(String peerId) {
+        return indexOf(Hex.decode(peerId));
+    }
+
+    /**
+     * Returns the index of the validator owning a public key.
+     *
+     * @param publicKey
+     * @return the index, or -1 if not a validator
+     */
+    public int indexOfPublicKey(byte[] publicKey) {
+        int index = publicKeys.get(publicKey);
+        if (index == -1) {
+            index = indexOf(Hash.h160(publicKey));
+            if (index != -1) {
+                synchronized (this) {
+                    publicKeys = publicKeys.with(publicKey, index);
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Returns whether the given address is a validator.
+     *
+     * @param address
+     * @return
+     */
+    public boolean contains(byte[] address) {
+        return indexOf(address) != -1;
+    }
+
+    /**
+     * Returns whether the given peer is a validator.
+     *
+     * @param peerId
+     * @return
+     */
+    public boolean contains(String peerId) {
+        return indexOf(peerId) != -1;
+    }
+
+    /**
+     * Returns the index of the primary validator, see
+     * {@link Config#getPrimaryValidator(List, long, int)}.
+     *
+     * @param height
+     * @param view
+     * @return
+     */
+    public int getPrimaryIndex(long height, int view) {
+        long offset = height - number - 1;
+        return (offset >= 0 && offset < primaries.length) ? primaries[(int) offset] : computePrimary(height);
+    }
+
+    /**
+     * Returns the peer id of the primary validator, see
+     * {@link Config#getPrimaryValidator(List, long, int)}.
+     *
+     * @param height
+     * @param view
+     * @return
+     */
+    public String getPrimary(long height, int view) {
+        return validators.get(getPrimaryIndex(height, view));
+    }
+
+    private int computePrimary(long height) {
+        return validators.indexOf(Config.getPrimaryValidator(validators, height, 0));
+    }
+
+    /**
+     * An open-addressing map from byte arrays to non-negative integers.
+     */
+    private static class BytesIndex {
+        private final byte[][] keys;
+        private final int[] values;
+        private final int mask;
+        private int size;
+
+        BytesIndex(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(4, expected * 2) - 1) << 1;
+            keys = new byte[capacity][];
+            values = new int[capacity];
+            mask = capacity - 1;
+        }
+
+        int get(byte[] key) {
+            for (int i = hash(key) & mask; keys[i] != null; i = (i + 1) & mask) {
+                if (Arrays.equals(keys[i], key)) {
+                    return values[i];
+                }
+            }
+            return -1;
+        }
+
+        void put(byte[] key, int value) {
+            int i = hash(key) & mask;
+            while (keys[i] != null && !Arrays.equals(keys[i], key)) {
+                i = (i + 1) & mask;
+            }
+            if (keys[i] == null) {
+                size++;
+            }
+            keys[i] = key;
+            values[i] = value;
+        }
+
+        /**
+         * Returns a copy with the given entry, growing the table if needed.
+         */
+        BytesIndex with(byte[] key, int value) {
+            BytesIndex copy = new BytesIndex(size + 1);
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != null) {
+                    copy.put(keys[i], values[i]);
+                }
+            }
+            copy.put(key, value);
+            return copy;
+        }
+
+        private static int hash(byte[] key) {
+            int h = Arrays.hashCode(key);
+            return h ^ (h >>> 16);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2017 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.crypto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.semux.crypto.EdDSA.Signature;
+
+/**
+ * Verifies a batch of signatures, using a shared pool of verifier threads. The
+ * result is exactly the conjunction of {@link EdDSA#verify(byte[], Signature)}
+ * over all the signatures.
+ *
+ * <p>
+ * This class is not thread-safe, create one instance per batch.
+ * </p>
+ */
+public class BatchVerifier {
+
+    private static final ThreadFactory factory = new ThreadFactory() {
+        private AtomicInteger cnt = new AtomicInteger(0);
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "batch-verifier-" + cnt.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        }
+    };
+
+    private static final int CORES = Runtime.getRuntime().availableProcessors();
+
+    private static final ExecutorService exec = Executors.newFixedThreadPool(CORES, factory);
+
+    /**
+     * Minimum number of signatures per task, smaller batches are verified by the
+     * calling thread.
+     */
+    private static final int MIN_CHUNK_SIZE = 16;
+
+    private List<byte[]> messages = new ArrayList<>();
+    private List<Signature> signatures = new ArrayList<>();
+
+    /**
+     * Adds a signature to this batch.
+     *
+     * @param message
+     *            the signed message
+     * @param signature
+     *            the signature
+     */
+    public void add(byte[] message, Signature signature) {
+        messages.add(message);
+        signatures.add(signature);
+    }
+
+    /**
+     * Returns the number of signatures in this batch.
+     *
+     * @return
+     */
+    public int size() {
+        return signatures.size();
+    }
+
+    /**
+     * Verifies all signatures in this batch. Verification stops at the first
+     * invalid signature.
+     *
+     * @return true if all signatures are valid, otherwise false
+     */
+    public boolean verify() {
+        int n = size();
+        int chunks = Math.min(CORES, n / MIN_CHUNK_SIZE);
+        if (chunks <= 1) {
+            return verify(0, n, new AtomicBoolean(false));
+        }
+
+        AtomicBoolean failed = new AtomicBoolean(false);
+        int chunkSize = (n + chunks - 1) / chunks;
+
+        // the calling thread verifies the first chunk
+        List<Future<Boolean>> futures = new ArrayList<>();
+        for (int from = chunkSize; from < n; from += chunkSize) {
+            int start = from;
+            int end = Math.min(from + chunkSize, n);
+            futures.add(exec.submit(() -> verify(start, end, failed)));
+        }
+        boolean valid = verify(0, chunkSize, failed);
+
+        try {
+            for (Future<Boolean> f : futures) {
+                valid &= f.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            return false;
+        }
+
+        return valid;
+    }
+
+    private boolean verify(int from, int to, AtomicBoolean failed) {
+        for (int i = from; i < to && !failed.get(); i++) {
+            if (!EdDSA.verify(messages.get(i), signatures.get(i))) {
+                failed.set(true);
+            }
+        }
+        return !failed.get();
+    }
+}
@@ -15,6 +15,11 @@ import java.security.spec.InvalidKeySpecException;
 import java.security.spec.PKCS8EncodedKeySpec;
 import java.security.spec.X509EncodedKeySpec;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import org.apache.commons.collections4.map.LRUMap;
+import org.semux.utils.ByteArray;
 
 import net.i2p.crypto.eddsa.EdDSAEngine;
 import net.i2p.crypto.eddsa.EdDSAPrivateKey;
@@ -28,6 +33,16 @@ import net.i2p.crypto.eddsa.KeyPairGenerator;
  */
 public class EdDSA {
 
+    private static final int PUBLIC_KEY_CACHE_SIZE = 8 * 1024;
+
+    /**
+     * Decoded public keys. Decoding a key costs a point decompression and the
+     * precomputation of its multiples, while validators and active accounts sign
+     * repeatedly.
+     */
+    private static final Map<ByteArray, EdDSAPublicKey> publicKeyCache = Collections
+            .synchronizedMap(new LRUMap<>(PUBLIC_KEY_CACHE_SIZE));
+
     private PublicKey pub;
     private PrivateKey priv;
 
@@ -113,8 +128,12 @@ public class EdDSA {
      */
     public static boolean verify(byte[] msgHash, Signature signature) {
         try {
-            X509EncodedKeySpec spec = new X509EncodedKeySpec(signature.getPublicKey());
-            EdDSAPublicKey publicKey = new EdDSAPublicKey(spec);
+            ByteArray key = ByteArray.of(signature.getPublicKey());
+            EdDSAPublicKey publicKey = publicKeyCache.get(key);
+            if (publicKey == null) {
+                publicKey = new EdDSAPublicKey(new X509EncodedKeySpec(signature.getPublicKey()));
+                publicKeyCache.put(key, publicKey);
+            }
 
             EdDSAEngine engine = new EdDSAEngine();
             engine.initVerify(publicKey);
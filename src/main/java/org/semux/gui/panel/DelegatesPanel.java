@@ -10,7 +10,6 @@ import java.awt.event.MouseEvent;
 import java.text.ParseException;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.List;
 
 import javax.swing.GroupLayout;
@@ -304,8 +303,7 @@ public class DelegatesPanel extends JPanel implements ActionListener {
             case 4:
                 return SwingUtil.formatVote(d.getVotesFromMe());
             case 5:
-                List<String> validators = Kernel.getInstance().getBlockchain().getValidators();
-                return new HashSet<>(validators).contains(Hex.encode(d.getAddress())) ? "V" : "S";
+                return Kernel.getInstance().getBlockchain().getValidatorSet().contains(d.getAddress()) ? "V" : "S";
             case 6:
                 return SwingUtil.formatPercentage(d.getRate());
             default:
@@ -7,13 +7,18 @@
 package org.semux.net;
 
 import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
+import org.apache.commons.collections4.map.LRUMap;
 import org.semux.Config;
 import org.semux.core.Blockchain;
 import org.semux.core.PendingManager;
+import org.semux.net.msg.Compression;
 import org.semux.net.msg.MessageQueue;
+import org.semux.utils.ByteArray;
 
 import io.netty.channel.ChannelPipeline;
 import io.netty.handler.timeout.ReadTimeoutHandler;
@@ -21,9 +26,13 @@ import io.netty.handler.timeout.ReadTimeoutHandler;
 public class Channel {
     private static AtomicLong cnt = new AtomicLong(0);
 
+    private static final int KNOWN_TRANSACTIONS_SIZE = 4 * 1024;
+
     private long id;
 
     private MessageQueue msgQueue;
+    private TransactionRelay txRelay;
+    private NetworkMetrics metrics;
 
     private boolean isInbound;
     private boolean isDiscoveryMode;
@@ -36,12 +45,18 @@ public class Channel {
     private PeerClient client;
     private InetSocketAddress remoteAddress;
     private Peer remotePeer;
+    private volatile boolean isCompressed;
 
     private ReadTimeoutHandler timeoutHandler;
     private SemuxFrameHandler frameHandler;
     private SemuxMessageHandler messageHandler;
     private SemuxP2pHandler p2pHandler;
 
+    /**
+     * Hashes of the transactions which the remote peer is known to have.
+     */
+    private Map<ByteArray, Object> knownTxs = Collections.synchronizedMap(new LRUMap<>(KNOWN_TRANSACTIONS_SIZE));
+
     /**
      * Creates a new channel instance.
      * 
@@ -57,6 +72,8 @@ public class Channel {
         this.pendingMgr = pendingMgr;
         this.channelMgr = channelMgr;
         this.nodeMgr = nodeMgr;
+
+        this.metrics = new NetworkMetrics();
     }
 
     /**
@@ -79,7 +96,8 @@ public class Channel {
         this.remotePeer = null;
         this.remoteAddress = remoteAddress;
 
-        this.msgQueue = new MessageQueue();
+        this.msgQueue = new MessageQueue(Config.NET_MAX_QUEUE_SIZE, metrics);
+        this.txRelay = new TransactionRelay(this);
 
         this.timeoutHandler = new ReadTimeoutHandler(Config.NET_TIMEOUT_IDLE, TimeUnit.MILLISECONDS);
         this.frameHandler = new SemuxFrameHandler(this);
@@ -147,6 +165,24 @@ public class Channel {
         return msgQueue;
     }
 
+    /**
+     * Returns the network metrics of this channel.
+     * 
+     * @return
+     */
+    public NetworkMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns the transaction relay.
+     * 
+     * @return
+     */
+    public TransactionRelay getTransactionRelay() {
+        return txRelay;
+    }
+
     /**
      * Returns whether this is an inbound channel.
      * 
@@ -203,6 +239,25 @@ public class Channel {
         channelMgr.onChannelActive(this); // notify channel manager
     }
 
+    /**
+     * Sets the compression supported by the remote peer; messages are compressed
+     * if both sides support it.
+     * 
+     * @param compression
+     */
+    public void setCompression(byte compression) {
+        this.isCompressed = Config.NET_COMPRESSION && compression == Compression.SNAPPY;
+    }
+
+    /**
+     * Returns whether large messages to the remote peer are compressed.
+     * 
+     * @return
+     */
+    public boolean isCompressed() {
+        return isCompressed;
+    }
+
     /**
      * When peer disconnects.
      */
@@ -210,6 +265,28 @@ public class Channel {
         this.remotePeer = null;
     }
 
+    /**
+     * Returns whether the remote peer is known to have the given transaction.
+     * 
+     * @param hash
+     *            transaction hash
+     * @return
+     */
+    public boolean isKnownTransaction(byte[] hash) {
+        return knownTxs.containsKey(ByteArray.of(hash));
+    }
+
+    /**
+     * Marks a transaction as known to the remote peer, either because the peer
+     * sent or announced it, or because we have announced it to the peer.
+     * 
+     * @param hash
+     *            transaction hash
+     */
+    public void addKnownTransaction(byte[] hash) {
+        knownTxs.put(ByteArray.of(hash), null);
+    }
+
     /**
      * Returns the remote address.
      * 
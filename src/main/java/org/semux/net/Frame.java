@@ -6,6 +6,9 @@
  */
 package org.semux.net;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.util.ReferenceCounted;
+
 /**
  * Represent a frame in the Semux network. Numbers are signed and in big-endian.
  * 
@@ -14,10 +17,25 @@ package org.semux.net;
  * <li>HEADER := SIZE + TYPE + PACKET_ID + PACKET_SIZE</li>
  * <li>BODY := RAW_DATA
  * </ul>
+ * 
+ * <p>
+ * The highest bit of the type is set when the packet is compressed, see
+ * {@link org.semux.net.msg.Compression}.
+ * </p>
+ * 
+ * <p>
+ * The payload is a slice of the receive buffer, and the reference count of a
+ * frame is the one of its payload.
+ * </p>
  */
-public class Frame {
+public class Frame implements ReferenceCounted {
     public static final int HEADER_SIZE = 32;
 
+    /**
+     * Flag of compressed packets, in the type.
+     */
+    public static final byte COMPRESSED = (byte) 0x80;
+
     private int size; /* frame size, 4 bytes */
     private byte type; /* protocol type, 1 byte */
     private byte network; /* network id, 1 byte */
@@ -26,9 +44,9 @@ public class Frame {
     private int packetId; /* 4 bytes */
     private int packetSize; /* 4 bytes */
 
-    private byte[] payload;
+    private ByteBuf payload;
 
-    public Frame(int size, byte type, byte network, int packetId, int packetSize, byte[] payload) {
+    public Frame(int size, byte type, byte network, int packetId, int packetSize, ByteBuf payload) {
         this.size = size;
         this.type = type;
         this.network = network;
@@ -61,10 +79,69 @@ public class Frame {
         return packetSize;
     }
 
-    public byte[] getPayload() {
+    public ByteBuf getPayload() {
         return payload;
     }
 
+    /**
+     * Writes a frame header.
+     * 
+     * @param out
+     * @param size
+     * @param type
+     * @param network
+     * @param packetId
+     * @param packetSize
+     */
+    public static void writeHeader(ByteBuf out, int size, byte type, byte network, int packetId, int packetSize) {
+        int index = out.writerIndex();
+        out.writeInt(size);
+        out.writeByte(type);
+        out.writeByte(network);
+        out.writeInt(packetId);
+        out.writeInt(packetSize);
+        out.writeZero(index + HEADER_SIZE - out.writerIndex());
+    }
+
+    @Override
+    public int refCnt() {
+        return payload.refCnt();
+    }
+
+    @Override
+    public Frame retain() {
+        payload.retain();
+        return this;
+    }
+
+    @Override
+    public Frame retain(int increment) {
+        payload.retain(increment);
+        return this;
+    }
+
+    @Override
+    public Frame touch() {
+        payload.touch();
+        return this;
+    }
+
+    @Override
+    public Frame touch(Object hint) {
+        payload.touch(hint);
+        return this;
+    }
+
+    @Override
+    public boolean release() {
+        return payload.release();
+    }
+
+    @Override
+    public boolean release(int decrement) {
+        return payload.release(decrement);
+    }
+
     @Override
     public String toString() {
         return "Frame [size=" + size + ", type=" + type + ", network=" + network + ", packetId=" + packetId
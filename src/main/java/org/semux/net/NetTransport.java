@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2017 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.net;
+
+import java.util.concurrent.ThreadFactory;
+
+import org.semux.Config;
+
+import io.netty.channel.AdaptiveRecvByteBufAllocator;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.RecvByteBufAllocator;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.ServerSocketChannel;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+
+/**
+ * The transport of the P2P network: native epoll where available, otherwise
+ * NIO, and the channel settings shared by the server and the client.
+ */
+public class NetTransport {
+
+    private static final int MIN_RECV_BUFFER = 64;
+    private static final int INITIAL_RECV_BUFFER = 2048;
+
+    private NetTransport() {
+    }
+
+    /**
+     * Returns whether the native epoll transport is used.
+     * 
+     * @return
+     */
+    public static boolean isEpoll() {
+        return Config.NET_EPOLL && Epoll.isAvailable();
+    }
+
+    /**
+     * Creates an event loop group.
+     * 
+     * @param threads
+     *            the number of threads, or 0 for the Netty default
+     * @param factory
+     *            the thread factory
+     * @return
+     */
+    public static EventLoopGroup newEventLoopGroup(int threads, ThreadFactory factory) {
+        return isEpoll() ? new EpollEventLoopGroup(threads, factory) : new NioEventLoopGroup(threads, factory);
+    }
+
+    /**
+     * Returns the server channel class.
+     * 
+     * @return
+     */
+    public static Class<? extends ServerSocketChannel> getServerChannelClass() {
+        return isEpoll() ? EpollServerSocketChannel.class : NioServerSocketChannel.class;
+    }
+
+    /**
+     * Returns the client channel class.
+     * 
+     * @return
+     */
+    public static Class<? extends SocketChannel> getChannelClass() {
+        return isEpoll() ? EpollSocketChannel.class : NioSocketChannel.class;
+    }
+
+    /**
+     * Returns the receive buffer allocator of a channel. The buffer adapts to the
+     * traffic, from a few bytes for idle peers up to one full frame.
+     * 
+     * @return
+     */
+    public static RecvByteBufAllocator newRecvByteBufAllocator() {
+        return new AdaptiveRecvByteBufAllocator(MIN_RECV_BUFFER, INITIAL_RECV_BUFFER,
+                Frame.HEADER_SIZE + Config.NET_MAX_FRAME_SIZE);
+    }
+
+    /**
+     * Returns the write buffer watermarks of a channel, see
+     * {@link io.netty.channel.Channel#isWritable()}.
+     * 
+     * @return
+     */
+    public static WriteBufferWaterMark getWriteBufferWaterMark() {
+        return new WriteBufferWaterMark(Config.NET_WRITE_BUFFER_LOW, Config.NET_WRITE_BUFFER_HIGH);
+    }
+}
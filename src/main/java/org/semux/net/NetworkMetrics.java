@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2017 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.net;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.semux.net.msg.MessageCode;
+import org.semux.utils.Histogram;
+
+/**
+ * Network traffic metrics, by message code and direction.
+ *
+ * <p>
+ * Every channel has its own metrics, which counts messages and bytes and keeps
+ * a histogram of its request roundtrips; everything is also added up in the
+ * global metrics, which in addition keeps latency histograms by message code.
+ * Latencies are recorded in microseconds.
+ * </p>
+ *
+ * <p>
+ * This class is lock-free.
+ * </p>
+ */
+public class NetworkMetrics {
+
+    public enum Direction {
+        /**
+         * Messages received; the latency is the time spent in the P2P handler.
+         */
+        IN,
+
+        /**
+         * Messages sent; the latency is the time from being enqueued to being
+         * written into the channel.
+         */
+        OUT
+    }
+
+    private static final int CODES = MessageCode.values().length;
+
+    private static final NetworkMetrics global = new NetworkMetrics(null);
+
+    private final NetworkMetrics parent;
+
+    private final AtomicLongArray messages = new AtomicLongArray(2 * CODES);
+    private final AtomicLongArray bytes = new AtomicLongArray(2 * CODES);
+    private final Histogram roundtrip = new Histogram();
+
+    // global only
+    private final Histogram[] latencies;
+    private final Histogram[] roundtrips;
+
+    /**
+     * Create the metrics of a channel, which also adds to the global metrics.
+     */
+    public NetworkMetrics() {
+        this(global);
+    }
+
+    private NetworkMetrics(NetworkMetrics parent) {
+        this.parent = parent;
+
+        if (parent == null) {
+            latencies = new Histogram[2 * CODES];
+            roundtrips = new Histogram[CODES];
+            for (int i = 0; i < latencies.length; i++) {
+                latencies[i] = new Histogram();
+            }
+            for (int i = 0; i < roundtrips.length; i++) {
+                roundtrips[i] = new Histogram();
+            }
+        } else {
+            latencies = null;
+            roundtrips = null;
+        }
+    }
+
+    /**
+     * Returns the global metrics.
+     * 
+     * @return
+     */
+    public static NetworkMetrics getGlobal() {
+        return global;
+    }
+
+    /**
+     * Records a message and its size on the wire, compressed if it is.
+     * 
+     * @param dir
+     * @param code
+     * @param size
+     */
+    public void onMessage(Direction dir, MessageCode code, int size) {
+        int i = index(dir, code);
+        messages.incrementAndGet(i);
+        bytes.addAndGet(i, size);
+
+        if (parent != null) {
+            parent.onMessage(dir, code, size);
+        }
+    }
+
+    /**
+     * Records the latency of a message.
+     * 
+     * @param dir
+     * @param code
+     * @param nanos
+     */
+    public void onLatency(Direction dir, MessageCode code, long nanos) {
+        if (latencies != null) {
+            latencies[index(dir, code)].record(TimeUnit.NANOSECONDS.toMicros(nanos));
+        }
+
+        if (parent != null) {
+            parent.onLatency(dir, code, nanos);
+        }
+    }
+
+    /**
+     * Records the time between sending a request and receiving its response.
+     * 
+     * @param request
+     *            code of the request
+     * @param nanos
+     */
+    public void onRoundtrip(MessageCode request, long nanos) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+        roundtrip.record(micros);
+        if (roundtrips != null) {
+            roundtrips[request.ordinal()].record(micros);
+        }
+
+        if (parent != null) {
+            parent.onRoundtrip(request, nanos);
+        }
+    }
+
+    /**
+     * Returns the number of messages.
+     * 
+     * @param dir
+     * @param code
+     * @return
+     */
+    public long getMessages(Direction dir, MessageCode code) {
+        return messages.get(index(dir, code));
+    }
+
+    /**
+     * Returns the number of bytes on the wire, excluding frame headers.
+     * 
+     * @param dir
+     * @param code
+     * @return
+     */
+    public long getBytes(Direction dir, MessageCode code) {
+        return bytes.get(index(dir, code));
+    }
+
+    /**
+     * Returns the total number of messages.
+     * 
+     * @param dir
+     * @return
+     */
+    public long getMessages(Direction dir) {
+        long total = 0;
+        for (MessageCode code : MessageCode.values()) {
+            total += getMessages(dir, code);
+        }
+        return total;
+    }
+
+    /**
+     * Returns the total number of bytes.
+     * 
+     * @param dir
+     * @return
+     */
+    public long getBytes(Direction dir) {
+        long total = 0;
+        for (MessageCode code : MessageCode.values()) {
+            total += getBytes(dir, code);
+        }
+        return total;
+    }
+
+    /**
+     * Returns the histogram of request roundtrips.
+     * 
+     * @return
+     */
+    public Histogram getRoundtrip() {
+        return roundtrip;
+    }
+
+    /**
+     * Returns the latency histogram of a message code, or null if these metrics
+     * are not the global ones.
+     * 
+     * @param dir
+     * @param code
+     * @return
+     */
+    public Histogram getLatency(Direction dir, MessageCode code) {
+        return latencies == null ? null : latencies[index(dir, code)];
+    }
+
+    /**
+     * Returns the roundtrip histogram of a request code, or null if these metrics
+     * are not the global ones.
+     * 
+     * @param request
+     * @return
+     */
+    public Histogram getRoundtrip(MessageCode request) {
+        return roundtrips == null ? null : roundtrips[request.ordinal()];
+    }
+
+    private static int index(Direction dir, MessageCode code) {
+        return dir.ordinal() * CODES + code.ordinal();
+    }
+}
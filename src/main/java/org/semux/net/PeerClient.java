@@ -21,8 +21,6 @@ import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.DefaultMessageSizeEstimator;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.nio.NioSocketChannel;
 
 /**
  * Represents a client which connects to the Semux network.
@@ -36,7 +34,7 @@ public class PeerClient {
 
         @Override
         public Thread newThread(Runnable r) {
-            return new Thread(r, "p2p-client-" + cnt.getAndIncrement());
+            return new Thread(r, "p2p-worker-" + cnt.getAndIncrement());
         }
     };
 
@@ -58,7 +56,7 @@ public class PeerClient {
         this.port = port;
         this.coinbase = coinbase;
 
-        this.workerGroup = new NioEventLoopGroup(0, factory);
+        this.workerGroup = NetTransport.newEventLoopGroup(Config.NET_EVENT_LOOP_THREADS, factory);
     }
 
     /**
@@ -79,6 +77,16 @@ public class PeerClient {
         return port;
     }
 
+    /**
+     * Get the event loops of this client, which can be shared with the
+     * {@link PeerServer}.
+     * 
+     * @return
+     */
+    public EventLoopGroup getWorkerGroup() {
+        return workerGroup;
+    }
+
     /**
      * Get the peerId of this client.
      * 
@@ -126,7 +134,7 @@ public class PeerClient {
     public ChannelFuture connectAsync(InetSocketAddress remoteAddress, SemuxChannelInitializer ci) {
         Bootstrap b = new Bootstrap();
         b.group(workerGroup);
-        b.channel(NioSocketChannel.class);
+        b.channel(NetTransport.getChannelClass());
 
         b.option(ChannelOption.SO_KEEPALIVE, true);
         b.option(ChannelOption.MESSAGE_SIZE_ESTIMATOR, DefaultMessageSizeEstimator.DEFAULT);
@@ -18,8 +18,6 @@ import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.DefaultMessageSizeEstimator;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.handler.logging.LoggingHandler;
 
 /**
@@ -44,30 +42,49 @@ public class PeerServer {
 
     protected EventLoopGroup bossGroup;
     protected EventLoopGroup workerGroup;
+    protected boolean sharedWorkerGroup;
     protected ChannelFuture channelFuture;
 
     public PeerServer(SemuxChannelInitializer channelHandler) {
+        this(channelHandler, null);
+    }
+
+    /**
+     * Create a peer server.
+     * 
+     * @param channelHandler
+     * @param workerGroup
+     *            the event loops of the accepted channels, e.g. the ones of the
+     *            {@link PeerClient}, or null to create them; a shared group is
+     *            not shut down with the server
+     */
+    public PeerServer(SemuxChannelInitializer channelHandler, EventLoopGroup workerGroup) {
         this.channelHandler = channelHandler;
+        this.workerGroup = workerGroup;
+        this.sharedWorkerGroup = workerGroup != null;
     }
 
     public void start(String ip, int port) {
-        bossGroup = new NioEventLoopGroup(1, factory);
-        workerGroup = new NioEventLoopGroup(0, factory);
+        bossGroup = NetTransport.newEventLoopGroup(1, factory);
+        if (!sharedWorkerGroup) {
+            workerGroup = NetTransport.newEventLoopGroup(Config.NET_EVENT_LOOP_THREADS, factory);
+        }
 
         try {
             ServerBootstrap b = new ServerBootstrap();
 
             b.group(bossGroup, workerGroup);
-            b.channel(NioServerSocketChannel.class);
+            b.channel(NetTransport.getServerChannelClass());
 
-            b.option(ChannelOption.SO_KEEPALIVE, true);
+            b.option(ChannelOption.SO_BACKLOG, 1024);
+            b.childOption(ChannelOption.SO_KEEPALIVE, true);
             b.option(ChannelOption.MESSAGE_SIZE_ESTIMATOR, DefaultMessageSizeEstimator.DEFAULT);
             b.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, Config.NET_TIMEOUT_CONNECT);
 
             b.handler(new LoggingHandler());
             b.childHandler(channelHandler);
 
-            logger.info("Starting peer server: address = {}:{}", ip, port);
+            logger.info("Starting peer server: address = {}:{}, epoll = {}", ip, port, NetTransport.isEpoll());
             channelFuture = b.bind(ip, port).sync();
             logger.debug("Binding was sucessfully");
 
@@ -78,7 +95,9 @@ public class PeerServer {
         } catch (Exception e) {
             logger.error("Failed to start peer server", e);
         } finally {
-            workerGroup.shutdownGracefully();
+            if (!sharedWorkerGroup) {
+                workerGroup.shutdownGracefully();
+            }
             bossGroup.shutdownGracefully();
             listening = false;
         }
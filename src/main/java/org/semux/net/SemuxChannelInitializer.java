@@ -18,10 +18,9 @@ import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
-import io.netty.channel.FixedRecvByteBufAllocator;
-import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.channel.socket.SocketChannel;
 
-public class SemuxChannelInitializer extends ChannelInitializer<NioSocketChannel> {
+public class SemuxChannelInitializer extends ChannelInitializer<SocketChannel> {
 
     private static final Logger logger = LoggerFactory.getLogger(SemuxChannelInitializer.class);
 
@@ -64,7 +63,7 @@ public class SemuxChannelInitializer extends ChannelInitializer<NioSocketChannel
     }
 
     @Override
-    public void initChannel(NioSocketChannel ch) throws Exception {
+    public void initChannel(SocketChannel ch) throws Exception {
         try {
             InetSocketAddress address = isInbound() ? ch.remoteAddress() : remoteAddress;
             logger.debug("New {} channel: remoteAddress = {}:{}", isInbound() ? "inbound" : "outbound",
@@ -84,11 +83,12 @@ public class SemuxChannelInitializer extends ChannelInitializer<NioSocketChannel
                 channelMgr.add(channel);
             }
 
-            // limit the size of receiving buffer
+            // size the receiving buffer to the traffic, up to one frame, and bound the
+            // pending writes
             int bufferSize = Frame.HEADER_SIZE + Config.NET_MAX_FRAME_SIZE;
-            ch.config().setRecvByteBufAllocator(new FixedRecvByteBufAllocator(bufferSize));
+            ch.config().setRecvByteBufAllocator(NetTransport.newRecvByteBufAllocator());
             ch.config().setOption(ChannelOption.SO_RCVBUF, bufferSize);
-            ch.config().setOption(ChannelOption.SO_BACKLOG, 1024);
+            ch.config().setWriteBufferWaterMark(NetTransport.getWriteBufferWaterMark());
 
             // notify disconnection to channel manager
             ch.closeFuture().addListener(new ChannelFutureListener() {
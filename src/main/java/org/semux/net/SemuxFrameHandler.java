@@ -29,21 +29,11 @@ public class SemuxFrameHandler extends ByteToMessageCodec<Frame> {
 
     @Override
     protected void encode(ChannelHandlerContext ctx, Frame frame, ByteBuf out) throws Exception {
-        // NOTE: write() operation does not flush automatically
-
-        ByteBuf buf = out.alloc().buffer(Frame.HEADER_SIZE + frame.getSize());
-
-        int index = buf.writerIndex();
-        buf.writeInt(frame.getSize());
-        buf.writeByte(frame.getType());
-        buf.writeByte(frame.getNetwork());
-        buf.writeInt(frame.getPacketId());
-        buf.writeInt(frame.getPacketSize());
-
-        buf.writerIndex(index + Frame.HEADER_SIZE);
-        buf.writeBytes(frame.getPayload());
-
-        ctx.write(buf);
+        // NOTE: messages are encoded into frames by SemuxMessageHandler directly;
+        // this is for frames written to the pipeline as is.
+        Frame.writeHeader(out, frame.getSize(), frame.getType(), frame.getNetwork(), frame.getPacketId(),
+                frame.getPacketSize());
+        out.writeBytes(frame.getPayload(), frame.getPayload().readerIndex(), frame.getSize());
     }
 
     @Override
@@ -69,23 +59,23 @@ public class SemuxFrameHandler extends ByteToMessageCodec<Frame> {
             int packetSize = in.readInt();
 
             in.readerIndex(index + Frame.HEADER_SIZE);
-            byte[] playload = new byte[size];
-            in.readBytes(playload);
-
-            Frame frame = new Frame(size, type, network, packetId, packetSize, playload);
 
             /*
              * If the peer is not in our network, drop connection immediately.
              */
             if (network != Config.NETWORK_ID) {
+                in.skipBytes(size);
                 ctx.close();
                 return;
             }
 
-            if (size < 0 || type < 0 || packetId < 0 || packetSize < 0) {
-                logger.debug("Invalid frame from peer, frame: {}, peer: {}", frame, channel.getRemotePeer());
+            if (size < 0 || packetId < 0 || packetSize < 0) {
+                in.skipBytes(size);
+                logger.debug("Invalid frame from peer, type: {}, packetId: {}, peer: {}", type, packetId,
+                        channel.getRemotePeer());
             } else {
-                out.add(frame);
+                // the payload is a slice of the receive buffer, without copying
+                out.add(new Frame(size, type, network, packetId, packetSize, in.readRetainedSlice(size)));
             }
         }
     }
@@ -6,33 +6,65 @@
  */
 package org.semux.net;
 
-import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.collections4.map.LRUMap;
-import org.apache.commons.lang3.tuple.Pair;
 import org.semux.Config;
+import org.semux.net.NetworkMetrics.Direction;
+import org.semux.net.msg.Compression;
 import org.semux.net.msg.Message;
 import org.semux.net.msg.MessageFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.CompositeByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToMessageCodec;
 
+/**
+ * Encodes messages into frames, and reassembles frames into messages.
+ *
+ * <p>
+ * Outbound messages are written, frame headers included, into one pooled
+ * buffer. Inbound frames are slices of the receive buffer, which are
+ * reassembled into a {@link CompositeByteBuf} without copying; the payload is
+ * copied once, when the message is created.
+ * </p>
+ */
 public class SemuxMessageHandler extends MessageToMessageCodec<Frame, Message> {
 
     private static final Logger logger = LoggerFactory.getLogger(SemuxMessageHandler.class);
 
-    protected Map<Integer, Pair<List<Frame>, AtomicInteger>> incompletePackets = Collections
-            .synchronizedMap(new LRUMap<>(Config.NET_MAX_PACKET_SIZE));
+    /**
+     * A packet being reassembled.
+     */
+    private static class Packet {
+        private final CompositeByteBuf buf;
+        private int remaining;
+
+        Packet(CompositeByteBuf buf, int packetSize) {
+            this.buf = buf;
+            this.remaining = packetSize;
+        }
+    }
+
+    // accessed from the event loop of the channel only
+    protected Map<Integer, Packet> incompletePackets = new LRUMap<Integer, Packet>(Config.NET_MAX_PACKET_SIZE) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeLRU(LinkEntry<Integer, Packet> entry) {
+            entry.getValue().buf.release();
+            return true;
+        }
+    };
 
-    @SuppressWarnings("unused")
     private Channel channel;
+    private NetworkMetrics metrics;
 
     private MessageFactory messageFactory;
 
@@ -40,6 +72,7 @@ public class SemuxMessageHandler extends MessageToMessageCodec<Frame, Message> {
 
     public SemuxMessageHandler(Channel channel) {
         this.channel = channel;
+        this.metrics = (channel != null) ? channel.getMetrics() : new NetworkMetrics();
         this.messageFactory = new MessageFactory();
         this.count = new AtomicInteger(0);
     }
@@ -47,73 +80,102 @@ public class SemuxMessageHandler extends MessageToMessageCodec<Frame, Message> {
     @Override
     protected void encode(ChannelHandlerContext ctx, Message msg, List<Object> out) throws Exception {
         byte[] encoded = msg.getEncoded();
+        byte type = msg.getCode().toByte();
+
+        // compressed encodings are cached by the message
+        if (channel != null && channel.isCompressed() && encoded.length >= Config.NET_COMPRESSION_THRESHOLD) {
+            byte[] compressed = msg.getCompressed();
+            if (compressed.length < encoded.length) {
+                encoded = compressed;
+                type |= Frame.COMPRESSED;
+            }
+        }
+
+        metrics.onMessage(Direction.OUT, msg.getCode(), encoded.length);
         int packetId = count.incrementAndGet() % Integer.MAX_VALUE;
         int packetSize = encoded.length;
-        byte type = msg.getCode().toByte();
         byte network = Config.NETWORK_ID;
 
         int limit = Config.NET_MAX_FRAME_SIZE;
-        int total = (encoded.length - 1) / limit + 1;
+        int total = Math.max(1, (encoded.length + limit - 1) / limit);
+
+        ByteBuf buf = ctx.alloc().ioBuffer(total * Frame.HEADER_SIZE + encoded.length);
         for (int i = 0; i < total; i++) {
-            byte[] playload = new byte[(i < total - 1) ? limit : encoded.length % limit];
-            System.arraycopy(encoded, i * limit, playload, 0, playload.length);
+            int offset = i * limit;
+            int size = Math.min(limit, encoded.length - offset);
 
-            Frame f = new Frame(playload.length, type, network, packetId, packetSize, playload);
-            out.add(f);
+            Frame.writeHeader(buf, size, type, network, packetId, packetSize);
+            buf.writeBytes(encoded, offset, size);
         }
+        out.add(buf);
     }
 
     @Override
     protected void decode(ChannelHandlerContext ctx, Frame frame, List<Object> out) throws Exception {
         if (frame.isSingleFrame()) {
-            Message msg = decodeMessage(ctx, Collections.singletonList(frame));
+            addMessage(frame.getType(), frame.getPayload(), out);
+            return;
+        }
 
-            if (msg == null) {
-                logger.debug("Failed to decode packet into message: {}", frame);
-            } else {
-                out.add(msg);
-            }
-        } else {
-            int packetId = frame.getPacketId();
-            Pair<List<Frame>, AtomicInteger> pair = incompletePackets.get(packetId);
-            if (pair == null) {
-                pair = Pair.of(new ArrayList<>(), new AtomicInteger(frame.getPacketSize()));
-                incompletePackets.put(packetId, pair);
-            }
+        int packetId = frame.getPacketId();
+        if (frame.getPacketSize() > Config.NET_MAX_PACKET_SIZE * Config.NET_MAX_FRAME_SIZE) {
+            logger.debug("Packet too large, packetId: {}, size: {}", packetId, frame.getPacketSize());
+            return;
+        }
+
+        Packet packet = incompletePackets.get(packetId);
+        if (packet == null) {
+            packet = new Packet(ctx.alloc().compositeBuffer(Config.NET_MAX_PACKET_SIZE), frame.getPacketSize());
+            incompletePackets.put(packetId, packet);
+        }
 
-            pair.getLeft().add(frame);
-            int remaining = pair.getRight().addAndGet(-frame.getSize());
-            if (remaining == 0) {
-                Message msg = decodeMessage(ctx, pair.getLeft());
-
-                if (msg == null) {
-                    logger.debug("Failed to decode packets into message, 1st/{}: {}", pair.getLeft().size(), frame);
-                } else {
-                    out.add(msg);
-                }
-            } else if (remaining < 0) {
-                logger.debug("Corrupted packet, packetId: {}", packetId);
-                incompletePackets.remove(packetId);
+        // the frame is released by the codec after decoding, so keep a reference
+        packet.buf.addComponent(true, frame.getPayload().retain());
+        packet.remaining -= frame.getSize();
+        if (packet.remaining == 0) {
+            incompletePackets.remove(packetId);
+            try {
+                addMessage(frame.getType(), packet.buf, out);
+            } finally {
+                packet.buf.release();
             }
+        } else if (packet.remaining < 0) {
+            logger.debug("Corrupted packet, packetId: {}", packetId);
+            incompletePackets.remove(packetId);
+            packet.buf.release();
         }
     }
 
-    private Message decodeMessage(ChannelHandlerContext ctx, List<Frame> frames) throws IOException {
-        if (frames == null || frames.isEmpty()) {
-            return null;
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+        for (Packet packet : incompletePackets.values()) {
+            packet.buf.release();
         }
-        Frame head = frames.get(0);
+        incompletePackets.clear();
+        super.handlerRemoved(ctx);
+    }
 
-        byte type = head.getType();
-        int packetSize = head.getPacketSize();
+    private void addMessage(byte type, ByteBuf payload, List<Object> out) {
+        int size = payload.readableBytes();
 
-        byte[] buffer = new byte[packetSize];
-        int pos = 0;
-        for (Frame frame : frames) {
-            System.arraycopy(frame.getPayload(), 0, buffer, pos, frame.getSize());
-            pos += frame.getSize();
+        byte[] encoded;
+        if ((type & Frame.COMPRESSED) != 0) {
+            type &= ~Frame.COMPRESSED;
+            encoded = Compression.decompress(payload, Config.NET_MAX_PACKET_SIZE * Config.NET_MAX_FRAME_SIZE);
+            if (encoded == null) {
+                logger.debug("Failed to decompress packet, type: {}, size: {}", type, size);
+                return;
+            }
+        } else {
+            encoded = ByteBufUtil.getBytes(payload);
         }
 
-        return messageFactory.create(type, buffer);
+        Message msg = messageFactory.create(type, encoded);
+        if (msg == null) {
+            logger.debug("Failed to decode packet into message, type: {}, size: {}", type, size);
+        } else {
+            metrics.onMessage(Direction.IN, msg.getCode(), size);
+            out.add(msg);
+        }
     }
-}
\ No newline at end of file
+}
@@ -6,6 +6,9 @@
  */
 package org.semux.net;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
@@ -23,23 +26,35 @@ import org.semux.core.Blockchain;
 import org.semux.core.Consensus;
 import org.semux.core.PendingManager;
 import org.semux.core.Sync;
+import org.semux.core.Transaction;
+import org.semux.net.NetworkMetrics.Direction;
+import org.semux.net.msg.Compression;
 import org.semux.net.msg.Message;
+import org.semux.net.msg.MessageClass;
 import org.semux.net.msg.MessageQueue;
 import org.semux.net.msg.MessageRoundtrip;
 import org.semux.net.msg.ReasonCode;
 import org.semux.net.msg.consensus.BFTNewHeightMessage;
 import org.semux.net.msg.consensus.BlockHeaderMessage;
+import org.semux.net.msg.consensus.BlockHeadersMessage;
 import org.semux.net.msg.consensus.BlockMessage;
+import org.semux.net.msg.consensus.BlocksMessage;
 import org.semux.net.msg.consensus.GetBlockHeaderMessage;
+import org.semux.net.msg.consensus.GetBlockHeadersMessage;
 import org.semux.net.msg.consensus.GetBlockMessage;
+import org.semux.net.msg.consensus.GetBlocksMessage;
 import org.semux.net.msg.p2p.DisconnectMessage;
 import org.semux.net.msg.p2p.GetNodesMessage;
+import org.semux.net.msg.p2p.GetTransactionsMessage;
 import org.semux.net.msg.p2p.HelloMessage;
 import org.semux.net.msg.p2p.NodesMessage;
 import org.semux.net.msg.p2p.PingMessage;
 import org.semux.net.msg.p2p.PongMessage;
+import org.semux.net.msg.p2p.TransactionHashesMessage;
 import org.semux.net.msg.p2p.TransactionMessage;
+import org.semux.net.msg.p2p.TransactionsMessage;
 import org.semux.net.msg.p2p.WorldMessage;
+import org.semux.utils.TokenBucket;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -53,7 +68,17 @@ public class SemuxP2pHandler extends SimpleChannelInboundHandler<Message> {
 
     private final static Logger logger = LoggerFactory.getLogger(SemuxP2pHandler.class);
 
-    private final static short[] SUPPORTED_VERSIONS = { Config.P2P_VERSION };
+    private final static short[] SUPPORTED_VERSIONS = { 1, 2, 3, 4, Config.P2P_VERSION };
+
+    /**
+     * The first P2P version which accepts compact block votes.
+     */
+    private final static short COMPACT_VOTES_VERSION = 2;
+
+    /**
+     * Maximum size of the blocks in one BLOCKS message, in bytes.
+     */
+    private final static int MAX_BLOCKS_BYTES = 4 * 1024 * 1024;
 
     private Channel channel;
 
@@ -65,6 +90,9 @@ public class SemuxP2pHandler extends SimpleChannelInboundHandler<Message> {
     private MessageQueue msgQueue;
     private PeerClient client;
 
+    private Map<MessageClass, TokenBucket> inbound = MessageClass.newBuckets(Config.NET_INBOUND_RATES);
+    private boolean isThrottled;
+
     private boolean isHandshakeDone;
     private Sync sync;
     private Consensus consenus;
@@ -119,7 +147,7 @@ public class SemuxP2pHandler extends SimpleChannelInboundHandler<Message> {
         if (!channel.isInbound()) {
             Peer peer = new Peer(client.getIp(), client.getPort(), Config.P2P_VERSION, Config.getClientId(false),
                     client.getPeerId(), chain.getLatestBlockNumber());
-            HelloMessage msg = new HelloMessage(peer, client.getCoinbase());
+            HelloMessage msg = new HelloMessage(peer, client.getCoinbase(), getCompression());
             msgQueue.sendMessage(msg);
         }
     }
@@ -131,6 +159,13 @@ public class SemuxP2pHandler extends SimpleChannelInboundHandler<Message> {
         stopTimers();
     }
 
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        msgQueue.onWritabilityChanged();
+
+        super.channelWritabilityChanged(ctx);
+    }
+
     @Override
     public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
         logger.debug("Exception in P2P handler, cid = {}", channel.getId(), cause);
@@ -145,6 +180,20 @@ public class SemuxP2pHandler extends SimpleChannelInboundHandler<Message> {
         logger.trace("Received message: " + msg);
         MessageRoundtrip mr = msgQueue.receivedMessage(msg);
 
+        if (!admit(ctx, msg)) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            process(ctx, msg, mr);
+        } finally {
+            channel.getMetrics().onLatency(Direction.IN, msg.getCode(), System.nanoTime() - start);
+        }
+    }
+
+    private void process(final ChannelHandlerContext ctx, Message msg, MessageRoundtrip mr)
+            throws InterruptedException {
         switch (msg.getCode()) {
         /* p2p */
         case DISCONNECT: {
@@ -162,7 +211,7 @@ public class SemuxP2pHandler extends SimpleChannelInboundHandler<Message> {
                 error = ReasonCode.BAD_PROTOCOL;
             } else if (client.getPeerId().equals(peer.getPeerId()) || channelMgr.isActivePeer(peer.getPeerId())) {
                 error = ReasonCode.DUPLICATE_PEER_ID;
-            } else if (chain.getValidators().contains(peer.getPeerId()) // is validator
+            } else if (chain.getValidatorSet().contains(peer.getPeerId()) // is validator
                     && channelMgr.isActiveIP(channel.getRemoteIp()) // connected
                     && Config.isMainNet()) { // main net
                 error = ReasonCode.BAD_PEER;
@@ -172,12 +221,13 @@ public class SemuxP2pHandler extends SimpleChannelInboundHandler<Message> {
 
             if (error == null) {
                 // update peer state
+                channel.setCompression(helloMsg.getCompression());
                 channel.onActive(peer);
 
                 // reply with a WORLD message
                 peer = new Peer(client.getIp(), client.getPort(), Config.P2P_VERSION, Config.getClientId(false),
                         client.getPeerId(), chain.getLatestBlockNumber());
-                WorldMessage worldMsg = new WorldMessage(peer, client.getCoinbase());
+                WorldMessage worldMsg = new WorldMessage(peer, client.getCoinbase(), getCompression());
                 msgQueue.sendMessage(worldMsg);
 
                 // handshake done
@@ -191,6 +241,7 @@ public class SemuxP2pHandler extends SimpleChannelInboundHandler<Message> {
             // update peer state
             WorldMessage worldMsg = (WorldMessage) msg;
             Peer peer = worldMsg.getPeer();
+            channel.setCompression(worldMsg.getCompression());
             channel.onActive(peer);
 
             // handshake done
@@ -221,22 +272,64 @@ public class SemuxP2pHandler extends SimpleChannelInboundHandler<Message> {
         }
         case TRANSACTION: {
             TransactionMessage transactionMsg = (TransactionMessage) msg;
+            channel.addKnownTransaction(transactionMsg.getTransaction().getHash());
             pendingMgr.addTransaction(transactionMsg.getTransaction());
             break;
         }
+        case TRANSACTIONS: {
+            TransactionsMessage transactionsMsg = (TransactionsMessage) msg;
+            List<Transaction> txs = new ArrayList<>();
+            for (byte[] bytes : transactionsMsg.getEncodedTransactions()) {
+                // drop duplicates before decoding
+                byte[] hash = Transaction.hashOf(bytes);
+                channel.addKnownTransaction(hash);
+                if (!pendingMgr.isSeen(hash)) {
+                    txs.add(Transaction.fromBytes(bytes));
+                }
+            }
+            pendingMgr.addTransactions(txs);
+            break;
+        }
+        case TRANSACTION_HASHES: {
+            if (isHandshakeDone) {
+                TransactionHashesMessage m = (TransactionHashesMessage) msg;
+                pendingMgr.onTransactionHashes(channel, m.getHashes());
+            }
+            break;
+        }
+        case GET_TRANSACTIONS: {
+            if (isHandshakeDone) {
+                GetTransactionsMessage m = (GetTransactionsMessage) msg;
+                pendingMgr.onGetTransactions(channel, m.getHashes());
+            }
+            break;
+        }
 
         /* sync */
         case GET_BLOCK: {
             if (isHandshakeDone) {
                 GetBlockMessage m = (GetBlockMessage) msg;
                 Block block = chain.getBlock(m.getNumber());
-                channel.getMessageQueue().sendMessage(new BlockMessage(block));
+                if (channel.getRemotePeer().getP2pVersion() >= COMPACT_VOTES_VERSION) {
+                    channel.getMessageQueue().sendMessage(new BlockMessage(block, chain.getValidatorKeys()));
+                } else {
+                    channel.getMessageQueue().sendMessage(new BlockMessage(block));
+                }
             }
             break;
         }
-        case BLOCK: {
+        case GET_BLOCKS: {
             if (isHandshakeDone) {
-                sync.onMessage(channel, msg);
+                GetBlocksMessage m = (GetBlocksMessage) msg;
+                onGetBlocks(m.getFrom(), m.getCount());
+            }
+            break;
+        }
+        case BLOCK:
+        case BLOCKS: {
+            // blocks outside of sync are for the consensus catch-up
+            if (isHandshakeDone && !sync.onMessage(channel, msg)) {
+                consenus.onMessage(channel, msg);
             }
             break;
         }
@@ -248,7 +341,15 @@ public class SemuxP2pHandler extends SimpleChannelInboundHandler<Message> {
             }
             break;
         }
-        case BLOCK_HEADER: {
+        case GET_BLOCK_HEADERS: {
+            if (isHandshakeDone) {
+                GetBlockHeadersMessage m = (GetBlockHeadersMessage) msg;
+                onGetBlockHeaders(m.getFrom(), m.getCount());
+            }
+            break;
+        }
+        case BLOCK_HEADER:
+        case BLOCK_HEADERS: {
             if (isHandshakeDone) {
                 sync.onMessage(channel, msg);
             }
@@ -298,6 +399,63 @@ public class SemuxP2pHandler extends SimpleChannelInboundHandler<Message> {
         }
     }
 
+    /**
+     * Streams a range of blocks to the peer, in their stored encoding. The range
+     * is split into multiple BLOCKS messages of at most {@link #MAX_BLOCKS_BYTES}
+     * each, and ends at the first missing block.
+     * 
+     * @param from
+     * @param count
+     */
+    private void onGetBlocks(long from, int count) {
+        long to = Math.min(chain.getLatestBlockNumber(), from + Math.min(count, GetBlocksMessage.MAX_COUNT) - 1);
+
+        long start = from;
+        List<byte[]> blocks = new ArrayList<>();
+        int size = 0;
+        for (long i = from; i <= to; i++) {
+            byte[] b = chain.getBlockBytes(i);
+            if (b == null) {
+                break;
+            }
+
+            if (!blocks.isEmpty() && size + b.length > MAX_BLOCKS_BYTES) {
+                msgQueue.sendMessage(new BlocksMessage(start, blocks));
+                start = i;
+                blocks = new ArrayList<>();
+                size = 0;
+            }
+            blocks.add(b);
+            size += b.length;
+        }
+
+        if (!blocks.isEmpty()) {
+            msgQueue.sendMessage(new BlocksMessage(start, blocks));
+        }
+    }
+
+    /**
+     * Sends a range of block headers to the peer, ending at the first missing
+     * header.
+     * 
+     * @param from
+     * @param count
+     */
+    private void onGetBlockHeaders(long from, int count) {
+        long to = Math.min(chain.getLatestBlockNumber(), from + Math.min(count, GetBlockHeadersMessage.MAX_COUNT) - 1);
+
+        List<BlockHeader> headers = new ArrayList<>();
+        for (long i = from; i <= to; i++) {
+            BlockHeader h = chain.getBlockHeader(i);
+            if (h == null) {
+                break;
+            }
+            headers.add(h);
+        }
+
+        msgQueue.sendMessage(new BlockHeadersMessage(from, headers));
+    }
+
     /**
      * Returns whether the p2p version is supported.
      * 
@@ -308,6 +466,44 @@ public class SemuxP2pHandler extends SimpleChannelInboundHandler<Message> {
         return ArrayUtils.contains(SUPPORTED_VERSIONS, version);
     }
 
+    /**
+     * Applies the inbound rate of the message's class. Transactions beyond the
+     * rate are dropped; other messages are processed, but reading from the peer
+     * pauses until it's back within the rate.
+     * 
+     * @param ctx
+     * @param msg
+     * @return whether the message should be processed
+     */
+    private boolean admit(ChannelHandlerContext ctx, Message msg) {
+        MessageClass c = MessageClass.of(msg.getCode());
+        TokenBucket bucket = inbound.get(c);
+
+        if (c == MessageClass.TX) {
+            if (!bucket.tryConsume(1)) {
+                logger.trace("Dropped message over the inbound rate: {}", msg);
+                return false;
+            }
+            return true;
+        }
+
+        long delay = bucket.consume(1);
+        if (delay > 0 && !isThrottled) {
+            logger.trace("Pausing reads for {} ns, cid = {}", delay, channel.getId());
+            isThrottled = true;
+            ctx.channel().config().setAutoRead(false);
+            ctx.executor().schedule(() -> {
+                isThrottled = false;
+                ctx.channel().config().setAutoRead(true);
+            }, delay, TimeUnit.NANOSECONDS);
+        }
+        return true;
+    }
+
+    private static byte getCompression() {
+        return Config.NET_COMPRESSION ? Compression.SNAPPY : Compression.NONE;
+    }
+
     /**
      * Stops all scheduled timers and the message queue.
      */
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2017 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.net;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.semux.Config;
+import org.semux.core.Transaction;
+import org.semux.net.msg.p2p.TransactionMessage;
+import org.semux.net.msg.p2p.TransactionsMessage;
+
+/**
+ * Aggregates the transactions to be relayed to one peer into
+ * <code>TRANSACTIONS</code> messages. A batch is flushed when it reaches the
+ * maximum frame size, or when the relay window expires. Peers older than
+ * {@link #BATCH_VERSION} receive one <code>TRANSACTION</code> message per
+ * transaction instead.
+ */
+public class TransactionRelay {
+
+    private static final ScheduledExecutorService timer = Executors.newScheduledThreadPool(1, new ThreadFactory() {
+        private AtomicInteger cnt = new AtomicInteger(0);
+
+        public Thread newThread(Runnable r) {
+            return new Thread(r, "tx-relay-" + cnt.getAndIncrement());
+        }
+    });
+
+    private static final long RELAY_WINDOW = 20; // 20ms
+
+    private static final int MAX_BATCH_BYTES = Config.NET_MAX_FRAME_SIZE - 4;
+
+    /**
+     * The first P2P version which accepts <code>TRANSACTIONS</code> messages.
+     */
+    private static final short BATCH_VERSION = 5;
+
+    private Channel channel;
+
+    private List<Transaction> batch = new ArrayList<>();
+    private int batchBytes = 0;
+    private ScheduledFuture<?> flushTask;
+
+    /**
+     * Create a transaction relay on top of the message queue of the given
+     * channel.
+     * 
+     * @param channel
+     */
+    public TransactionRelay(Channel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Adds a transaction to the current batch.
+     * 
+     * @param tx
+     */
+    public synchronized void add(Transaction tx) {
+        int size = 4 + tx.size();
+        if (batchBytes + size > MAX_BATCH_BYTES) {
+            flush();
+        }
+
+        batch.add(tx);
+        batchBytes += size;
+
+        if (flushTask == null) {
+            flushTask = timer.schedule(() -> {
+                flush();
+            }, RELAY_WINDOW, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Sends the current batch, if not empty.
+     */
+    public synchronized void flush() {
+        if (flushTask != null) {
+            flushTask.cancel(false);
+            flushTask = null;
+        }
+
+        if (!batch.isEmpty()) {
+            Peer peer = channel.getRemotePeer();
+            if (peer != null && peer.getP2pVersion() >= BATCH_VERSION) {
+                channel.getMessageQueue().sendMessage(new TransactionsMessage(batch));
+            } else {
+                for (Transaction tx : batch) {
+                    channel.getMessageQueue().sendMessage(new TransactionMessage(tx));
+                }
+            }
+
+            batch = new ArrayList<>();
+            batchBytes = 0;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2017 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.net.msg;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.compression.Snappy;
+
+/**
+ * Compression of encoded messages, which is advertised in HELLO and WORLD.
+ *
+ * <p>
+ * Data is compressed with Snappy in blocks, since the block encoder addresses
+ * its input with 16-bit offsets. The format is the length of the uncompressed
+ * data, followed by the blocks, each prefixed with its compressed length.
+ * </p>
+ */
+public class Compression {
+
+    /**
+     * No compression.
+     */
+    public static final byte NONE = 0;
+
+    /**
+     * Snappy, in blocks.
+     */
+    public static final byte SNAPPY = 1;
+
+    private static final int BLOCK_SIZE = Short.MAX_VALUE;
+
+    private Compression() {
+    }
+
+    /**
+     * Compresses the given data.
+     * 
+     * @param data
+     * @return
+     */
+    public static byte[] compress(byte[] data) {
+        ByteBuf in = Unpooled.wrappedBuffer(data);
+        ByteBuf out = Unpooled.buffer(data.length / 2 + 16);
+
+        Snappy snappy = new Snappy();
+        out.writeInt(data.length);
+        while (in.isReadable()) {
+            int length = Math.min(BLOCK_SIZE, in.readableBytes());
+
+            // the encoder expects the block to start at the reader index 0
+            ByteBuf block = in.readSlice(length);
+
+            int lengthIndex = out.writerIndex();
+            out.writeInt(0);
+            snappy.encode(block, out, length);
+            snappy.reset();
+            out.setInt(lengthIndex, out.writerIndex() - lengthIndex - 4);
+        }
+
+        return ByteBufUtil.getBytes(out);
+    }
+
+    /**
+     * Decompresses the given data.
+     * 
+     * @param in
+     *            compressed data, which is consumed
+     * @param maxSize
+     *            maximum size of the uncompressed data
+     * @return the uncompressed data, or null if the data is corrupted or too
+     *         large
+     */
+    public static byte[] decompress(ByteBuf in, int maxSize) {
+        try {
+            int length = in.readInt();
+            if (length < 0 || length > maxSize) {
+                return null;
+            }
+
+            byte[] data = new byte[length];
+            ByteBuf out = Unpooled.wrappedBuffer(data);
+            out.writerIndex(0);
+
+            Snappy snappy = new Snappy();
+            while (in.isReadable()) {
+                int size = in.readInt();
+                snappy.decode(in.readSlice(size), out);
+                snappy.reset();
+            }
+
+            return out.writerIndex() == length ? data : null;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+}
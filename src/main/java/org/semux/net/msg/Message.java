@@ -29,6 +29,11 @@ public abstract class Message {
      */
     protected byte[] encoded;
 
+    /**
+     * compressed encoding, shared by all the channels the message is sent to.
+     */
+    private volatile byte[] compressed;
+
     /**
      * Create a message instance.
      * 
@@ -51,6 +56,20 @@ public abstract class Message {
         return encoded;
     }
 
+    /**
+     * Get the compressed encoding of this message, which is computed once.
+     * 
+     * @return
+     */
+    public byte[] getCompressed() {
+        byte[] c = compressed;
+        if (c == null) {
+            c = Compression.compress(getEncoded());
+            compressed = c;
+        }
+        return c;
+    }
+
     /**
      * Get the message code
      * 
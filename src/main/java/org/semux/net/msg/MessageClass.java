@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2017 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.net.msg;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.semux.utils.TokenBucket;
+
+/**
+ * Traffic classes of messages, which are rate limited and scheduled
+ * separately.
+ */
+public enum MessageClass {
+
+    /**
+     * BFT messages.
+     */
+    CONSENSUS,
+
+    /**
+     * Block and block header requests and responses.
+     */
+    SYNC,
+
+    /**
+     * Transaction relay.
+     */
+    TX,
+
+    /**
+     * Handshake, ping and peer discovery.
+     */
+    DISCOVERY;
+
+    /**
+     * Returns the class of a message code.
+     * 
+     * @param code
+     * @return
+     */
+    public static MessageClass of(MessageCode code) {
+        switch (code) {
+        case BFT_NEW_HEIGHT:
+        case BFT_NEW_VIEW:
+        case BFT_PROPOSAL:
+        case BFT_VOTE:
+            return CONSENSUS;
+        case GET_BLOCK:
+        case BLOCK:
+        case GET_BLOCK_HEADER:
+        case BLOCK_HEADER:
+        case GET_BLOCKS:
+        case BLOCKS:
+        case GET_BLOCK_HEADERS:
+        case BLOCK_HEADERS:
+            return SYNC;
+        case TRANSACTION:
+        case TRANSACTION_HASHES:
+        case GET_TRANSACTIONS:
+        case TRANSACTIONS:
+            return TX;
+        default:
+            return DISCOVERY;
+        }
+    }
+
+    /**
+     * Creates a token bucket for each class.
+     * 
+     * @param rates
+     *            messages per second of each class; missing or non-positive for
+     *            unlimited
+     * @return
+     */
+    public static Map<MessageClass, TokenBucket> newBuckets(Map<MessageClass, Integer> rates) {
+        Map<MessageClass, TokenBucket> buckets = new EnumMap<>(MessageClass.class);
+        for (MessageClass c : values()) {
+            buckets.put(c, new TokenBucket(rates.getOrDefault(c, 0)));
+        }
+        return buckets;
+    }
+}
@@ -52,6 +52,21 @@ public enum MessageCode {
      */
     TRANSACTION(0x07),
 
+    /**
+     * [0x08] Announce the hashes of new transactions.
+     */
+    TRANSACTION_HASHES(0x08),
+
+    /**
+     * [0x09] Request transactions by their hashes.
+     */
+    GET_TRANSACTIONS(0x09),
+
+    /**
+     * [0x0a] Propagate a batch of transactions.
+     */
+    TRANSACTIONS(0x0a),
+
     // =======================================
     // [0x30, 0x3f] Reserved for sync
     // =======================================
@@ -67,15 +82,35 @@ public enum MessageCode {
     BLOCK(0x31),
 
     /**
-     * [0x32] Request a block from the peer.
+     * [0x32] Request a block header from the peer.
      */
     GET_BLOCK_HEADER(0x32),
 
     /**
-     * [0x33] Response containing a block.
+     * [0x33] Response containing a block header.
      */
     BLOCK_HEADER(0x33),
 
+    /**
+     * [0x34] Request a range of blocks from the peer.
+     */
+    GET_BLOCKS(0x34),
+
+    /**
+     * [0x35] Response containing consecutive blocks.
+     */
+    BLOCKS(0x35),
+
+    /**
+     * [0x36] Request a range of block headers from the peer.
+     */
+    GET_BLOCK_HEADERS(0x36),
+
+    /**
+     * [0x37] Response containing consecutive block headers.
+     */
+    BLOCK_HEADERS(0x37),
+
     // =======================================
     // [0x40, 0x4f] Reserved for BFT
     // =======================================
@@ -11,16 +11,23 @@ import org.semux.net.msg.consensus.BFTNewViewMessage;
 import org.semux.net.msg.consensus.BFTProposalMessage;
 import org.semux.net.msg.consensus.BFTVoteMessage;
 import org.semux.net.msg.consensus.BlockHeaderMessage;
+import org.semux.net.msg.consensus.BlockHeadersMessage;
 import org.semux.net.msg.consensus.BlockMessage;
+import org.semux.net.msg.consensus.BlocksMessage;
 import org.semux.net.msg.consensus.GetBlockHeaderMessage;
+import org.semux.net.msg.consensus.GetBlockHeadersMessage;
 import org.semux.net.msg.consensus.GetBlockMessage;
+import org.semux.net.msg.consensus.GetBlocksMessage;
 import org.semux.net.msg.p2p.DisconnectMessage;
 import org.semux.net.msg.p2p.GetNodesMessage;
+import org.semux.net.msg.p2p.GetTransactionsMessage;
 import org.semux.net.msg.p2p.HelloMessage;
 import org.semux.net.msg.p2p.NodesMessage;
 import org.semux.net.msg.p2p.PingMessage;
 import org.semux.net.msg.p2p.PongMessage;
+import org.semux.net.msg.p2p.TransactionHashesMessage;
 import org.semux.net.msg.p2p.TransactionMessage;
+import org.semux.net.msg.p2p.TransactionsMessage;
 import org.semux.net.msg.p2p.WorldMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -62,6 +69,12 @@ public class MessageFactory {
                 return new NodesMessage(encoded);
             case TRANSACTION:
                 return new TransactionMessage(encoded);
+            case TRANSACTION_HASHES:
+                return new TransactionHashesMessage(encoded);
+            case GET_TRANSACTIONS:
+                return new GetTransactionsMessage(encoded);
+            case TRANSACTIONS:
+                return new TransactionsMessage(encoded);
 
             case GET_BLOCK:
                 return new GetBlockMessage(encoded);
@@ -71,6 +84,14 @@ public class MessageFactory {
                 return new GetBlockHeaderMessage(encoded);
             case BLOCK_HEADER:
                 return new BlockHeaderMessage(encoded);
+            case GET_BLOCKS:
+                return new GetBlocksMessage(encoded);
+            case BLOCKS:
+                return new BlocksMessage(encoded);
+            case GET_BLOCK_HEADERS:
+                return new GetBlockHeadersMessage(encoded);
+            case BLOCK_HEADERS:
+                return new BlockHeadersMessage(encoded);
 
             case BFT_NEW_HEIGHT:
                 return new BFTNewHeightMessage(encoded);
@@ -6,17 +6,19 @@
  */
 package org.semux.net.msg;
 
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.semux.Config;
+import org.semux.net.NetworkMetrics;
+import org.semux.net.NetworkMetrics.Direction;
 import org.semux.net.msg.p2p.DisconnectMessage;
+import org.semux.utils.TokenBucket;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -26,27 +28,51 @@ import io.netty.channel.ChannelHandlerContext;
 /**
  * This class contains the logic for sending messages.
  * 
+ * <p>
+ * The queue is drained on the channel's event loop, when a message is enqueued,
+ * when a request is answered and when the channel becomes writable again. Each
+ * round writes up to {@link Config#NET_MAX_QUEUE_BATCH} messages while the
+ * channel is writable, then flushes once; if more are left, the next round
+ * runs after {@link Config#NET_MAX_QUEUE_RATE}. Since a round is bounded, the
+ * channels sharing an event loop take turns. Requests are sent one at a time,
+ * each after the previous one is answered.
+ * </p>
+ * 
+ * <p>
+ * Consensus messages, see {@link Config#PRIORITIZED_MESSAGES}, go through a
+ * separate lane which is written first in every round, regardless of the batch
+ * size, so they never wait behind sync or transaction traffic. Other messages
+ * are queued by {@link MessageClass}, and the classes take turns of
+ * {@link Config#NET_SCHEDULE_WEIGHTS} messages each.
+ * </p>
+ * 
+ * <p>
+ * Every class is limited by a token bucket of
+ * {@link Config#NET_OUTBOUND_RATES}; a class out of tokens waits without
+ * holding up the others.
+ * </p>
  */
 public class MessageQueue {
 
     private static final Logger logger = LoggerFactory.getLogger(MessageQueue.class);
 
-    private static final ScheduledExecutorService timer = Executors.newScheduledThreadPool(1, new ThreadFactory() {
-        private AtomicInteger cnt = new AtomicInteger(0);
-
-        public Thread newThread(Runnable r) {
-            return new Thread(r, "msg-queue-" + cnt.getAndIncrement());
-        }
-    });
+    private static final MessageClass[] LANES = { MessageClass.SYNC, MessageClass.TX, MessageClass.DISCOVERY };
 
     private Queue<MessageRoundtrip> requests = new ConcurrentLinkedQueue<>();
-    private Queue<MessageRoundtrip> responses = new ConcurrentLinkedQueue<>();
-    private Queue<MessageRoundtrip> prioritizedResponses = new ConcurrentLinkedQueue<>();
+    private Map<MessageClass, Queue<MessageRoundtrip>> lanes = new EnumMap<>(MessageClass.class);
+    private Map<MessageClass, TokenBucket> buckets = MessageClass.newBuckets(Config.NET_OUTBOUND_RATES);
+
+    // consensus lane
+    private Queue<MessageRoundtrip> consensus = new ConcurrentLinkedQueue<>();
+    private AtomicLong consensusSent = new AtomicLong(0);
+    private AtomicLong consensusLatency = new AtomicLong(0);
+    private AtomicLong consensusMaxLatency = new AtomicLong(0);
 
     private ChannelHandlerContext ctx = null;
     private int maxQueueSize;
+    private NetworkMetrics metrics;
 
-    private ScheduledFuture<?> timerTask;
+    private AtomicBoolean drainPending = new AtomicBoolean(false);
     private volatile boolean isRunning;
 
     /**
@@ -63,26 +89,36 @@ public class MessageQueue {
      * @param maxQueueSize
      */
     public MessageQueue(int maxQueueSize) {
+        this(maxQueueSize, new NetworkMetrics());
+    }
+
+    /**
+     * Create a message queue with the specified maximum queue size, which records
+     * into the given metrics.
+     * 
+     * @param maxQueueSize
+     * @param metrics
+     */
+    public MessageQueue(int maxQueueSize, NetworkMetrics metrics) {
         this.maxQueueSize = maxQueueSize;
+        this.metrics = metrics;
+
+        for (MessageClass c : LANES) {
+            lanes.put(c, new ConcurrentLinkedQueue<>());
+        }
     }
 
     /**
-     * Bind this message queue to a channel, and start scheduled sending.
+     * Bind this message queue to a channel, and start sending.
      * 
      * @param ctx
      */
     public void activate(ChannelHandlerContext ctx) {
         if (!isRunning) {
             this.ctx = ctx;
-            this.timerTask = timer.scheduleAtFixedRate(() -> {
-                try {
-                    nudgeQueue();
-                } catch (Throwable t) {
-                    logger.error("Exception in MessageQueue", t);
-                }
-            }, Config.NET_MAX_QUEUE_RATE, Config.NET_MAX_QUEUE_RATE, TimeUnit.MILLISECONDS);
-
             this.isRunning = true;
+
+            scheduleDrain();
         }
     }
 
@@ -91,19 +127,26 @@ public class MessageQueue {
      */
     public void close() {
         if (isRunning) {
-            this.timerTask.cancel(false);
-
             this.isRunning = false;
         }
     }
 
+    /**
+     * Notify this message queue that the writability of the channel has changed.
+     */
+    public void onWritabilityChanged() {
+        if (ctx.channel().isWritable()) {
+            scheduleDrain();
+        }
+    }
+
     /**
      * Check if this message queue is idle.
      * 
-     * @return true if both request and response queues are empty, otherwise false
+     * @return true if all queues are empty, otherwise false
      */
     public boolean isIdle() {
-        return requests.isEmpty() && responses.isEmpty() && prioritizedResponses.isEmpty();
+        return requests.isEmpty() && consensus.isEmpty() && lanes.values().stream().allMatch(Queue::isEmpty);
     }
 
     /**
@@ -141,24 +184,97 @@ public class MessageQueue {
             return false;
         }
 
-        if (requests.size() >= maxQueueSize || responses.size() >= maxQueueSize
-                || prioritizedResponses.size() >= maxQueueSize) {
+        Queue<MessageRoundtrip> queue;
+        if (Config.PRIORITIZED_MESSAGES.contains(msg.getCode())) {
+            queue = consensus;
+        } else if (msg.getResponseMessageClass() != null) {
+            queue = requests;
+        } else {
+            MessageClass c = MessageClass.of(msg.getCode());
+            queue = lanes.get(c == MessageClass.CONSENSUS ? MessageClass.DISCOVERY : c);
+        }
+
+        if (queue.size() >= maxQueueSize) {
             disconnect(ReasonCode.BAD_PEER);
             return false;
         }
 
-        if (msg.getResponseMessageClass() != null) {
-            requests.add(new MessageRoundtrip(msg));
-        } else {
-            if (Config.PRIORITIZED_MESSAGES.contains(msg.getCode())) {
-                prioritizedResponses.add(new MessageRoundtrip(msg));
-            } else {
-                responses.add(new MessageRoundtrip(msg));
-            }
-        }
+        queue.add(new MessageRoundtrip(msg));
+        scheduleDrain();
         return true;
     }
 
+    /**
+     * Returns the number of messages waiting, including the request waiting for
+     * a response.
+     * 
+     * @return
+     */
+    public int size() {
+        int size = requests.size() + consensus.size();
+        for (Queue<MessageRoundtrip> queue : lanes.values()) {
+            size += queue.size();
+        }
+        return size;
+    }
+
+    /**
+     * Returns the number of messages of a class waiting, excluding requests.
+     * 
+     * @param c
+     * @return
+     */
+    public int size(MessageClass c) {
+        return c == MessageClass.CONSENSUS ? consensus.size() : lanes.get(c).size();
+    }
+
+    /**
+     * Returns the number of requests waiting, including the one waiting for a
+     * response.
+     * 
+     * @return
+     */
+    public int getRequestQueueSize() {
+        return requests.size();
+    }
+
+    /**
+     * Returns the number of messages waiting in the consensus lane.
+     * 
+     * @return
+     */
+    public int getConsensusQueueSize() {
+        return consensus.size();
+    }
+
+    /**
+     * Returns the number of messages sent through the consensus lane.
+     * 
+     * @return
+     */
+    public long getConsensusSent() {
+        return consensusSent.get();
+    }
+
+    /**
+     * Returns the total latency of the consensus lane, from enqueue to written
+     * into the socket, in nanoseconds.
+     * 
+     * @return
+     */
+    public long getConsensusLatency() {
+        return consensusLatency.get();
+    }
+
+    /**
+     * Returns the maximum latency of the consensus lane, in nanoseconds.
+     * 
+     * @return
+     */
+    public long getConsensusMaxLatency() {
+        return consensusMaxLatency.get();
+    }
+
     /**
      * Notify this message queue that a new message has been received.
      * 
@@ -172,6 +288,11 @@ public class MessageQueue {
 
             if (m.getResponseMessageClass() != null && msg.getClass() == m.getResponseMessageClass()) {
                 mr.answer();
+                metrics.onRoundtrip(m.getCode(),
+                        TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis() - mr.getLastTimestamp()));
+
+                // send the next request
+                scheduleDrain();
                 return mr;
             }
         }
@@ -179,35 +300,153 @@ public class MessageQueue {
         return null;
     }
 
-    private void nudgeQueue() {
-        removeAnsweredMessage(requests.peek());
+    private void scheduleDrain() {
+        if (isRunning && drainPending.compareAndSet(false, true)) {
+            ctx.executor().execute(this::drain);
+        }
+    }
 
-        // send responses
-        MessageRoundtrip msg = prioritizedResponses.poll();
-        sendToWire(msg == null ? responses.poll() : msg);
+    /**
+     * Writes the queued messages, with a single flush. Runs on the channel's event
+     * loop.
+     */
+    private void drain() {
+        drainPending.set(false);
+        if (!isRunning) {
+            return;
+        }
 
-        // send requests
-        sendToWire(requests.peek());
-    }
+        try {
+            // [1] consensus lane, regardless of the batch size
+            boolean written = writeConsensus();
 
-    private void removeAnsweredMessage(MessageRoundtrip mr) {
-        if (mr != null && mr.isAnswered()) {
-            requests.remove();
+            // [2] the next request
+            int budget = Config.NET_MAX_QUEUE_BATCH;
+            removeAnsweredMessage(requests.peek());
+            MessageRoundtrip mr = requests.peek();
+            if (mr != null && mr.getRetries() == 0 && ctx.channel().isWritable()
+                    && bucketOf(mr).tryConsume(1)) {
+                write(mr);
+                budget--;
+                written = true;
+            }
+
+            // [3] other lanes, taking turns by weight
+            boolean progress = true;
+            while (budget > 0 && progress && ctx.channel().isWritable()) {
+                progress = false;
+                for (MessageClass c : LANES) {
+                    Queue<MessageRoundtrip> queue = lanes.get(c);
+                    TokenBucket bucket = buckets.get(c);
+
+                    int turn = Math.max(1, Config.NET_SCHEDULE_WEIGHTS.getOrDefault(c, 1));
+                    for (int i = 0; i < turn && budget > 0 && !queue.isEmpty() && bucket.tryConsume(1); i++) {
+                        write(queue.poll());
+                        budget--;
+                        written = true;
+                        progress = true;
+                    }
+                }
+            }
+
+            if (written) {
+                ctx.flush();
+            }
+
+            // [4] continue later; an unwritable channel resumes when it becomes
+            // writable
+            long delay = ctx.channel().isWritable() ? getDelay(budget) : -1;
+            if (delay >= 0 && drainPending.compareAndSet(false, true)) {
+                ctx.executor().schedule(this::drain, delay, TimeUnit.NANOSECONDS);
+            }
+        } catch (Throwable t) {
+            logger.error("Exception in MessageQueue", t);
         }
     }
 
-    private void sendToWire(MessageRoundtrip mr) {
+    /**
+     * Returns the time until the next round, or -1 if there is nothing to send.
+     * 
+     * @param budget
+     *            budget left in the last round
+     * @return
+     */
+    private long getDelay(int budget) {
+        long delay = Long.MAX_VALUE;
 
+        MessageRoundtrip mr = requests.peek();
+        if (!consensus.isEmpty()) {
+            delay = buckets.get(MessageClass.CONSENSUS).getDelay(1);
+        }
         if (mr != null && mr.getRetries() == 0) {
+            delay = Math.min(delay, bucketOf(mr).getDelay(1));
+        }
+        for (MessageClass c : LANES) {
+            if (!lanes.get(c).isEmpty()) {
+                delay = Math.min(delay, buckets.get(c).getDelay(1));
+            }
+        }
+
+        if (delay == Long.MAX_VALUE) {
+            return -1;
+        }
+        return budget == 0 ? Math.max(delay, TimeUnit.MILLISECONDS.toNanos(Config.NET_MAX_QUEUE_RATE)) : delay;
+    }
+
+    /**
+     * Writes the messages in the consensus lane, as long as the rate allows.
+     * 
+     * @return whether any message is written
+     */
+    private boolean writeConsensus() {
+        boolean written = false;
+        TokenBucket bucket = buckets.get(MessageClass.CONSENSUS);
+
+        MessageRoundtrip mr;
+        while (!consensus.isEmpty() && bucket.tryConsume(1) && (mr = consensus.poll()) != null) {
+            long enqueueTime = mr.getEnqueueTime();
             Message msg = mr.getMessage();
 
-            logger.trace("Wiring message: {}", msg);
-            ctx.writeAndFlush(msg).addListener(ChannelFutureListener.FIRE_EXCEPTION_ON_FAILURE);
+            logger.trace("Wiring consensus message: {}", msg);
+            ctx.write(msg).addListener((ChannelFutureListener) future -> {
+                if (future.isSuccess()) {
+                    long latency = System.nanoTime() - enqueueTime;
+                    metrics.onLatency(Direction.OUT, msg.getCode(), latency);
+                    consensusSent.incrementAndGet();
+                    consensusLatency.addAndGet(latency);
+                    consensusMaxLatency.accumulateAndGet(latency, Math::max);
+                }
+            }).addListener(ChannelFutureListener.FIRE_EXCEPTION_ON_FAILURE);
+            written = true;
+        }
+
+        return written;
+    }
+
+    private TokenBucket bucketOf(MessageRoundtrip mr) {
+        return buckets.get(MessageClass.of(mr.getMessage().getCode()));
+    }
+
+    private void removeAnsweredMessage(MessageRoundtrip mr) {
+        if (mr != null && mr.isAnswered()) {
+            requests.remove();
+        }
+    }
 
-            if (msg.getResponseMessageClass() != null) {
-                mr.increseRetries();
-                mr.saveTime();
+    private void write(MessageRoundtrip mr) {
+        long enqueueTime = mr.getEnqueueTime();
+        Message msg = mr.getMessage();
+
+        logger.trace("Wiring message: {}", msg);
+        ctx.write(msg).addListener((ChannelFutureListener) future -> {
+            if (future.isSuccess()) {
+                metrics.onLatency(Direction.OUT, msg.getCode(), System.nanoTime() - enqueueTime);
             }
+        }).addListener(ChannelFutureListener.FIRE_EXCEPTION_ON_FAILURE);
+
+        if (msg.getResponseMessageClass() != null) {
+            mr.increseRetries();
+            mr.saveTime();
         }
     }
 }
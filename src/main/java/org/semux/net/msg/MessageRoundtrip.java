@@ -13,6 +13,7 @@ package org.semux.net.msg;
 public class MessageRoundtrip {
 
     private final Message message;
+    private final long enqueueTime = System.nanoTime();
     private long lastTimestamp = 0;
 
     private int retries = 0;
@@ -44,6 +45,16 @@ public class MessageRoundtrip {
         return message;
     }
 
+    /**
+     * Returns the time when this roundtrip was created, from
+     * {@link System#nanoTime()}.
+     * 
+     * @return
+     */
+    public long getEnqueueTime() {
+        return enqueueTime;
+    }
+
     public long getLastTimestamp() {
         return lastTimestamp;
     }
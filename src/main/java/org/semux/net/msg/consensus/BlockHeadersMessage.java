@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2017 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.net.msg.consensus;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.semux.core.BlockHeader;
+import org.semux.net.msg.Message;
+import org.semux.net.msg.MessageCode;
+import org.semux.utils.SimpleDecoder;
+import org.semux.utils.SimpleEncoder;
+
+/**
+ * Response containing consecutive block headers.
+ */
+public class BlockHeadersMessage extends Message {
+
+    private long from;
+    private List<BlockHeader> headers;
+
+    /**
+     * Create a BLOCK_HEADERS message.
+     * 
+     * @param from
+     *            the number of the first header
+     * @param headers
+     *            the headers
+     */
+    public BlockHeadersMessage(long from, List<BlockHeader> headers) {
+        super(MessageCode.BLOCK_HEADERS, null);
+
+        this.from = from;
+        this.headers = headers;
+
+        SimpleEncoder enc = new SimpleEncoder();
+        enc.writeLong(from);
+        enc.writeInt(headers.size());
+        for (BlockHeader h : headers) {
+            enc.writeBytes(h.toBytes());
+        }
+        this.encoded = enc.toBytes();
+    }
+
+    public BlockHeadersMessage(byte[] encoded) {
+        super(MessageCode.BLOCK_HEADERS, null);
+
+        this.encoded = encoded;
+
+        SimpleDecoder dec = new SimpleDecoder(encoded);
+        this.from = dec.readLong();
+        int n = dec.readInt();
+        this.headers = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            headers.add(BlockHeader.fromBytes(dec.readBytes()));
+        }
+    }
+
+    /**
+     * Returns the number of the first header.
+     * 
+     * @return
+     */
+    public long getFrom() {
+        return from;
+    }
+
+    public List<BlockHeader> getHeaders() {
+        return headers;
+    }
+
+    @Override
+    public String toString() {
+        return "BlockHeadersMessage [from=" + from + ", # headers=" + headers.size() + "]";
+    }
+}
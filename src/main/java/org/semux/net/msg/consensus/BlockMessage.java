@@ -7,6 +7,7 @@
 package org.semux.net.msg.consensus;
 
 import org.semux.core.Block;
+import org.semux.core.ValidatorKeys;
 import org.semux.net.msg.Message;
 import org.semux.net.msg.MessageCode;
 import org.semux.utils.Bytes;
@@ -16,14 +17,34 @@ import org.semux.utils.SimpleEncoder;
 public class BlockMessage extends Message {
 
     private Block block;
+    private byte[] encodedBlock;
 
     public BlockMessage(Block block) {
         super(MessageCode.BLOCK, null);
 
         this.block = block;
+        this.encodedBlock = (block == null) ? Bytes.EMPY_BYTES : block.toBytes();
 
         SimpleEncoder enc = new SimpleEncoder();
-        enc.writeBytes(block == null ? Bytes.EMPY_BYTES : block.toBytes());
+        enc.writeBytes(encodedBlock);
+        this.encoded = enc.toBytes();
+    }
+
+    /**
+     * Create a block message, with the votes encoded compactly.
+     * 
+     * @param block
+     * @param keys
+     *            the known validator keys
+     */
+    public BlockMessage(Block block, ValidatorKeys keys) {
+        super(MessageCode.BLOCK, null);
+
+        this.block = block;
+        this.encodedBlock = (block == null) ? Bytes.EMPY_BYTES : block.toBytes(keys);
+
+        SimpleEncoder enc = new SimpleEncoder();
+        enc.writeBytes(encodedBlock);
         this.encoded = enc.toBytes();
     }
 
@@ -33,16 +54,32 @@ public class BlockMessage extends Message {
         this.encoded = encoded;
 
         SimpleDecoder dec = new SimpleDecoder(encoded);
-        byte[] bytes = dec.readBytes();
-        this.block = (bytes.length == 0) ? null : Block.fromBytes(bytes);
+        this.encodedBlock = dec.readBytes();
     }
 
-    public Block getBlock() {
+    /**
+     * Returns the block, which is decoded on first use.
+     * 
+     * @return the block, or null if the peer doesn't have it
+     */
+    public synchronized Block getBlock() {
+        if (block == null && encodedBlock.length != 0) {
+            block = Block.fromBytes(encodedBlock);
+        }
         return block;
     }
 
+    /**
+     * Returns the encoded block, without decoding it.
+     * 
+     * @return the encoded block, or an empty array if the peer doesn't have it
+     */
+    public byte[] getEncodedBlock() {
+        return encodedBlock;
+    }
+
     @Override
     public String toString() {
-        return "BlockMessage [block=" + block + "]";
+        return "BlockMessage [block=" + (block != null ? block : encodedBlock.length + " bytes") + "]";
     }
 }
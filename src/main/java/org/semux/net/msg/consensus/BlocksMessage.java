@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2017 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.net.msg.consensus;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.semux.core.Block;
+import org.semux.net.msg.Message;
+import org.semux.net.msg.MessageCode;
+import org.semux.utils.SimpleDecoder;
+import org.semux.utils.SimpleEncoder;
+
+/**
+ * Response containing consecutive blocks, in their stored encoding. Blocks are
+ * not decoded until {@link #getBlock(int)} is called.
+ */
+public class BlocksMessage extends Message {
+
+    private long from;
+    private List<byte[]> encodedBlocks;
+
+    /**
+     * Create a BLOCKS message.
+     * 
+     * @param from
+     *            the number of the first block
+     * @param encodedBlocks
+     *            the encoded blocks, see {@link Block#toBytes()}
+     */
+    public BlocksMessage(long from, List<byte[]> encodedBlocks) {
+        super(MessageCode.BLOCKS, null);
+
+        this.from = from;
+        this.encodedBlocks = encodedBlocks;
+
+        SimpleEncoder enc = new SimpleEncoder();
+        enc.writeLong(from);
+        enc.writeInt(encodedBlocks.size());
+        for (byte[] b : encodedBlocks) {
+            enc.writeBytes(b);
+        }
+        this.encoded = enc.toBytes();
+    }
+
+    public BlocksMessage(byte[] encoded) {
+        super(MessageCode.BLOCKS, null);
+
+        this.encoded = encoded;
+
+        SimpleDecoder dec = new SimpleDecoder(encoded);
+        this.from = dec.readLong();
+        int n = dec.readInt();
+        this.encodedBlocks = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            encodedBlocks.add(dec.readBytes());
+        }
+    }
+
+    /**
+     * Returns the number of the first block.
+     * 
+     * @return
+     */
+    public long getFrom() {
+        return from;
+    }
+
+    /**
+     * Returns the number of blocks.
+     * 
+     * @return
+     */
+    public int size() {
+        return encodedBlocks.size();
+    }
+
+    /**
+     * Returns the encoded blocks.
+     * 
+     * @return
+     */
+    public List<byte[]> getEncodedBlocks() {
+        return encodedBlocks;
+    }
+
+    /**
+     * Decodes the i-th block.
+     * 
+     * @param i
+     * @return
+     */
+    public Block getBlock(int i) {
+        return Block.fromBytes(encodedBlocks.get(i));
+    }
+
+    @Override
+    public String toString() {
+        return "BlocksMessage [from=" + from + ", # blocks=" + encodedBlocks.size() + "]";
+    }
+}
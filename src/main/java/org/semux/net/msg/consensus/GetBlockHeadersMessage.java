@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2017 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.net.msg.consensus;
+
+import org.semux.net.msg.Message;
+import org.semux.net.msg.MessageCode;
+import org.semux.utils.SimpleDecoder;
+import org.semux.utils.SimpleEncoder;
+
+/**
+ * Request a range of consecutive block headers. The peer answers with one
+ * {@link BlockHeadersMessage}, which is not tracked by the message queue.
+ */
+public class GetBlockHeadersMessage extends Message {
+
+    /**
+     * Maximum number of headers in one request.
+     */
+    public static final int MAX_COUNT = 1024;
+
+    private long from;
+    private int count;
+
+    /**
+     * Create a GET_BLOCK_HEADERS message.
+     * 
+     * @param from
+     *            the number of the first header
+     * @param count
+     *            the number of headers
+     */
+    public GetBlockHeadersMessage(long from, int count) {
+        super(MessageCode.GET_BLOCK_HEADERS, null);
+        this.from = from;
+        this.count = count;
+
+        SimpleEncoder enc = new SimpleEncoder();
+        enc.writeLong(from);
+        enc.writeInt(count);
+        this.encoded = enc.toBytes();
+    }
+
+    public GetBlockHeadersMessage(byte[] encoded) {
+        super(MessageCode.GET_BLOCK_HEADERS, null);
+        this.encoded = encoded;
+
+        SimpleDecoder dec = new SimpleDecoder(encoded);
+        this.from = dec.readLong();
+        this.count = dec.readInt();
+    }
+
+    public long getFrom() {
+        return from;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return "GetBlockHeadersMessage [from=" + from + ", count=" + count + "]";
+    }
+}
@@ -10,17 +10,21 @@ import org.semux.net.msg.Message;
 import org.semux.net.msg.MessageCode;
 import org.semux.utils.Bytes;
 
+/**
+ * Request a block by number. The response is not tracked by the message queue,
+ * so that several requests can be in flight; see {@link org.semux.consensus.PeerWindow}.
+ */
 public class GetBlockMessage extends Message {
     private long number;
 
     public GetBlockMessage(long number) {
-        super(MessageCode.GET_BLOCK, BlockMessage.class);
+        super(MessageCode.GET_BLOCK, null);
         this.number = number;
         this.encoded = Bytes.of(number);
     }
 
     public GetBlockMessage(byte[] encoded) {
-        super(MessageCode.GET_BLOCK, BlockMessage.class);
+        super(MessageCode.GET_BLOCK, null);
         this.encoded = encoded;
         this.number = Bytes.toLong(encoded);
     }
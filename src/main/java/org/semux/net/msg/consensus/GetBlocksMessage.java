@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2017 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.net.msg.consensus;
+
+import org.semux.net.msg.Message;
+import org.semux.net.msg.MessageCode;
+import org.semux.utils.SimpleDecoder;
+import org.semux.utils.SimpleEncoder;
+
+/**
+ * Request a range of consecutive blocks. The peer answers with one or more
+ * {@link BlocksMessage}s; like {@link GetBlockMessage}, the response is not
+ * tracked by the message queue.
+ */
+public class GetBlocksMessage extends Message {
+
+    /**
+     * Maximum number of blocks in one request.
+     */
+    public static final int MAX_COUNT = 128;
+
+    private long from;
+    private int count;
+
+    /**
+     * Create a GET_BLOCKS message.
+     * 
+     * @param from
+     *            the first block number
+     * @param count
+     *            the number of blocks
+     */
+    public GetBlocksMessage(long from, int count) {
+        super(MessageCode.GET_BLOCKS, null);
+        this.from = from;
+        this.count = count;
+
+        SimpleEncoder enc = new SimpleEncoder();
+        enc.writeLong(from);
+        enc.writeInt(count);
+        this.encoded = enc.toBytes();
+    }
+
+    public GetBlocksMessage(byte[] encoded) {
+        super(MessageCode.GET_BLOCKS, null);
+        this.encoded = encoded;
+
+        SimpleDecoder dec = new SimpleDecoder(encoded);
+        this.from = dec.readLong();
+        this.count = dec.readInt();
+    }
+
+    public long getFrom() {
+        return from;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return "GetBlocksMessage [from=" + from + ", count=" + count + "]";
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2017 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.net.msg.p2p;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.semux.net.msg.Message;
+import org.semux.net.msg.MessageCode;
+import org.semux.utils.SimpleDecoder;
+import org.semux.utils.SimpleEncoder;
+
+public class GetTransactionsMessage extends Message {
+
+    /**
+     * Maximum number of hashes in one request.
+     */
+    public static final int MAX_HASHES = TransactionHashesMessage.MAX_HASHES;
+
+    private List<byte[]> hashes;
+
+    /**
+     * Create a GET_TRANSACTIONS message.
+     * 
+     * @param hashes
+     */
+    public GetTransactionsMessage(List<byte[]> hashes) {
+        super(MessageCode.GET_TRANSACTIONS, null);
+
+        this.hashes = hashes;
+
+        SimpleEncoder enc = new SimpleEncoder();
+        enc.writeInt(hashes.size());
+        for (byte[] hash : hashes) {
+            enc.writeBytes(hash);
+        }
+        this.encoded = enc.toBytes();
+    }
+
+    /**
+     * Parse a GET_TRANSACTIONS message from byte array.
+     * 
+     * @param encoded
+     */
+    public GetTransactionsMessage(byte[] encoded) {
+        super(MessageCode.GET_TRANSACTIONS, null);
+
+        this.encoded = encoded;
+
+        hashes = new ArrayList<>();
+        SimpleDecoder dec = new SimpleDecoder(encoded);
+        int n = Math.min(dec.readInt(), MAX_HASHES);
+        for (int i = 0; i < n; i++) {
+            hashes.add(dec.readBytes());
+        }
+    }
+
+    public List<byte[]> getHashes() {
+        return hashes;
+    }
+
+    @Override
+    public String toString() {
+        return "GetTransactionsMessage [# hashes =" + hashes.size() + "]";
+    }
+}
@@ -11,6 +11,7 @@ import org.semux.Config;
 import org.semux.crypto.EdDSA;
 import org.semux.crypto.EdDSA.Signature;
 import org.semux.net.Peer;
+import org.semux.net.msg.Compression;
 import org.semux.net.msg.Message;
 import org.semux.net.msg.MessageCode;
 import org.semux.utils.SimpleDecoder;
@@ -25,6 +26,8 @@ public class HelloMessage extends Message {
     private byte[] dataToSign;
     private Signature signature;
 
+    private byte compression;
+
     /**
      * Create a HELLO message.
      * 
@@ -32,6 +35,22 @@ public class HelloMessage extends Message {
      * @param coinbase
      */
     public HelloMessage(Peer peer, EdDSA coinbase) {
+        this(peer, coinbase, Compression.NONE);
+    }
+
+    /**
+     * Create a HELLO message, which advertises the supported compression.
+     * 
+     * <p>
+     * The compression is appended after the signature, so older peers ignore
+     * it.
+     * </p>
+     * 
+     * @param peer
+     * @param coinbase
+     * @param compression
+     */
+    public HelloMessage(Peer peer, EdDSA coinbase, byte compression) {
         super(MessageCode.HELLO, WorldMessage.class);
 
         this.peer = peer;
@@ -44,6 +63,8 @@ public class HelloMessage extends Message {
         this.dataToSign = enc.toBytes();
         this.signature = coinbase.sign(dataToSign);
         enc.writeBytes(signature.toBytes());
+        this.compression = compression;
+        enc.writeByte(compression);
 
         this.encoded = enc.toBytes();
     }
@@ -63,6 +84,7 @@ public class HelloMessage extends Message {
         this.timestamp = dec.readLong();
         this.dataToSign = Arrays.copyOfRange(encoded, 0, dec.getReadIndex());
         this.signature = Signature.fromBytes(dec.readBytes());
+        this.compression = (dec.getReadIndex() < encoded.length) ? dec.readByte() : Compression.NONE;
     }
 
     /**
@@ -79,6 +101,15 @@ public class HelloMessage extends Message {
         return peer;
     }
 
+    /**
+     * Returns the compression supported by the sender.
+     * 
+     * @return
+     */
+    public byte getCompression() {
+        return compression;
+    }
+
     @Override
     public String toString() {
         return "HelloMessage [peer=" + peer + "]";
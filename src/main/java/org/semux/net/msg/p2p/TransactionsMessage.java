@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2017 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.net.msg.p2p;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.semux.core.Transaction;
+import org.semux.net.msg.Message;
+import org.semux.net.msg.MessageCode;
+import org.semux.utils.SimpleDecoder;
+import org.semux.utils.SimpleEncoder;
+
+public class TransactionsMessage extends Message {
+
+    private List<byte[]> encodedTransactions;
+    private List<Transaction> transactions;
+
+    /**
+     * Create a TRANSACTIONS message.
+     * 
+     * @param transactions
+     */
+    public TransactionsMessage(List<Transaction> transactions) {
+        super(MessageCode.TRANSACTIONS, null);
+
+        this.transactions = transactions;
+        this.encodedTransactions = new ArrayList<>();
+
+        SimpleEncoder enc = new SimpleEncoder();
+        enc.writeInt(transactions.size());
+        for (Transaction tx : transactions) {
+            byte[] bytes = tx.toBytes();
+            encodedTransactions.add(bytes);
+            enc.writeBytes(bytes);
+        }
+        this.encoded = enc.toBytes();
+    }
+
+    /**
+     * Parse a TRANSACTIONS message from byte array. Transactions are not decoded
+     * until {@link #getTransactions()} is called, so that duplicates can be
+     * filtered by hash beforehand.
+     * 
+     * @param encoded
+     */
+    public TransactionsMessage(byte[] encoded) {
+        super(MessageCode.TRANSACTIONS, null);
+
+        this.encoded = encoded;
+
+        encodedTransactions = new ArrayList<>();
+        SimpleDecoder dec = new SimpleDecoder(encoded);
+        int n = dec.readInt();
+        for (int i = 0; i < n; i++) {
+            encodedTransactions.add(dec.readBytes());
+        }
+    }
+
+    /**
+     * Returns the serialized transactions, see {@link Transaction#toBytes()}.
+     * 
+     * @return
+     */
+    public List<byte[]> getEncodedTransactions() {
+        return encodedTransactions;
+    }
+
+    /**
+     * Returns the decoded transactions.
+     * 
+     * @return
+     */
+    public List<Transaction> getTransactions() {
+        if (transactions == null) {
+            List<Transaction> list = new ArrayList<>();
+            for (byte[] bytes : encodedTransactions) {
+                list.add(Transaction.fromBytes(bytes));
+            }
+            transactions = list;
+        }
+        return transactions;
+    }
+
+    @Override
+    public String toString() {
+        return "TransactionsMessage [# txs =" + encodedTransactions.size() + "]";
+    }
+}
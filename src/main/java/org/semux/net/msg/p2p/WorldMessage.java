@@ -11,6 +11,7 @@ import org.semux.Config;
 import org.semux.crypto.EdDSA;
 import org.semux.crypto.EdDSA.Signature;
 import org.semux.net.Peer;
+import org.semux.net.msg.Compression;
 import org.semux.net.msg.Message;
 import org.semux.net.msg.MessageCode;
 import org.semux.utils.SimpleDecoder;
@@ -25,6 +26,8 @@ public class WorldMessage extends Message {
     private byte[] dataToSign;
     private Signature signature;
 
+    private byte compression;
+
     /**
      * Create a WORLD message.
      * 
@@ -32,6 +35,22 @@ public class WorldMessage extends Message {
      * @param coinbase
      */
     public WorldMessage(Peer peer, EdDSA coinbase) {
+        this(peer, coinbase, Compression.NONE);
+    }
+
+    /**
+     * Create a WORLD message, which advertises the supported compression.
+     * 
+     * <p>
+     * The compression is appended after the signature, so older peers ignore
+     * it.
+     * </p>
+     * 
+     * @param peer
+     * @param coinbase
+     * @param compression
+     */
+    public WorldMessage(Peer peer, EdDSA coinbase, byte compression) {
         super(MessageCode.WORLD, null);
 
         this.peer = peer;
@@ -44,6 +63,8 @@ public class WorldMessage extends Message {
         this.dataToSign = enc.toBytes();
         this.signature = coinbase.sign(dataToSign);
         enc.writeBytes(signature.toBytes());
+        this.compression = compression;
+        enc.writeByte(compression);
 
         this.encoded = enc.toBytes();
     }
@@ -63,6 +84,7 @@ public class WorldMessage extends Message {
         this.timestamp = dec.readLong();
         this.dataToSign = Arrays.copyOfRange(encoded, 0, dec.getReadIndex());
         this.signature = Signature.fromBytes(dec.readBytes());
+        this.compression = (dec.getReadIndex() < encoded.length) ? dec.readByte() : Compression.NONE;
     }
 
     /**
@@ -84,6 +106,15 @@ public class WorldMessage extends Message {
         return peer;
     }
 
+    /**
+     * Returns the compression supported by the sender.
+     * 
+     * @return
+     */
+    public byte getCompression() {
+        return compression;
+    }
+
     @Override
     public String toString() {
         return "WorldMessage [peer=" + peer + "]";
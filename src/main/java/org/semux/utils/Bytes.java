@@ -204,4 +204,20 @@ public class Bytes {
                 | ((bytes[3] & 0xffL) << 32) | ((bytes[4] & 0xffL) << 24) | ((bytes[5] & 0xffL) << 16)
                 | ((bytes[6] & 0xffL) << 8) | (bytes[7] & 0xff);
     }
+
+    /**
+     * Covert 8 bytes of a byte array, starting from the given offset, into a long
+     * integer.
+     * 
+     * @param bytes
+     * @param offset
+     * @return
+     */
+    public static long toLong(byte[] bytes, int offset) {
+        long l = 0;
+        for (int i = offset; i < offset + 8; i++) {
+            l = (l << 8) | (bytes[i] & 0xffL);
+        }
+        return l;
+    }
 }
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2017 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of non-negative values, e.g. latencies in microseconds, with
+ * buckets bounded by powers of two. The last bucket has no upper bound.
+ *
+ * <p>
+ * This class is lock-free. A reader racing with writers may see the count, the
+ * sum and the buckets slightly out of sync.
+ * </p>
+ */
+public class Histogram {
+
+    /**
+     * Number of buckets; bucket <code>i</code> counts values up to
+     * <code>2^i</code>, and the last one counts everything above.
+     */
+    public static final int BUCKETS = 32;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a value; negative values are recorded as 0.
+     * 
+     * @param value
+     */
+    public void record(long value) {
+        value = Math.max(0, value);
+
+        buckets.incrementAndGet(indexOf(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    /**
+     * Returns the number of recorded values.
+     * 
+     * @return
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Returns the sum of recorded values.
+     * 
+     * @return
+     */
+    public long getSum() {
+        return sum.get();
+    }
+
+    /**
+     * Returns the maximum recorded value.
+     * 
+     * @return
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Returns the mean of recorded values, or 0 if there is none.
+     * 
+     * @return
+     */
+    public long getMean() {
+        long n = count.get();
+        return n == 0 ? 0 : sum.get() / n;
+    }
+
+    /**
+     * Returns the number of values in a bucket.
+     * 
+     * @param i
+     * @return
+     */
+    public long getBucket(int i) {
+        return buckets.get(i);
+    }
+
+    /**
+     * Returns the inclusive upper bound of a bucket, or {@link Long#MAX_VALUE}
+     * for the last one.
+     * 
+     * @param i
+     * @return
+     */
+    public static long getUpperBound(int i) {
+        return i == BUCKETS - 1 ? Long.MAX_VALUE : 1L << i;
+    }
+
+    /**
+     * Returns an estimate of a percentile, as the upper bound of the bucket it
+     * falls into, capped by the maximum.
+     * 
+     * @param p
+     *            percentile, in [0, 100]
+     * @return
+     */
+    public long getPercentile(double p) {
+        long n = count.get();
+        if (n == 0) {
+            return 0;
+        }
+
+        long rank = (long) Math.ceil(n * p / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return Math.min(getUpperBound(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    private static int indexOf(long value) {
+        int i = value <= 1 ? 0 : 64 - Long.numberOfLeadingZeros(value - 1);
+        return Math.min(i, BUCKETS - 1);
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2017 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.semux.crypto.Hash;
+
+/**
+ * A Merkle tree which only supports appending elements, with the same root
+ * hash as {@link MerkleTree}. Appending one element updates the rightmost path
+ * only, which takes O(log n) hashes.
+ */
+public class IncrementalMerkleTree {
+
+    private List<List<byte[]>> levels = new ArrayList<>();
+
+    /**
+     * Create an empty tree.
+     */
+    public IncrementalMerkleTree() {
+        levels.add(new ArrayList<>());
+    }
+
+    /**
+     * Create a copy of another tree.
+     *
+     * @param other
+     */
+    public IncrementalMerkleTree(IncrementalMerkleTree other) {
+        for (List<byte[]> level : other.levels) {
+            levels.add(new ArrayList<>(level));
+        }
+    }
+
+    /**
+     * Append an element.
+     *
+     * @param hash
+     */
+    public void add(byte[] hash) {
+        levels.get(0).add(hash);
+
+        int idx = levels.get(0).size() - 1;
+        for (int k = 0; levels.get(k).size() > 1; k++) {
+            List<byte[]> level = levels.get(k);
+            if (levels.size() == k + 1) {
+                levels.add(new ArrayList<>());
+            }
+            List<byte[]> parents = levels.get(k + 1);
+
+            // duplicate the last element when the number of elements is odd.
+            int p = idx / 2;
+            byte[] left = level.get(2 * p);
+            byte[] right = (2 * p + 1 < level.size()) ? level.get(2 * p + 1) : left;
+            byte[] parent = Hash.mergeHash(left, right);
+
+            if (p < parents.size()) {
+                parents.set(p, parent);
+            } else {
+                parents.add(parent);
+            }
+            idx = p;
+        }
+    }
+
+    /**
+     * Get the root hash.
+     *
+     * @return
+     */
+    public byte[] getRootHash() {
+        List<byte[]> top = levels.get(levels.size() - 1);
+        return top.isEmpty() ? Hash.EMPTY_H256 : top.get(0);
+    }
+
+    /**
+     * Get the size of elements.
+     *
+     * @return
+     */
+    public int size() {
+        return levels.get(0).size();
+    }
+
+    /**
+     * Remove all elements.
+     */
+    public void clear() {
+        levels.clear();
+        levels.add(new ArrayList<>());
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2017 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.utils;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.semux.crypto.Hash;
+
+/**
+ * A Bloom filter which remembers the keys inserted during the current and the
+ * previous generation. A new generation starts when the current one is full or
+ * older than the given window, and the oldest generation is then dropped.
+ *
+ * <p>
+ * Keys are expected to be uniformly distributed, e.g. transaction hashes, so
+ * the bit indexes are derived from the key bytes directly. Keys shorter than 16
+ * bytes are hashed first. A per-instance random salt makes false positives
+ * differ from node to node.
+ * </p>
+ *
+ * <p>
+ * This class is thread-safe. Queries racing with a rotation may return false
+ * negatives, which is acceptable for its use as a duplicate prefilter.
+ * </p>
+ */
+public class RollingBloomFilter {
+
+    private final int capacity;
+    private final int numBits;
+    private final int numHashes;
+    private final long window;
+
+    private final long salt1;
+    private final long salt2;
+
+    private final AtomicLongArray[] generations = new AtomicLongArray[2];
+    private volatile int current;
+    private final AtomicInteger count = new AtomicInteger(0);
+    private volatile long lastRotation;
+
+    /**
+     * Create a rolling Bloom filter.
+     *
+     * @param capacity
+     *            the maximum number of keys per generation
+     * @param fpp
+     *            the desired false positive probability of one generation
+     * @param window
+     *            the maximum duration of one generation, in milliseconds
+     */
+    public RollingBloomFilter(int capacity, double fpp, long window) {
+        if (capacity <= 0 || fpp <= 0 || fpp >= 1 || window <= 0) {
+            throw new IllegalArgumentException("Invalid bloom filter parameters");
+        }
+
+        double ln2 = Math.log(2);
+        long bits = (long) Math.ceil(-capacity * Math.log(fpp) / (ln2 * ln2));
+        bits = (bits + 63) / 64 * 64;
+        if (bits > Integer.MAX_VALUE - 63) {
+            throw new IllegalArgumentException("Bloom filter is too large");
+        }
+
+        this.capacity = capacity;
+        this.numBits = (int) bits;
+        this.numHashes = Math.max(1, (int) Math.round((double) numBits / capacity * ln2));
+        this.window = window;
+
+        ThreadLocalRandom r = ThreadLocalRandom.current();
+        this.salt1 = r.nextLong();
+        this.salt2 = r.nextLong();
+
+        for (int i = 0; i < generations.length; i++) {
+            generations[i] = new AtomicLongArray(numBits / 64);
+        }
+        this.current = 0;
+        this.lastRotation = System.currentTimeMillis();
+    }
+
+    /**
+     * Returns whether the key might have been inserted. False means the key has
+     * definitely not been inserted within the last two generations.
+     *
+     * @param key
+     * @return
+     */
+    public boolean mightContain(byte[] key) {
+        key = normalize(key);
+        long h1 = Bytes.toLong(key, 0) ^ salt1;
+        long h2 = Bytes.toLong(key, 8) ^ salt2;
+
+        for (AtomicLongArray bits : generations) {
+            if (contains(bits, h1, h2)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Inserts a key into the current generation.
+     *
+     * @param key
+     * @return true if the key was not present before, otherwise false
+     */
+    public boolean put(byte[] key) {
+        rotateIfNeeded();
+
+        key = normalize(key);
+        long h1 = Bytes.toLong(key, 0) ^ salt1;
+        long h2 = Bytes.toLong(key, 8) ^ salt2;
+
+        for (AtomicLongArray bits : generations) {
+            if (contains(bits, h1, h2)) {
+                return false;
+            }
+        }
+
+        AtomicLongArray bits = generations[current];
+        for (int i = 0; i < numHashes; i++) {
+            int idx = index(h1, h2, i);
+            long mask = 1L << (idx & 63);
+
+            long word;
+            do {
+                word = bits.get(idx >>> 6);
+            } while ((word & mask) == 0 && !bits.compareAndSet(idx >>> 6, word, word | mask));
+        }
+        count.incrementAndGet();
+
+        return true;
+    }
+
+    /**
+     * Removes all keys from this filter.
+     */
+    public synchronized void clear() {
+        for (AtomicLongArray bits : generations) {
+            clear(bits);
+        }
+        count.set(0);
+        lastRotation = System.currentTimeMillis();
+    }
+
+    /**
+     * Returns the number of bits per generation.
+     *
+     * @return
+     */
+    public int getNumBits() {
+        return numBits;
+    }
+
+    /**
+     * Returns the number of keys inserted into the current generation.
+     *
+     * @return
+     */
+    public int size() {
+        return count.get();
+    }
+
+    private void rotateIfNeeded() {
+        if (count.get() >= capacity || System.currentTimeMillis() - lastRotation >= window) {
+            synchronized (this) {
+                if (count.get() >= capacity || System.currentTimeMillis() - lastRotation >= window) {
+                    int next = (current + 1) % generations.length;
+                    clear(generations[next]);
+                    current = next;
+
+                    count.set(0);
+                    lastRotation = System.currentTimeMillis();
+                }
+            }
+        }
+    }
+
+    private boolean contains(AtomicLongArray bits, long h1, long h2) {
+        for (int i = 0; i < numHashes; i++) {
+            int idx = index(h1, h2, i);
+            if ((bits.get(idx >>> 6) & (1L << (idx & 63))) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int index(long h1, long h2, int i) {
+        return (int) Math.floorMod(h1 + i * h2, (long) numBits);
+    }
+
+    private static void clear(AtomicLongArray bits) {
+        for (int i = 0; i < bits.length(); i++) {
+            bits.set(i, 0);
+        }
+    }
+
+    private static byte[] normalize(byte[] key) {
+        return key.length < 16 ? Hash.h256(key) : key;
+    }
+}
@@ -62,6 +62,14 @@ public class SimpleEncoder {
         }
     }
 
+    public void writeRaw(byte[] bytes) {
+        try {
+            out.write(bytes);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     public void writeString(String s) {
         writeInt(s.length());
         try {
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2017 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.utils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A token bucket, which refills at a fixed rate up to its burst size. A bucket
+ * with a non-positive rate is unlimited.
+ *
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ */
+public class TokenBucket {
+
+    private final double rate; // tokens per nanosecond
+    private final double burst;
+
+    private double tokens;
+    private long lastRefill;
+
+    /**
+     * Create a token bucket, which is initially full.
+     * 
+     * @param rate
+     *            number of tokens per second, or non-positive for unlimited
+     * @param burst
+     *            maximum number of tokens
+     */
+    public TokenBucket(int rate, int burst) {
+        this.rate = (double) rate / TimeUnit.SECONDS.toNanos(1);
+        this.burst = Math.max(burst, 1);
+
+        this.tokens = this.burst;
+        this.lastRefill = System.nanoTime();
+    }
+
+    /**
+     * Create a token bucket which holds up to one second's worth of tokens.
+     * 
+     * @param rate
+     *            number of tokens per second, or non-positive for unlimited
+     */
+    public TokenBucket(int rate) {
+        this(rate, rate);
+    }
+
+    /**
+     * Returns whether this bucket is unlimited.
+     * 
+     * @return
+     */
+    public boolean isUnlimited() {
+        return rate <= 0;
+    }
+
+    /**
+     * Takes the given number of tokens, if available.
+     * 
+     * @param n
+     * @return true if the tokens are taken, otherwise false
+     */
+    public synchronized boolean tryConsume(int n) {
+        if (isUnlimited()) {
+            return true;
+        }
+
+        refill();
+        if (tokens >= n) {
+            tokens -= n;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Takes the given number of tokens, going into debt if not enough are
+     * available.
+     * 
+     * @param n
+     * @return the time until the debt is paid off, in nanoseconds, or 0 if there
+     *         is no debt
+     */
+    public synchronized long consume(int n) {
+        if (isUnlimited()) {
+            return 0;
+        }
+
+        refill();
+        tokens -= n;
+        return tokens >= 0 ? 0 : (long) Math.ceil(-tokens / rate);
+    }
+
+    /**
+     * Returns the time until the given number of tokens are available.
+     * 
+     * @param n
+     * @return the delay in nanoseconds, or 0 if available now
+     */
+    public synchronized long getDelay(int n) {
+        if (isUnlimited()) {
+            return 0;
+        }
+
+        refill();
+        double missing = Math.min(n, burst) - tokens;
+        return missing <= 0 ? 0 : (long) Math.ceil(missing / rate);
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - lastRefill) * rate);
+        lastRefill = now;
+    }
+}
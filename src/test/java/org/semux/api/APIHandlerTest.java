@@ -9,6 +9,7 @@ import static org.junit.Assert.assertTrue;
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
+import java.net.URLConnection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map.Entry;
@@ -34,6 +35,9 @@ import org.semux.core.state.DelegateState;
 import org.semux.crypto.EdDSA;
 import org.semux.crypto.Hash;
 import org.semux.crypto.Hex;
+import org.semux.net.NetworkMetrics;
+import org.semux.net.NetworkMetrics.Direction;
+import org.semux.net.msg.MessageCode;
 import org.semux.utils.ByteArray;
 import org.semux.utils.Bytes;
 import org.semux.utils.MerkleUtil;
@@ -179,6 +183,59 @@ public class APIHandlerTest {
         }
     }
 
+    @Test
+    public void testGetPendingStats() throws IOException {
+        String uri = "/get_pending_stats";
+        JSONObject response = request(uri);
+        assertTrue(response.getBoolean("success"));
+
+        JSONObject result = response.getJSONObject("result");
+        assertTrue(result.getInt("poolSize") >= 0);
+        assertNotNull(result.getJSONArray("feeRates"));
+        assertNotNull(result.getJSONObject("rejected"));
+    }
+
+    @Test
+    public void testGetNetworkStats() throws IOException {
+        NetworkMetrics.getGlobal().onMessage(Direction.IN, MessageCode.PING, 10);
+
+        String uri = "/get_network_stats";
+        JSONObject response = request(uri);
+        assertTrue(response.getBoolean("success"));
+
+        JSONObject result = response.getJSONObject("result");
+        JSONObject ping = result.getJSONObject("messages").getJSONObject("ping");
+        assertTrue(ping.getJSONObject("in").getLong("messages") >= 1);
+        assertTrue(ping.getJSONObject("in").getLong("bytes") >= 10);
+        assertNotNull(result.getJSONArray("peers"));
+    }
+
+    @Test
+    public void testMetrics() throws IOException {
+        NetworkMetrics.getGlobal().onLatency(Direction.OUT, MessageCode.PONG, 5_000);
+
+        URL u = new URL("http://127.0.0.1:" + Config.API_LISTEN_PORT + "/metrics");
+        URLConnection conn = u.openConnection();
+        assertTrue(conn.getContentType().startsWith("text/plain"));
+
+        String text;
+        try (Scanner s = new Scanner(conn.getInputStream())) {
+            text = s.useDelimiter("\\A").next();
+        }
+        assertTrue(text.contains("semux_net_messages_total{direction=\"in\",code=\"ping\"}"));
+        assertTrue(text.contains("semux_net_latency_microseconds_count{direction=\"out\",code=\"pong\"}"));
+    }
+
+    @Test
+    public void testGetPendingSender() throws IOException {
+        String uri = "/get_pending_sender?address=" + Hex.encode(new EdDSA().toAddress());
+        JSONObject response = request(uri);
+        assertTrue(response.getBoolean("success"));
+
+        JSONObject result = response.getJSONObject("result");
+        assertEquals(0, result.getInt("depth"));
+    }
+
     @Test
     public void testGetAccountTransactions() throws IOException {
         Transaction tx = createTransaction();
@@ -6,8 +6,11 @@
  */
 package org.semux.bench;
 
+import org.semux.crypto.BatchVerifier;
 import org.semux.crypto.EdDSA;
+import org.semux.crypto.EdDSA.Signature;
 import org.semux.crypto.Hash;
+import org.semux.utils.Bytes;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -16,6 +19,8 @@ public class CryptoPerformance {
 
     private static int[] DATA_SIZES = { 1024, 1024 * 1024 };
     private static int REPEAT = 1000;
+    private static int[] BATCH_SIZES = { 1, 10, 100, 1000, 10000 };
+    private static int BATCH_SIGNERS = 100;
 
     public static void testH256() {
         for (int size : DATA_SIZES) {
@@ -78,10 +83,43 @@ public class CryptoPerformance {
         }
     }
 
+    public static void testBatchVerify() {
+        EdDSA[] keys = new EdDSA[BATCH_SIGNERS];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = new EdDSA();
+        }
+
+        for (int size : BATCH_SIZES) {
+            byte[][] hashes = new byte[size][];
+            Signature[] sigs = new Signature[size];
+            for (int i = 0; i < size; i++) {
+                hashes[i] = Hash.h256(Bytes.of(i));
+                sigs[i] = keys[i % keys.length].sign(hashes[i]);
+            }
+
+            long t1 = System.nanoTime();
+            for (int i = 0; i < size; i++) {
+                EdDSA.verify(hashes[i], sigs[i]);
+            }
+            long t2 = System.nanoTime();
+
+            BatchVerifier verifier = new BatchVerifier();
+            for (int i = 0; i < size; i++) {
+                verifier.add(hashes[i], sigs[i]);
+            }
+            verifier.verify();
+            long t3 = System.nanoTime();
+
+            logger.info("Perf_verify_batch_{}: one-by-one = {} μs/sig, batch = {} μs/sig", size,
+                    (t2 - t1) / 1_000 / size, (t3 - t2) / 1_000 / size);
+        }
+    }
+
     public static void main(String[] args) throws Exception {
         testH256();
         testH160();
         testSign();
         testVerify();
+        testBatchVerify();
     }
 }
@@ -0,0 +1,43 @@
+package org.semux.consensus;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.semux.Config;
+import org.semux.consensus.SemuxBFT.State;
+
+public class AdaptiveTimeoutsTest {
+
+    @Test
+    public void testFixed() {
+        AdaptiveTimeouts timeouts = new AdaptiveTimeouts(false);
+        timeouts.onEnter(State.VALIDATE);
+        timeouts.onDecided(State.VALIDATE);
+        timeouts.onTimeout(State.PROPOSE);
+
+        assertEquals(Config.BFT_VALIDATE_TIMEOUT, timeouts.getTimeout(State.VALIDATE));
+        assertEquals(Config.BFT_PROPOSE_TIMEOUT, timeouts.getTimeout(State.PROPOSE));
+        assertEquals(1, timeouts.getPhases().get(State.VALIDATE).getDecided());
+        assertEquals(1, timeouts.getPhases().get(State.PROPOSE).getTimedOut());
+    }
+
+    @Test
+    public void testAdaptive() {
+        AdaptiveTimeouts timeouts = new AdaptiveTimeouts(true);
+
+        // fast decisions shrink the timeout down to the lower bound
+        timeouts.onEnter(State.VALIDATE);
+        timeouts.onDecided(State.VALIDATE);
+        assertEquals(Config.BFT_VALIDATE_TIMEOUT / 4, timeouts.getTimeout(State.VALIDATE));
+
+        // timeouts grow up to the upper bound
+        for (int i = 0; i < 10; i++) {
+            timeouts.onTimeout(State.PRE_COMMIT);
+        }
+        assertEquals(Config.BFT_PRE_COMMIT_TIMEOUT * 2, timeouts.getTimeout(State.PRE_COMMIT));
+
+        // fixed waits are not adapted
+        timeouts.onTimeout(State.FINALIZE);
+        assertEquals(Config.BFT_FINALIZE_TIMEOUT, timeouts.getTimeout(State.FINALIZE));
+    }
+}
@@ -0,0 +1,63 @@
+package org.semux.consensus;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+public class BlockBufferTest {
+
+    @Test
+    public void testAddRemove() {
+        BlockBuffer buf = new BlockBuffer(100);
+        byte[] b = new byte[10];
+        assertTrue(buf.add(1, b).isEmpty());
+        assertTrue(buf.add(2, new byte[20]).isEmpty());
+        assertEquals(2, buf.size());
+        assertEquals(30, buf.getBytes());
+
+        // the first copy of a block is kept
+        assertTrue(buf.add(1, new byte[5]).isEmpty());
+        assertEquals(30, buf.getBytes());
+
+        assertArrayEquals(b, buf.remove(1));
+        assertNull(buf.remove(1));
+        assertEquals(20, buf.getBytes());
+
+        buf.removeUpTo(2);
+        assertEquals(0, buf.size());
+        assertEquals(0, buf.getBytes());
+    }
+
+    @Test
+    public void testEvictHigher() {
+        BlockBuffer buf = new BlockBuffer(100);
+        for (long i = 10; i < 15; i++) {
+            assertTrue(buf.add(i, new byte[20]).isEmpty());
+        }
+        assertTrue(buf.isFull());
+
+        // a block above all buffered ones is rejected
+        assertEquals(Collections.singletonList(15L), buf.add(15, new byte[20]));
+        assertFalse(buf.contains(15));
+
+        // a lower block evicts the highest ones
+        assertEquals(Arrays.asList(14L, 13L), buf.add(5, new byte[30]));
+        assertTrue(buf.contains(5));
+        assertEquals(90, buf.getBytes());
+    }
+
+    @Test
+    public void testOversized() {
+        BlockBuffer buf = new BlockBuffer(100);
+        assertTrue(buf.add(1, new byte[200]).isEmpty());
+        assertTrue(buf.isFull());
+        assertEquals(Collections.singletonList(2L), buf.add(2, new byte[1]));
+    }
+}
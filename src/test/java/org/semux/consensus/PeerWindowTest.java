@@ -0,0 +1,74 @@
+package org.semux.consensus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class PeerWindowTest {
+
+    @Test
+    public void testGrowWithThroughput() {
+        long now = 0;
+        PeerWindow w = new PeerWindow(now);
+        assertEquals(2, w.available());
+
+        // a fast peer, answering in 10 ms
+        long number = 0;
+        for (int i = 0; i < 5; i++) {
+            for (long end = now + 1000; now < end; now += 10) {
+                while (w.available() > 0) {
+                    w.onRequest(number++, now);
+                }
+                for (long n = number - w.getOutstanding(); n < number; n++) {
+                    w.onResponse(n, now + 10);
+                }
+            }
+            w.tick(now);
+        }
+
+        assertEquals(10, w.getLatency(), 0.001);
+        assertEquals(PeerWindow.MAX_WINDOW, w.getWindow());
+    }
+
+    @Test
+    public void testExpire() {
+        PeerWindow w = new PeerWindow(0);
+        w.onRequest(1, 0);
+        w.onRequest(2, 500);
+
+        List<Long> expired = w.expire(1001, 1000);
+        assertEquals(1, expired.size());
+        assertEquals(1L, (long) expired.get(0));
+        assertEquals(1, w.getTimeouts());
+        assertEquals(PeerWindow.MIN_WINDOW, w.getWindow());
+
+        assertFalse(w.onResponse(1, 1002));
+        assertTrue(w.onResponse(2, 1002));
+        assertEquals(0, w.getTimeouts());
+    }
+
+    @Test
+    public void testDrain() {
+        PeerWindow w = new PeerWindow(0);
+        w.onRequest(1, 0);
+        w.onRequest(2, 0);
+
+        assertEquals(2, w.drain().size());
+        assertEquals(0, w.getOutstanding());
+        assertFalse(w.isOutstanding(1));
+    }
+
+    @Test
+    public void testIdlePeriod() {
+        PeerWindow w = new PeerWindow(0);
+        int window = w.getWindow();
+
+        w.tick(5000);
+        assertEquals(window, w.getWindow());
+        assertEquals(0, w.getRate(), 0.001);
+    }
+}
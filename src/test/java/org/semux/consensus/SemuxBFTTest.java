@@ -6,10 +6,14 @@
  */
 package org.semux.consensus;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.net.InetSocketAddress;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Random;
 
@@ -17,6 +21,7 @@ import org.junit.AfterClass;
 import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
+import org.semux.Config;
 import org.semux.core.Block;
 import org.semux.core.BlockHeader;
 import org.semux.core.Blockchain;
@@ -25,28 +30,55 @@ import org.semux.core.Genesis;
 import org.semux.core.PendingManager;
 import org.semux.core.Transaction;
 import org.semux.core.TransactionResult;
+import org.semux.core.ValidatorSet;
 import org.semux.crypto.EdDSA;
 import org.semux.crypto.EdDSA.Signature;
 import org.semux.crypto.Hash;
 import org.semux.db.MemoryDB;
+import org.semux.net.Channel;
 import org.semux.net.ChannelManager;
+import org.semux.net.Peer;
+import org.semux.net.msg.consensus.BlocksMessage;
 import org.semux.utils.ByteArray;
 import org.semux.utils.MerkleUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import io.netty.channel.embedded.EmbeddedChannel;
+
 public class SemuxBFTTest {
 
     private static Logger logger = LoggerFactory.getLogger(SemuxBFTTest.class);
 
+    private static EdDSA[] keys = new EdDSA[4];
+    private static ValidatorSet validatorSet;
+
     private static Blockchain chain;
+    private static ChannelManager channelMgr;
     private static SemuxBFT bft;
     private static EdDSA coinbase;
 
     @BeforeClass
     public static void setup() throws InterruptedException {
-        chain = new BlockchainImpl(MemoryDB.FACTORY);
-        ChannelManager channelMgr = new ChannelManager();
+        List<String> validators = new ArrayList<>();
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = new EdDSA();
+            validators.add(keys[i].toAddressString());
+        }
+        validatorSet = new ValidatorSet(validators, 0);
+
+        chain = new BlockchainImpl(MemoryDB.FACTORY) {
+            @Override
+            public ValidatorSet getValidatorSet() {
+                return validatorSet;
+            }
+
+            @Override
+            public List<String> getValidators() {
+                return new ArrayList<>(validatorSet.getValidators());
+            }
+        };
+        channelMgr = new ChannelManager();
         PendingManager pendingMgr = new PendingManager(chain, channelMgr);
 
         pendingMgr.start();
@@ -109,6 +141,68 @@ public class SemuxBFTTest {
         }
     }
 
+    @Test
+    public void testCheckCatchUpBlock() {
+        EdDSA key = new EdDSA();
+        List<Transaction> transactions = new ArrayList<>();
+        List<TransactionResult> results = new ArrayList<>();
+        byte[] transactionsRoot = MerkleUtil.computeTransactionsRoot(transactions);
+        byte[] resultsRoot = MerkleUtil.computeResultsRoot(results);
+
+        // not linked to the latest block
+        BlockHeader header = new BlockHeader(1, key.toAddress(), Hash.EMPTY_H256, System.currentTimeMillis(),
+                transactionsRoot, resultsRoot, Hash.EMPTY_H256, new byte[0]);
+        Block block = new Block(header.sign(key), transactions, results);
+        assertFalse(bft.checkCatchUpBlock(block, true));
+
+        // linked, but voted by a non-validator
+        header = new BlockHeader(1, key.toAddress(), chain.getLatestBlock().getHash(), System.currentTimeMillis(),
+                transactionsRoot, resultsRoot, Hash.EMPTY_H256, new byte[0]);
+        block = new Block(header.sign(key), transactions, results);
+        List<Signature> votes = new ArrayList<>();
+        votes.add(new Vote(VoteType.PRECOMMIT, Vote.VALUE_APPROVE, 1, 0, block.getHash()).sign(key).getSignature());
+        block.setVotes(votes);
+        assertFalse(bft.checkCatchUpBlock(block, false));
+        assertFalse(bft.checkCatchUpBlock(block, true));
+    }
+
+    @Test
+    public void testCatchUp() throws InterruptedException {
+        List<Transaction> transactions = new ArrayList<>();
+        List<TransactionResult> results = new ArrayList<>();
+        byte[] transactionsRoot = MerkleUtil.computeTransactionsRoot(transactions);
+        byte[] resultsRoot = MerkleUtil.computeResultsRoot(results);
+
+        // linked, and voted by +2/3 of the validators
+        long number = chain.getLatestBlockNumber() + 1;
+        EdDSA primary = keys[validatorSet.getPrimaryIndex(number, 0)];
+        BlockHeader header = new BlockHeader(number, primary.toAddress(), chain.getLatestBlock().getHash(),
+                System.currentTimeMillis(), transactionsRoot, resultsRoot, Hash.EMPTY_H256, new byte[0]);
+        Block block = new Block(header.sign(primary), transactions, results);
+        List<Signature> votes = new ArrayList<>();
+        for (int i = 0; i < validatorSet.getTwoThirds(); i++) {
+            votes.add(new Vote(VoteType.PRECOMMIT, Vote.VALUE_APPROVE, number, 0, block.getHash()).sign(keys[i])
+                    .getSignature());
+        }
+        block.setView(0);
+        block.setVotes(votes);
+
+        // a peer which has the block
+        Channel channel = new Channel(chain, channelMgr, null, null);
+        channel.init(new EmbeddedChannel().pipeline(), false, false, null, new InetSocketAddress("127.0.0.1", 5161));
+        channel.onActive(new Peer("127.0.0.1", 5161, Config.P2P_VERSION, "test", new EdDSA().toAddressString(),
+                number));
+        assertTrue(bft.catchUp(number + 1));
+
+        bft.onMessage(channel, new BlocksMessage(number, Collections.singletonList(block.toBytes())));
+        for (int i = 0; i < 50 && bft.getHeight() != number + 1; i++) {
+            Thread.sleep(100);
+        }
+        assertEquals(number, chain.getLatestBlockNumber());
+        assertArrayEquals(block.getHash(), chain.getLatestBlock().getHash());
+        assertEquals(number + 1, bft.getHeight());
+    }
+
     @Test
     public void testIsPrimary() {
         List<String> validators = chain.getValidators();
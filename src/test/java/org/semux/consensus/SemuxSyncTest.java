@@ -0,0 +1,140 @@
+package org.semux.consensus;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.semux.Config;
+import org.semux.core.BlockHeader;
+import org.semux.core.Blockchain;
+import org.semux.core.BlockchainImpl;
+import org.semux.core.Transaction;
+import org.semux.core.TransactionResult;
+import org.semux.core.ValidatorSet;
+import org.semux.crypto.EdDSA;
+import org.semux.crypto.Hash;
+import org.semux.db.MemoryDB;
+import org.semux.net.Channel;
+import org.semux.net.ChannelManager;
+import org.semux.utils.MerkleUtil;
+
+public class SemuxSyncTest {
+
+    private static EdDSA[] keys = new EdDSA[4];
+    private static ValidatorSet validatorSet;
+    private static Blockchain chain;
+    private static Channel channel;
+    private static SemuxSync sync;
+
+    @BeforeClass
+    public static void setup() {
+        List<String> validators = new ArrayList<>();
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = new EdDSA();
+            validators.add(keys[i].toAddressString());
+        }
+        validatorSet = new ValidatorSet(validators, 0);
+
+        chain = new BlockchainImpl(MemoryDB.FACTORY) {
+            @Override
+            public ValidatorSet getValidatorSet() {
+                return validatorSet;
+            }
+        };
+        channel = new Channel(null, null, null, null);
+
+        sync = SemuxSync.getInstance();
+        sync.init(chain, new ChannelManager());
+    }
+
+    @Before
+    public void reset() {
+        sync.resetHeaders();
+    }
+
+    @Test
+    public void testOnHeaders() {
+        List<BlockHeader> list = createHeaders(1, 3);
+        sync.onHeaders(channel, 1, list);
+        assertEquals(3, sync.getHeaderTip());
+
+        // not continuing the header tip
+        sync.onHeaders(channel, 1, createHeaders(1, 1));
+        assertEquals(3, sync.getHeaderTip());
+    }
+
+    @Test
+    public void testWrongSigner() {
+        List<BlockHeader> list = createHeaders(1, 3);
+        int primary = validatorSet.getPrimaryIndex(2, 0);
+        list.set(1, createHeader(2, list.get(0).getHash(), keys[(primary + 1) % keys.length]));
+
+        sync.onHeaders(channel, 1, list);
+        assertEquals(1, sync.getHeaderTip());
+
+        // not a validator
+        sync.onHeaders(channel, 2, Collections.singletonList(createHeader(2, list.get(0).getHash(), new EdDSA())));
+        assertEquals(1, sync.getHeaderTip());
+    }
+
+    @Test
+    public void testBrokenPrevHash() {
+        List<BlockHeader> list = createHeaders(1, 3);
+        list.set(1, createHeader(2, Hash.EMPTY_H256, primary(2)));
+
+        sync.onHeaders(channel, 1, list);
+        assertEquals(1, sync.getHeaderTip());
+    }
+
+    @Test
+    public void testOutOfTerm() {
+        long termEnd = validatorSet.getNumber() + Config.VALIDATOR_TERM;
+        List<BlockHeader> list = createHeaders(1, (int) termEnd + 2);
+
+        sync.onHeaders(channel, 1, list);
+        assertEquals(termEnd, sync.getHeaderTip());
+    }
+
+    @Test
+    public void testHeaderWait() {
+        sync.onHeaders(channel, 1, createHeaders(1, 3));
+        assertEquals(3, sync.getHeaderTip());
+
+        long now = System.currentTimeMillis();
+        sync.checkHeaderWait(0, now);
+        sync.checkHeaderWait(0, now + SemuxSync.MAX_HEADER_WAIT);
+        assertEquals(3, sync.getHeaderTip());
+
+        // the next block did not arrive in time
+        sync.checkHeaderWait(0, now + SemuxSync.MAX_HEADER_WAIT + 1);
+        assertEquals(0, sync.getHeaderTip());
+    }
+
+    private static EdDSA primary(long number) {
+        return keys[validatorSet.getPrimaryIndex(number, 0)];
+    }
+
+    private static List<BlockHeader> createHeaders(long from, int count) {
+        List<BlockHeader> list = new ArrayList<>();
+        byte[] prevHash = chain.getBlock(from - 1).getHash();
+        for (long n = from; n < from + count; n++) {
+            BlockHeader h = createHeader(n, prevHash, primary(n));
+            list.add(h);
+            prevHash = h.getHash();
+        }
+        return list;
+    }
+
+    private static BlockHeader createHeader(long number, byte[] prevHash, EdDSA key) {
+        List<Transaction> transactions = Collections.emptyList();
+        List<TransactionResult> results = Collections.emptyList();
+        return new BlockHeader(number, key.toAddress(), prevHash, System.currentTimeMillis(),
+                MerkleUtil.computeTransactionsRoot(transactions), MerkleUtil.computeResultsRoot(results),
+                Hash.EMPTY_H256, new byte[0]).sign(key);
+    }
+}
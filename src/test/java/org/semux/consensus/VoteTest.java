@@ -44,4 +44,22 @@ public class VoteTest {
         v.sign(new EdDSA());
         assertTrue(v.validate());
     }
+
+    @Test
+    public void testVerified() {
+        Vote v = Vote.newReject(VoteType.PRECOMMIT, 1, 0).sign(new EdDSA());
+        assertFalse(v.isVerified());
+        assertTrue(v.validate());
+        assertTrue(v.isVerified());
+
+        // decoded copies are verified through the cache
+        Vote v2 = Vote.fromBytes(v.toBytes());
+        assertTrue(v2.validate());
+
+        // signature of another vote
+        Vote v3 = Vote.newReject(VoteType.PRECOMMIT, 2, 0);
+        Vote v4 = new Vote(v3.getEncoded(), v.getSignature().toBytes());
+        assertFalse(v4.validate());
+        assertFalse(v4.isVerified());
+    }
 }
@@ -0,0 +1,54 @@
+package org.semux.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.semux.Config;
+import org.semux.crypto.EdDSA;
+import org.semux.crypto.Hash;
+import org.semux.utils.Bytes;
+import org.semux.utils.MerkleUtil;
+
+public class BlockTemplateTest {
+
+    private EdDSA key = new EdDSA();
+
+    @Test
+    public void testCreateBlock() {
+        BlockTemplate template = new BlockTemplate(3);
+        List<Transaction> txs = new ArrayList<>();
+        List<TransactionResult> results = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Transaction tx = new Transaction(TransactionType.TRANSFER, key.toAddress(), Bytes.random(20), 1,
+                    Config.MIN_TRANSACTION_FEE_HARD, i, System.currentTimeMillis(), Bytes.EMPY_BYTES).sign(key);
+            TransactionResult res = new TransactionResult(true);
+            if (template.add(tx, res)) {
+                txs.add(tx);
+                results.add(res);
+            }
+        }
+        assertEquals(3, template.size());
+        assertArrayEquals(MerkleUtil.computeTransactionsRoot(txs), template.getTransactionsRoot());
+        assertArrayEquals(MerkleUtil.computeResultsRoot(results), template.getResultsRoot());
+
+        BlockHeader header = new BlockHeader(1, key.toAddress(), Bytes.random(32), System.currentTimeMillis(),
+                template.getTransactionsRoot(), template.getResultsRoot(), Hash.EMPTY_H256, Bytes.EMPY_BYTES)
+                        .sign(key);
+        Block block = template.copy().createBlock(header);
+        Block expected = new Block(header, txs, results);
+
+        assertTrue(block.validate());
+        assertArrayEquals(expected.toBytes(), block.toBytes());
+        assertEquals(expected.getTransacitonIndexes(), block.getTransacitonIndexes());
+
+        template.clear();
+        assertEquals(0, template.size());
+        assertFalse(template.createBlock(header).validate());
+    }
+}
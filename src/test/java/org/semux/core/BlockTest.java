@@ -60,6 +60,30 @@ public class BlockTest {
         testFields(Block.fromBytes(block.toBytes()));
     }
 
+    @Test
+    public void testCompactVotes() {
+        BlockHeader header = new BlockHeader(number, coinbase, prevHash, timestamp, transactionsRoot, resultsRoot,
+                stateRoot, data).sign(key);
+        List<Signature> list = new ArrayList<>();
+        ValidatorKeys keys = new ValidatorKeys();
+        for (int i = 0; i < 5; i++) {
+            EdDSA k = new EdDSA();
+            keys.add(k.getPublicKey(), number - 1);
+            list.add(k.sign(header.getHash()));
+        }
+        Block block = new Block(header, transactions, results, view, list);
+
+        byte[] compact = block.toBytes(keys);
+        assertTrue(compact.length < block.toBytes().length);
+
+        Block decoded = Block.fromBytes(compact);
+        assertTrue(decoded.getVotes().isEmpty());
+        assertArrayEquals(compact, decoded.toBytes());
+        assertTrue(decoded.resolveVotes(keys));
+        assertEquals(list.size(), decoded.getVotes().size());
+        assertArrayEquals(block.toBytes(), decoded.toBytes());
+    }
+
     private void testFields(Block block) {
         assertArrayEquals(hash, block.getHash());
         assertEquals(number, block.getNumber());
@@ -154,6 +154,26 @@ public class BlockchainImplTest {
         assertEquals(2, chain.getNumberOfTurnsMissed(address));
     }
 
+    @Test
+    public void testValidatorKeys() {
+        BlockchainImpl chain = createBlockchain();
+        EdDSA key = new EdDSA();
+
+        Block block1 = createBlock(1, key);
+        chain.addBlock(block1);
+        assertEquals(-1, chain.getValidatorKeys().indexOf(key.getPublicKey(), 1));
+        assertEquals(0, chain.getValidatorKeys().indexOf(key.getPublicKey(), 2));
+
+        // votes of the known signer are stored without public key
+        Block block2 = createBlock(2, new EdDSA());
+        block2.setVotes(Arrays.asList(new EdDSA().sign(block2.getHash()), key.sign(block2.getHash())));
+        chain.addBlock(block2);
+
+        Block stored = chain.getBlock(2);
+        assertEquals(2, stored.getVotes().size());
+        assertTrue(block2.toBytes(chain.getValidatorKeys()).length < block2.toBytes().length);
+    }
+
     private BlockchainImpl createBlockchain() {
         return new BlockchainImpl(MemoryDB.FACTORY);
     }
@@ -162,7 +182,16 @@ public class BlockchainImplTest {
         return createBlock(number, Collections.singletonList(tx), Collections.singletonList(res));
     }
 
+    private Block createBlock(long number, EdDSA key) {
+        return createBlock(number, Collections.singletonList(tx), Collections.singletonList(res), key);
+    }
+
     private Block createBlock(long number, List<Transaction> transactions, List<TransactionResult> results) {
+        return createBlock(number, transactions, results, new EdDSA());
+    }
+
+    private Block createBlock(long number, List<Transaction> transactions, List<TransactionResult> results,
+            EdDSA key) {
         byte[] transactionsRoot = MerkleUtil.computeTransactionsRoot(transactions);
         byte[] resultsRoot = MerkleUtil.computeResultsRoot(results);
         byte[] stateRoot = Hash.EMPTY_H256;
@@ -171,6 +200,6 @@ public class BlockchainImplTest {
 
         BlockHeader header = new BlockHeader(number, coinbase, prevHash, timestamp, transactionsRoot, resultsRoot,
                 stateRoot, data);
-        return new Block(header.sign(new EdDSA()), transactions, results);
+        return new Block(header.sign(key), transactions, results);
     }
 }
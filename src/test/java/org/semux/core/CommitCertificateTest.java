@@ -0,0 +1,72 @@
+package org.semux.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.semux.crypto.EdDSA;
+import org.semux.crypto.EdDSA.Signature;
+import org.semux.utils.Bytes;
+
+public class CommitCertificateTest {
+
+    private byte[] msg = Bytes.random(32);
+
+    @Test
+    public void testEncodeDecode() {
+        ValidatorKeys keys = new ValidatorKeys();
+        List<Signature> votes = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            EdDSA key = new EdDSA();
+            keys.add(key.getPublicKey(), 1);
+            votes.add(key.sign(msg));
+        }
+        // a signer which is not known
+        votes.add(new EdDSA().sign(msg));
+
+        byte[] certificate = CommitCertificate.encode(votes, keys, 2);
+        assertEquals(4 + 2 + 4 + 10 * 64 + 4 + 4 + 108, certificate.length);
+
+        List<Signature> decoded = CommitCertificate.decode(certificate, keys, 2);
+        assertEquals(votes.size(), decoded.size());
+        for (int i = 0; i < votes.size(); i++) {
+            assertArrayEquals(votes.get(i).toBytes(), decoded.get(i).toBytes());
+        }
+    }
+
+    @Test
+    public void testKeyNotYetKnown() {
+        ValidatorKeys keys = new ValidatorKeys();
+        EdDSA key = new EdDSA();
+        keys.add(key.getPublicKey(), 5);
+
+        List<Signature> votes = new ArrayList<>();
+        votes.add(key.sign(msg));
+
+        // keys learned from block 5 can only be referred to from block 6
+        byte[] certificate = CommitCertificate.encode(votes, keys, 5);
+        assertEquals(1, CommitCertificate.decode(certificate, keys, 5).size());
+
+        certificate = CommitCertificate.encode(votes, keys, 6);
+        assertEquals(1, CommitCertificate.decode(certificate, keys, 6).size());
+        assertNull(CommitCertificate.decode(certificate, keys, 5));
+    }
+
+    @Test
+    public void testDuplicateSigner() {
+        ValidatorKeys keys = new ValidatorKeys();
+        EdDSA key = new EdDSA();
+        keys.add(key.getPublicKey(), 1);
+
+        List<Signature> votes = new ArrayList<>();
+        votes.add(key.sign(msg));
+        votes.add(key.sign(msg));
+
+        byte[] certificate = CommitCertificate.encode(votes, keys, 2);
+        assertEquals(2, CommitCertificate.decode(certificate, keys, 2).size());
+    }
+}
@@ -101,6 +101,27 @@ public class PendingManagerTest {
         assertEquals(3, pendingMgr.getTransactions().size());
     }
 
+    @Test
+    public void testStats() throws InterruptedException {
+        long now = System.currentTimeMillis();
+        long nonce = accountState.getAccount(from).getNonce();
+
+        Transaction tx = new Transaction(type, from, to, value, fee, nonce, now, Bytes.EMPY_BYTES).sign(key);
+        pendingMgr.addTransaction(tx);
+        pendingMgr.addTransaction(tx);
+        Transaction tx2 = new Transaction(type, from, to, value, fee, nonce + 1, now, Bytes.EMPY_BYTES).sign(key);
+        pendingMgr.addTransaction(tx2);
+
+        Thread.sleep(100);
+        PendingStats stats = pendingMgr.getStats();
+        assertEquals(2, stats.getPoolSize());
+        assertEquals(tx.size() + tx2.size(), stats.getPoolBytes());
+        assertEquals(2, stats.getSenderDepth(from));
+        assertEquals(2, stats.getFeeRateHistogram()[PendingStats.feeRateBucket(tx)]);
+        assertEquals(2, stats.getAdmitted());
+        assertEquals(1, stats.getRejected(PendingStats.Rejection.DUPLICATE));
+    }
+
     @Test
     public void testHighVolumeTransaction() throws InterruptedException {
         long now = System.currentTimeMillis();
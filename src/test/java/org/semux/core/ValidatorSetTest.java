@@ -0,0 +1,58 @@
+package org.semux.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.semux.Config;
+import org.semux.crypto.EdDSA;
+
+public class ValidatorSetTest {
+
+    @Test
+    public void testLookups() {
+        List<EdDSA> keys = new ArrayList<>();
+        List<String> list = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            EdDSA key = new EdDSA();
+            keys.add(key);
+            list.add(key.toAddressString());
+        }
+        ValidatorSet set = new ValidatorSet(list, 0);
+
+        assertEquals(10, set.size());
+        assertEquals(7, set.getTwoThirds());
+        for (int i = 0; i < keys.size(); i++) {
+            assertEquals(i, set.indexOf(keys.get(i).toAddress()));
+            assertEquals(i, set.indexOf(list.get(i)));
+            assertEquals(i, set.indexOfPublicKey(keys.get(i).getPublicKey()));
+            assertEquals(i, set.indexOfPublicKey(keys.get(i).getPublicKey()));
+        }
+
+        EdDSA other = new EdDSA();
+        assertFalse(set.contains(other.toAddress()));
+        assertEquals(-1, set.indexOfPublicKey(other.getPublicKey()));
+        assertTrue(set.contains(list.get(3)));
+    }
+
+    @Test
+    public void testPrimary() {
+        List<String> list = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            list.add(new EdDSA().toAddressString());
+        }
+        long number = 2 * Config.VALIDATOR_TERM;
+        ValidatorSet set = new ValidatorSet(list, number);
+
+        // inside and outside of the precomputed term
+        for (long h = 0; h < 5 * Config.VALIDATOR_TERM; h++) {
+            for (int view = 0; view < 2; view++) {
+                assertEquals(Config.getPrimaryValidator(list, h, view), set.getPrimary(h, view));
+            }
+        }
+    }
+}
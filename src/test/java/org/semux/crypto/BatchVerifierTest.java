@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2017 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.crypto;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.semux.crypto.EdDSA.Signature;
+import org.semux.utils.Bytes;
+
+public class BatchVerifierTest {
+
+    @Test
+    public void testEmpty() {
+        assertTrue(new BatchVerifier().verify());
+    }
+
+    @Test
+    public void testVerify() {
+        EdDSA[] keys = { new EdDSA(), new EdDSA(), new EdDSA() };
+
+        for (int n : new int[] { 1, 15, 100 }) {
+            BatchVerifier verifier = new BatchVerifier();
+            BatchVerifier invalid = new BatchVerifier();
+            for (int i = 0; i < n; i++) {
+                byte[] msg = Bytes.random(32);
+                Signature sig = keys[i % keys.length].sign(msg);
+                verifier.add(msg, sig);
+                invalid.add(i == n / 2 ? Bytes.random(32) : msg, sig);
+            }
+
+            assertEquals(n, verifier.size());
+            assertTrue(verifier.verify());
+            assertFalse(invalid.verify());
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package org.semux.net;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+import org.semux.Config;
+import org.semux.net.msg.Message;
+import org.semux.net.msg.consensus.BlocksMessage;
+import org.semux.utils.Bytes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+
+public class NetTransportTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(NetTransportTest.class);
+
+    private static final int PORT = 51610;
+
+    @Test
+    public void testTransport() {
+        logger.info("Epoll available: {}", NetTransport.isEpoll());
+        assertEquals(NetTransport.isEpoll(), NetTransport.getChannelClass() == EpollSocketChannel.class);
+
+        boolean epoll = Config.NET_EPOLL;
+        Config.NET_EPOLL = false;
+        try {
+            assertEquals(NioSocketChannel.class, NetTransport.getChannelClass());
+            assertEquals(NioServerSocketChannel.class, NetTransport.getServerChannelClass());
+        } finally {
+            Config.NET_EPOLL = epoll;
+        }
+    }
+
+    /**
+     * Sends messages of various sizes through the P2P codec over loopback, with
+     * the server and the client sharing one event loop group, and reports the
+     * throughput.
+     */
+    @Test
+    public void testThroughput() throws InterruptedException {
+        benchmark(20000, 256);
+        benchmark(200, 512 * 1024);
+    }
+
+    private void benchmark(int count, int size) throws InterruptedException {
+        EventLoopGroup group = NetTransport.newEventLoopGroup(2, r -> new Thread(r, "bench"));
+        CountDownLatch latch = new CountDownLatch(count);
+        AtomicLong bytes = new AtomicLong();
+
+        try {
+            ServerBootstrap sb = new ServerBootstrap();
+            sb.group(group, group).channel(NetTransport.getServerChannelClass());
+            sb.childHandler(new ChannelInitializer<SocketChannel>() {
+                @Override
+                protected void initChannel(SocketChannel ch) {
+                    ch.config().setRecvByteBufAllocator(NetTransport.newRecvByteBufAllocator());
+                    ch.pipeline().addLast(new SemuxFrameHandler(null), new SemuxMessageHandler(null),
+                            new SimpleChannelInboundHandler<Message>() {
+                                @Override
+                                protected void channelRead0(ChannelHandlerContext ctx, Message msg) {
+                                    bytes.addAndGet(msg.getEncoded().length);
+                                    latch.countDown();
+                                }
+                            });
+                }
+            });
+            io.netty.channel.Channel server = sb.bind("127.0.0.1", PORT).sync().channel();
+
+            Bootstrap b = new Bootstrap();
+            b.group(group).channel(NetTransport.getChannelClass());
+            b.handler(new ChannelInitializer<SocketChannel>() {
+                @Override
+                protected void initChannel(SocketChannel ch) {
+                    ch.config().setWriteBufferWaterMark(NetTransport.getWriteBufferWaterMark());
+                    ch.pipeline().addLast(new SemuxFrameHandler(null), new SemuxMessageHandler(null));
+                }
+            });
+            io.netty.channel.Channel client = b.connect("127.0.0.1", PORT).sync().channel();
+
+            List<byte[]> blocks = new ArrayList<>();
+            blocks.add(Bytes.random(size));
+            Message msg = new BlocksMessage(1, blocks);
+
+            long t1 = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                if (!client.isWritable()) {
+                    client.flush();
+                    while (!client.isWritable() && client.isActive()) {
+                        Thread.sleep(1);
+                    }
+                }
+                client.write(msg);
+            }
+            client.flush();
+            assertTrue(latch.await(60, TimeUnit.SECONDS));
+            long t2 = System.nanoTime();
+
+            double seconds = (t2 - t1) / 1e9;
+            logger.info("Transport = {}, message size = {}: {} msgs/s, {} MB/s",
+                    NetTransport.isEpoll() ? "epoll" : "nio", size, (long) (count / seconds),
+                    String.format("%.1f", bytes.get() / seconds / 1024 / 1024));
+            assertEquals((long) count * msg.getEncoded().length, bytes.get());
+
+            client.close().sync();
+            server.close().sync();
+        } finally {
+            group.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package org.semux.net;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.semux.net.NetworkMetrics.Direction;
+import org.semux.net.msg.MessageCode;
+
+public class NetworkMetricsTest {
+
+    @Test
+    public void testChannel() {
+        NetworkMetrics global = NetworkMetrics.getGlobal();
+        long globalBytes = global.getBytes(Direction.OUT, MessageCode.BLOCK);
+        long globalLatencies = global.getLatency(Direction.IN, MessageCode.BLOCK).getCount();
+
+        NetworkMetrics metrics = new NetworkMetrics();
+        metrics.onMessage(Direction.OUT, MessageCode.BLOCK, 1000);
+        metrics.onMessage(Direction.OUT, MessageCode.BLOCK, 500);
+        metrics.onMessage(Direction.IN, MessageCode.GET_BLOCK, 8);
+        metrics.onLatency(Direction.IN, MessageCode.BLOCK, 2_000_000);
+        metrics.onRoundtrip(MessageCode.GET_BLOCK, 3_000_000);
+
+        assertEquals(2, metrics.getMessages(Direction.OUT, MessageCode.BLOCK));
+        assertEquals(1500, metrics.getBytes(Direction.OUT, MessageCode.BLOCK));
+        assertEquals(1500, metrics.getBytes(Direction.OUT));
+        assertEquals(1, metrics.getMessages(Direction.IN));
+        assertEquals(3000, metrics.getRoundtrip().getMax());
+        assertNull(metrics.getLatency(Direction.IN, MessageCode.BLOCK));
+
+        // added up in the global metrics
+        assertEquals(globalBytes + 1500, global.getBytes(Direction.OUT, MessageCode.BLOCK));
+        assertEquals(globalLatencies + 1, global.getLatency(Direction.IN, MessageCode.BLOCK).getCount());
+        assertTrue(global.getRoundtrip(MessageCode.GET_BLOCK).getMax() >= 3000);
+    }
+}
@@ -0,0 +1,132 @@
+package org.semux.net;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.semux.Config;
+import org.semux.net.msg.Compression;
+import org.semux.net.msg.consensus.BlocksMessage;
+import org.semux.net.msg.p2p.PingMessage;
+import org.semux.utils.Bytes;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+
+public class SemuxMessageHandlerTest {
+
+    private EmbeddedChannel createChannel() {
+        return new EmbeddedChannel(new SemuxFrameHandler(null), new SemuxMessageHandler(null));
+    }
+
+    private BlocksMessage roundtrip(BlocksMessage msg) {
+        EmbeddedChannel ch = createChannel();
+        assertTrue(ch.writeOutbound(msg));
+        ByteBuf buf = ch.readOutbound();
+
+        int frames = (msg.getEncoded().length + Config.NET_MAX_FRAME_SIZE - 1) / Config.NET_MAX_FRAME_SIZE;
+        assertEquals(frames * Frame.HEADER_SIZE + msg.getEncoded().length, buf.readableBytes());
+
+        // deliver in small chunks, to exercise the reassembly
+        while (buf.isReadable()) {
+            ch.writeInbound(buf.readRetainedSlice(Math.min(1000, buf.readableBytes())));
+        }
+        buf.release();
+
+        BlocksMessage decoded = ch.readInbound();
+        assertNull(ch.readInbound());
+        ch.finish();
+        return decoded;
+    }
+
+    @Test
+    public void testSingleFrame() {
+        PingMessage ping = new PingMessage();
+
+        EmbeddedChannel ch = createChannel();
+        ch.writeOutbound(ping);
+        ByteBuf buf = ch.readOutbound();
+        assertEquals(Frame.HEADER_SIZE + ping.getEncoded().length, buf.readableBytes());
+        ch.writeInbound(buf);
+
+        PingMessage msg = ch.readInbound();
+        assertArrayEquals(ping.getEncoded(), msg.getEncoded());
+        ch.finish();
+    }
+
+    @Test
+    public void testMultipleFrames() {
+        List<byte[]> blocks = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            blocks.add(Bytes.random(200 * 1024));
+        }
+        BlocksMessage msg = new BlocksMessage(1, blocks);
+
+        BlocksMessage decoded = roundtrip(msg);
+        assertArrayEquals(msg.getEncoded(), decoded.getEncoded());
+        for (int i = 0; i < blocks.size(); i++) {
+            assertArrayEquals(blocks.get(i), decoded.getEncodedBlocks().get(i));
+        }
+    }
+
+    @Test
+    public void testExactFrameMultiple() {
+        // from (8) + count (4) + length (4) + block
+        byte[] block = Bytes.random(2 * Config.NET_MAX_FRAME_SIZE - 16);
+        BlocksMessage msg = new BlocksMessage(1, Arrays.asList(block));
+        assertEquals(2 * Config.NET_MAX_FRAME_SIZE, msg.getEncoded().length);
+
+        BlocksMessage decoded = roundtrip(msg);
+        assertArrayEquals(block, decoded.getEncodedBlocks().get(0));
+    }
+
+    @Test
+    public void testCompressed() {
+        List<byte[]> blocks = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            byte[] block = new byte[200 * 1024];
+            for (int j = 0; j < block.length; j++) {
+                block[j] = (byte) (j % 251);
+            }
+            blocks.add(block);
+        }
+        BlocksMessage msg = new BlocksMessage(1, blocks);
+
+        Channel channel = new Channel(null, null, null, null);
+        channel.setCompression(Compression.SNAPPY);
+        EmbeddedChannel sender = new EmbeddedChannel(new SemuxFrameHandler(channel),
+                new SemuxMessageHandler(channel));
+        assertTrue(sender.writeOutbound(msg));
+        ByteBuf buf = sender.readOutbound();
+        assertTrue(buf.readableBytes() < msg.getEncoded().length / 10);
+        assertSame(msg.getCompressed(), msg.getCompressed());
+
+        // the receiver decompresses regardless of its own setting
+        EmbeddedChannel receiver = createChannel();
+        receiver.writeInbound(buf);
+        BlocksMessage decoded = receiver.readInbound();
+        assertArrayEquals(msg.getEncoded(), decoded.getEncoded());
+
+        sender.finish();
+        receiver.finish();
+    }
+
+    @Test
+    public void testInvalidNetwork() {
+        ByteBuf buf = Unpooled.buffer();
+        Frame.writeHeader(buf, 0, (byte) 0x00, (byte) (Config.NETWORK_ID + 1), 1, 0);
+
+        EmbeddedChannel ch = createChannel();
+        ch.writeInbound(buf);
+        assertNull(ch.readInbound());
+        assertTrue(!ch.isOpen());
+    }
+}
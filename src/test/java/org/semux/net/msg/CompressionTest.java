@@ -0,0 +1,54 @@
+package org.semux.net.msg;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import io.netty.buffer.Unpooled;
+
+public class CompressionTest {
+
+    private static byte[] data(int size) {
+        Random r = new Random(size);
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = (byte) (r.nextInt(8) == 0 ? r.nextInt() : i % 97);
+        }
+        return data;
+    }
+
+    @Test
+    public void testRoundtrip() {
+        for (int size : new int[] { 0, 1, 1000, Short.MAX_VALUE, Short.MAX_VALUE + 1, 100_000, 5_000_000 }) {
+            byte[] data = data(size);
+            byte[] compressed = Compression.compress(data);
+            assertArrayEquals(data, Compression.decompress(Unpooled.wrappedBuffer(compressed), size));
+        }
+    }
+
+    @Test
+    public void testSmaller() {
+        byte[] data = data(100_000);
+        assertTrue(Compression.compress(data).length < data.length);
+    }
+
+    @Test
+    public void testTooLarge() {
+        byte[] compressed = Compression.compress(data(10_000));
+        assertNull(Compression.decompress(Unpooled.wrappedBuffer(compressed), 9_999));
+    }
+
+    @Test
+    public void testCorrupted() {
+        byte[] compressed = Compression.compress(data(10_000));
+        for (int i = 8; i < compressed.length; i += 97) {
+            compressed[i] ^= 0x5a;
+        }
+        assertNull(Compression.decompress(Unpooled.wrappedBuffer(compressed), 10_000));
+        assertNull(Compression.decompress(Unpooled.wrappedBuffer(new byte[] { 0, 0, 0, 10, 1, 2 }), 10_000));
+    }
+}
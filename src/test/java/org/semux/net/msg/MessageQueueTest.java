@@ -1,5 +1,6 @@
 package org.semux.net.msg;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -20,6 +21,7 @@ import org.semux.net.NodeManager;
 import org.semux.net.PeerClient;
 import org.semux.net.PeerServerMock;
 import org.semux.net.SemuxChannelInitializer;
+import org.semux.net.msg.consensus.BFTNewHeightMessage;
 import org.semux.net.msg.p2p.PingMessage;
 import org.semux.net.msg.p2p.PongMessage;
 
@@ -96,6 +98,72 @@ public class MessageQueueTest {
         assertTrue(ch.isActive());
     }
 
+    @Test
+    public void testConsensusLane() throws InterruptedException {
+        Channel ch = connect();
+        MessageQueue queue = ch.getMessageQueue();
+
+        // fill the regular queue, consensus messages should not wait behind it
+        for (int i = 0; i < Config.NET_MAX_QUEUE_SIZE / 2; i++) {
+            queue.sendMessage(new PongMessage());
+        }
+        for (int i = 0; i < 10; i++) {
+            assertTrue(queue.sendMessage(new BFTNewHeightMessage(i)));
+        }
+
+        Thread.sleep(200);
+        assertEquals(0, queue.getConsensusQueueSize());
+        assertEquals(10, queue.getConsensusSent());
+        assertTrue(queue.getConsensusMaxLatency() < 200_000_000L);
+        assertTrue(ch.isActive());
+    }
+
+    @Test
+    public void testThroughput() throws InterruptedException {
+        int rate = Config.NET_OUTBOUND_RATES.get(MessageClass.DISCOVERY);
+        Config.NET_OUTBOUND_RATES.put(MessageClass.DISCOVERY, 0);
+        try {
+            Channel ch = connect();
+            MessageQueue queue = ch.getMessageQueue();
+
+            // not bounded by one message per tick
+            for (int i = 0; i < Config.NET_MAX_QUEUE_SIZE / 2; i++) {
+                queue.sendMessage(new PongMessage());
+            }
+
+            Thread.sleep(500);
+            assertTrue(queue.isIdle());
+            assertTrue(ch.isActive());
+        } finally {
+            Config.NET_OUTBOUND_RATES.put(MessageClass.DISCOVERY, rate);
+        }
+    }
+
+    @Test
+    public void testOutboundRate() throws InterruptedException {
+        int rate = Config.NET_OUTBOUND_RATES.get(MessageClass.DISCOVERY);
+        Config.NET_OUTBOUND_RATES.put(MessageClass.DISCOVERY, 10);
+        try {
+            Channel ch = connect();
+            MessageQueue queue = ch.getMessageQueue();
+
+            // PONGs go out at 10 per second, consensus messages at once
+            for (int i = 0; i < 20; i++) {
+                queue.sendMessage(new PongMessage());
+            }
+            assertTrue(queue.sendMessage(new BFTNewHeightMessage(1)));
+
+            Thread.sleep(200);
+            assertFalse(queue.isIdle());
+            assertEquals(1, queue.getConsensusSent());
+
+            Thread.sleep(2000);
+            assertTrue(queue.isIdle());
+        } finally {
+            Config.NET_OUTBOUND_RATES.put(MessageClass.DISCOVERY, rate);
+        }
+    }
+
     @AfterClass
     public static void teardown() {
         server.stop();
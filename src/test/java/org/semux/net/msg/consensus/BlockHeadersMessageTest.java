@@ -0,0 +1,66 @@
+package org.semux.net.msg.consensus;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.semux.core.BlockHeader;
+import org.semux.crypto.EdDSA;
+import org.semux.net.msg.MessageCode;
+import org.semux.utils.Bytes;
+
+public class BlockHeadersMessageTest {
+
+    @Test
+    public void testGetBlockHeaders() {
+        GetBlockHeadersMessage msg = new GetBlockHeadersMessage(10, 20);
+        assertEquals(MessageCode.GET_BLOCK_HEADERS, msg.getCode());
+
+        msg = new GetBlockHeadersMessage(msg.getEncoded());
+        assertEquals(10, msg.getFrom());
+        assertEquals(20, msg.getCount());
+    }
+
+    @Test
+    public void testBlockHeaders() {
+        EdDSA key = new EdDSA();
+        List<BlockHeader> headers = new ArrayList<>();
+        byte[] prevHash = Bytes.random(32);
+        for (int i = 0; i < 3; i++) {
+            BlockHeader h = new BlockHeader(5 + i, Bytes.random(20), prevHash, System.currentTimeMillis(),
+                    Bytes.random(32), Bytes.random(32), Bytes.random(32), Bytes.EMPY_BYTES).sign(key);
+            headers.add(h);
+            prevHash = h.getHash();
+        }
+
+        BlockHeadersMessage msg = new BlockHeadersMessage(5, headers);
+        assertEquals(MessageCode.BLOCK_HEADERS, msg.getCode());
+
+        msg = new BlockHeadersMessage(msg.getEncoded());
+        assertEquals(5, msg.getFrom());
+        assertEquals(3, msg.getHeaders().size());
+        for (int i = 0; i < 3; i++) {
+            BlockHeader h = msg.getHeaders().get(i);
+            assertTrue(h.validate());
+            assertArrayEquals(headers.get(i).getHash(), h.getHash());
+            assertArrayEquals(headers.get(i).getPrevHash(), h.getPrevHash());
+        }
+    }
+
+    @Test
+    public void testBlockHeader() {
+        BlockHeader h = new BlockHeader(1, Bytes.random(20), Bytes.random(32), System.currentTimeMillis(),
+                Bytes.random(32), Bytes.random(32), Bytes.random(32), Bytes.EMPY_BYTES).sign(new EdDSA());
+
+        BlockHeaderMessage msg = new BlockHeaderMessage(h);
+        assertEquals(MessageCode.BLOCK_HEADER, msg.getCode());
+
+        msg = new BlockHeaderMessage(msg.getEncoded());
+        assertEquals(MessageCode.BLOCK_HEADER, msg.getCode());
+        assertArrayEquals(h.getHash(), msg.getHeader().getHash());
+    }
+}
@@ -0,0 +1,59 @@
+package org.semux.net.msg.consensus;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.semux.core.Block;
+import org.semux.core.BlockHeader;
+import org.semux.crypto.EdDSA;
+import org.semux.net.msg.MessageCode;
+import org.semux.utils.Bytes;
+
+public class BlocksMessageTest {
+
+    private Block createBlock(long number) {
+        BlockHeader header = new BlockHeader(number, Bytes.random(20), Bytes.random(32), System.currentTimeMillis(),
+                Bytes.random(32), Bytes.random(32), Bytes.random(32), Bytes.EMPY_BYTES).sign(new EdDSA());
+        return new Block(header, Collections.emptyList(), Collections.emptyList(), 0, Collections.emptyList());
+    }
+
+    @Test
+    public void testGetBlocks() {
+        GetBlocksMessage msg = new GetBlocksMessage(10, 20);
+        assertEquals(MessageCode.GET_BLOCKS, msg.getCode());
+        assertNull(msg.getResponseMessageClass());
+
+        msg = new GetBlocksMessage(msg.getEncoded());
+        assertEquals(10, msg.getFrom());
+        assertEquals(20, msg.getCount());
+    }
+
+    @Test
+    public void testBlocks() {
+        List<Block> blocks = new ArrayList<>();
+        List<byte[]> encoded = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Block b = createBlock(5 + i);
+            blocks.add(b);
+            encoded.add(b.toBytes());
+        }
+
+        BlocksMessage msg = new BlocksMessage(5, encoded);
+        assertEquals(MessageCode.BLOCKS, msg.getCode());
+
+        msg = new BlocksMessage(msg.getEncoded());
+        assertEquals(5, msg.getFrom());
+        assertEquals(3, msg.size());
+        for (int i = 0; i < 3; i++) {
+            assertArrayEquals(encoded.get(i), msg.getEncodedBlocks().get(i));
+            assertArrayEquals(blocks.get(i).getHash(), msg.getBlock(i).getHash());
+            assertEquals(5 + i, msg.getBlock(i).getNumber());
+        }
+    }
+}
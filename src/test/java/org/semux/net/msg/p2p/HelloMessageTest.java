@@ -3,10 +3,13 @@ package org.semux.net.msg.p2p;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Arrays;
+
 import org.junit.Test;
 import org.semux.Config;
 import org.semux.crypto.EdDSA;
 import org.semux.net.Peer;
+import org.semux.net.msg.Compression;
 
 public class HelloMessageTest {
 
@@ -24,4 +27,21 @@ public class HelloMessageTest {
         assertTrue(msg.isValid());
         assertEquals(key.toAddressString(), msg.getPeer().getPeerId());
     }
+
+    @Test
+    public void testCompression() {
+        EdDSA key = new EdDSA();
+        Peer peer = new Peer("127.0.0.1", 5161, Config.P2P_VERSION, Config.getClientId(false), key.toAddressString(),
+                2);
+
+        HelloMessage msg = new HelloMessage(new HelloMessage(peer, key, Compression.SNAPPY).getEncoded());
+        assertTrue(msg.isValid());
+        assertEquals(Compression.SNAPPY, msg.getCompression());
+
+        // older peers don't append the compression
+        byte[] encoded = msg.getEncoded();
+        msg = new HelloMessage(Arrays.copyOf(encoded, encoded.length - 1));
+        assertTrue(msg.isValid());
+        assertEquals(Compression.NONE, msg.getCompression());
+    }
 }
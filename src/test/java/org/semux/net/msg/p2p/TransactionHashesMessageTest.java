@@ -0,0 +1,52 @@
+package org.semux.net.msg.p2p;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.semux.utils.Bytes;
+
+public class TransactionHashesMessageTest {
+
+    @Test
+    public void testSerialization() {
+        List<byte[]> hashes = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            hashes.add(Bytes.random(32));
+        }
+
+        TransactionHashesMessage msg = new TransactionHashesMessage(hashes);
+        msg = new TransactionHashesMessage(msg.getEncoded());
+        assertEquals(hashes.size(), msg.getHashes().size());
+        for (int i = 0; i < hashes.size(); i++) {
+            assertArrayEquals(hashes.get(i), msg.getHashes().get(i));
+        }
+
+        GetTransactionsMessage req = new GetTransactionsMessage(hashes);
+        req = new GetTransactionsMessage(req.getEncoded());
+        assertEquals(hashes.size(), req.getHashes().size());
+        for (int i = 0; i < hashes.size(); i++) {
+            assertArrayEquals(hashes.get(i), req.getHashes().get(i));
+        }
+    }
+
+    @Test
+    public void testMaxHashes() {
+        List<byte[]> hashes = new ArrayList<>();
+        for (int i = 0; i < TransactionHashesMessage.MAX_HASHES + 10; i++) {
+            hashes.add(Bytes.random(32));
+        }
+
+        // the count is not trusted beyond the limit
+        TransactionHashesMessage msg = new TransactionHashesMessage(hashes);
+        msg = new TransactionHashesMessage(msg.getEncoded());
+        assertEquals(TransactionHashesMessage.MAX_HASHES, msg.getHashes().size());
+
+        GetTransactionsMessage req = new GetTransactionsMessage(hashes);
+        req = new GetTransactionsMessage(req.getEncoded());
+        assertEquals(GetTransactionsMessage.MAX_HASHES, req.getHashes().size());
+    }
+}
@@ -0,0 +1,39 @@
+package org.semux.net.msg.p2p;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.semux.Config;
+import org.semux.core.Transaction;
+import org.semux.core.TransactionType;
+import org.semux.crypto.EdDSA;
+import org.semux.utils.Bytes;
+
+public class TransactionsMessageTest {
+
+    @Test
+    public void testSerialization() {
+        EdDSA key = new EdDSA();
+        byte[] to = new EdDSA().toAddress();
+        long now = System.currentTimeMillis();
+
+        List<Transaction> txs = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Transaction tx = new Transaction(TransactionType.TRANSFER, key.toAddress(), to, 1,
+                    Config.MIN_TRANSACTION_FEE_SOFT, i, now, Bytes.EMPY_BYTES).sign(key);
+            assertEquals(tx.toBytes().length, tx.size());
+            txs.add(tx);
+        }
+
+        TransactionsMessage msg = new TransactionsMessage(txs);
+        msg = new TransactionsMessage(msg.getEncoded());
+        assertEquals(txs.size(), msg.getTransactions().size());
+        for (int i = 0; i < txs.size(); i++) {
+            assertArrayEquals(txs.get(i).getHash(), msg.getTransactions().get(i).getHash());
+        }
+    }
+}
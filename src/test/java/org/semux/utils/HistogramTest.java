@@ -0,0 +1,48 @@
+package org.semux.utils;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class HistogramTest {
+
+    @Test
+    public void testEmpty() {
+        Histogram h = new Histogram();
+        assertEquals(0, h.getCount());
+        assertEquals(0, h.getMean());
+        assertEquals(0, h.getPercentile(99));
+    }
+
+    @Test
+    public void testBuckets() {
+        Histogram h = new Histogram();
+        h.record(0);
+        h.record(1);
+        h.record(2);
+        h.record(3);
+        h.record(1024);
+        h.record(Long.MAX_VALUE / 2);
+
+        assertEquals(2, h.getBucket(0));
+        assertEquals(1, h.getBucket(1));
+        assertEquals(1, h.getBucket(2));
+        assertEquals(1, h.getBucket(10));
+        assertEquals(1, h.getBucket(Histogram.BUCKETS - 1));
+        assertEquals(6, h.getCount());
+        assertEquals(Long.MAX_VALUE / 2, h.getMax());
+    }
+
+    @Test
+    public void testPercentile() {
+        Histogram h = new Histogram();
+        for (int i = 1; i <= 100; i++) {
+            h.record(i);
+        }
+
+        assertEquals(50, h.getMean());
+        assertEquals(64, h.getPercentile(50));
+        assertEquals(100, h.getPercentile(99));
+        assertEquals(100, h.getMax());
+    }
+}
@@ -0,0 +1,45 @@
+package org.semux.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class IncrementalMerkleTreeTest {
+
+    @Test
+    public void testRootHash() {
+        IncrementalMerkleTree tree = new IncrementalMerkleTree();
+        List<byte[]> hashes = new ArrayList<>();
+        assertArrayEquals(new MerkleTree(hashes).getRootHash(), tree.getRootHash());
+
+        for (int i = 0; i < 100; i++) {
+            byte[] hash = Bytes.random(32);
+            hashes.add(hash);
+            tree.add(hash);
+
+            assertEquals(hashes.size(), tree.size());
+            assertArrayEquals(new MerkleTree(hashes).getRootHash(), tree.getRootHash());
+        }
+    }
+
+    @Test
+    public void testCopy() {
+        IncrementalMerkleTree tree = new IncrementalMerkleTree();
+        tree.add(Bytes.random(32));
+        tree.add(Bytes.random(32));
+        tree.add(Bytes.random(32));
+
+        IncrementalMerkleTree copy = new IncrementalMerkleTree(tree);
+        byte[] root = copy.getRootHash();
+        tree.add(Bytes.random(32));
+        assertArrayEquals(root, copy.getRootHash());
+
+        tree.clear();
+        assertEquals(0, tree.size());
+        assertArrayEquals(new byte[32], tree.getRootHash());
+    }
+}
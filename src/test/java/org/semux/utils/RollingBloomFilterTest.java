@@ -0,0 +1,66 @@
+package org.semux.utils;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class RollingBloomFilterTest {
+
+    @Test
+    public void testPut() {
+        RollingBloomFilter filter = new RollingBloomFilter(1000, 1e-6, 60_000);
+
+        byte[] key = Bytes.random(32);
+        assertFalse(filter.mightContain(key));
+        assertTrue(filter.put(key));
+        assertTrue(filter.mightContain(key));
+        assertFalse(filter.put(key));
+
+        filter.clear();
+        assertFalse(filter.mightContain(key));
+    }
+
+    @Test
+    public void testShortKey() {
+        RollingBloomFilter filter = new RollingBloomFilter(1000, 1e-6, 60_000);
+
+        assertTrue(filter.put(Bytes.of(1L)));
+        assertTrue(filter.mightContain(Bytes.of(1L)));
+        assertFalse(filter.mightContain(Bytes.of(2L)));
+    }
+
+    @Test
+    public void testRotation() {
+        int capacity = 1000;
+        RollingBloomFilter filter = new RollingBloomFilter(capacity, 1e-6, 60_000);
+
+        List<byte[]> first = new ArrayList<>();
+        for (int i = 0; i < capacity; i++) {
+            byte[] key = Bytes.random(32);
+            first.add(key);
+            filter.put(key);
+        }
+
+        // the previous generation is still remembered
+        for (int i = 0; i < capacity; i++) {
+            filter.put(Bytes.random(32));
+        }
+        for (byte[] key : first) {
+            assertTrue(filter.mightContain(key));
+        }
+
+        // and dropped after another rotation
+        for (int i = 0; i < capacity; i++) {
+            filter.put(Bytes.random(32));
+        }
+        int hits = 0;
+        for (byte[] key : first) {
+            hits += filter.mightContain(key) ? 1 : 0;
+        }
+        assertTrue(hits < 10);
+    }
+}
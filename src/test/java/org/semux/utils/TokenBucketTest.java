@@ -0,0 +1,54 @@
+package org.semux.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class TokenBucketTest {
+
+    @Test
+    public void testUnlimited() {
+        TokenBucket bucket = new TokenBucket(0);
+        assertTrue(bucket.isUnlimited());
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(bucket.tryConsume(1));
+        }
+        assertEquals(0, bucket.consume(1_000_000));
+        assertEquals(0, bucket.getDelay(1));
+    }
+
+    @Test
+    public void testTryConsume() {
+        TokenBucket bucket = new TokenBucket(10, 5);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(bucket.tryConsume(1));
+        }
+        assertFalse(bucket.tryConsume(1));
+        assertTrue(bucket.getDelay(1) > 0);
+        assertTrue(bucket.getDelay(1) <= 100_000_000L);
+    }
+
+    @Test
+    public void testRefill() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(100, 1);
+        assertTrue(bucket.tryConsume(1));
+        assertFalse(bucket.tryConsume(1));
+
+        Thread.sleep(20);
+        assertTrue(bucket.tryConsume(1));
+    }
+
+    @Test
+    public void testConsume() {
+        TokenBucket bucket = new TokenBucket(10, 10);
+        assertEquals(0, bucket.consume(10));
+
+        // 10 tokens in debt takes about a second
+        long delay = bucket.consume(10);
+        assertTrue(delay > 900_000_000L);
+        assertTrue(delay <= 1_000_000_000L);
+        assertFalse(bucket.tryConsume(1));
+    }
+}